@@ -0,0 +1,87 @@
+package kupusoglu.orhan.bazelize_maven_plugin.goal;
+
+import kupusoglu.orhan.bazelize_maven_plugin.model.Common;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+
+/**
+ * Goal <strong>analyze</strong>
+ * <br>
+ * Reports the critical path and the parallelism of the generated libraries, weighted by the number or size of their sources
+ * <br>
+ * By default a library is a module. With the <strong>build</strong> goal's granularity the package or partition
+ * libraries are analyzed instead, the packages are grouped again from the sources, as the build goal does.
+ * <br>
+ * Requires the <strong>meta</strong> and <strong>build</strong> goals' data, neither Bazel nor dependency resolution is needed.
+ * <br><br>
+ * <pre>
+ * mvn kupusoglu.orhan:bazelize-maven-plugin:analyze -Dcores=16
+ * mvn bazelize:analyze -Dgranularity=partition -DpartitionSize=200
+ * </pre>
+ */
+@Mojo(
+    name = "analyze",
+    defaultPhase = LifecyclePhase.PROCESS_SOURCES
+)
+public class GoalAnalyze extends AbstractMojo {
+    @Parameter(defaultValue = "${project}", required = true, readonly = true)
+    private MavenProject project;
+
+    /**
+     * cost of a module: number of source files, or their size in bytes
+     * @parameter
+     */
+    @Parameter(property = "cost", defaultValue = "files")
+    private String cost;
+
+    /**
+     * granularity of the analyzed libraries, as given to the build goal: module, package, or partition
+     * @parameter
+     */
+    @Parameter(property = "granularity", defaultValue = "module")
+    private String granularity;
+
+    /**
+     * number of source files per library in the partition granularity
+     * @parameter
+     */
+    @Parameter(property = "partitionSize", defaultValue = "400")
+    private Integer partitionSize;
+
+    /**
+     * number of cores for the speedup, if 0 the number of available processors
+     * @parameter
+     */
+    @Parameter(property = "cores", defaultValue = "0")
+    private Integer cores;
+
+    /**
+     * number of modules listed as the costliest ones and the ones with the largest fan-in
+     * @parameter
+     */
+    @Parameter(property = "top", defaultValue = "10")
+    private Integer top;
+
+
+    public void execute() throws MojoExecutionException {
+        if (project.isExecutionRoot()) {
+            int numCores = (cores == null || cores <= 0) ? Runtime.getRuntime().availableProcessors() : cores;
+
+            Common.analyzeGraph(getLog(),
+                                project.getBasedir().getAbsolutePath(),
+                                cost,
+                                granularity,
+                                partitionSize,
+                                numCores,
+                                top);
+        } else {
+            getLog().info("skipping");
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package kupusoglu.orhan.bazelize_maven_plugin.goal;
 
+import kupusoglu.orhan.bazelize_maven_plugin.model.ArtifactHash;
+import kupusoglu.orhan.bazelize_maven_plugin.model.ClassReferences;
 import kupusoglu.orhan.bazelize_maven_plugin.model.Common;
+import kupusoglu.orhan.bazelize_maven_plugin.model.DependencyLabels;
+import kupusoglu.orhan.bazelize_maven_plugin.model.HashCache;
+import kupusoglu.orhan.bazelize_maven_plugin.model.IntermediateStore;
+import kupusoglu.orhan.bazelize_maven_plugin.model.JarIndex;
+import kupusoglu.orhan.bazelize_maven_plugin.model.JsonWriter;
 import kupusoglu.orhan.bazelize_maven_plugin.model.MavenDependency;
 import kupusoglu.orhan.bazelize_maven_plugin.model.MavenServer;
+import kupusoglu.orhan.bazelize_maven_plugin.model.PackageGraph;
+import kupusoglu.orhan.bazelize_maven_plugin.model.Pipeline;
+import kupusoglu.orhan.bazelize_maven_plugin.model.RemoteRepositories;
+import kupusoglu.orhan.bazelize_maven_plugin.model.ScopedDependencies;
+import kupusoglu.orhan.bazelize_maven_plugin.model.Template;
 
-import com.google.common.hash.Hashing;
-import com.google.common.io.Files;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -23,13 +34,24 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
 
 
 /**
@@ -58,6 +80,9 @@ public class GoalBuild extends AbstractMojo {
     @Parameter(defaultValue = "${settings}", required = true, readonly = true)
     private Settings settings;
 
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    private MavenSession session;
+
     /**
      * path of the settings file relative to local repo
      * @parameter
@@ -107,6 +132,69 @@ public class GoalBuild extends AbstractMojo {
     @Parameter(property = "addHash", defaultValue = "false")
     private Boolean addHash;
 
+    /**
+     * format of the WORKSPACE dependency rules, jvm_import and maven_install require the SHA-256 of each dependency
+     * @parameter
+     */
+    @Parameter(property = "workspaceFormat", defaultValue = "maven_jar")
+    private String workspaceFormat;
+
+    /**
+     * dependencies listed by the library: transitive, or direct with the transitive ones exported by wrapper targets
+     * @parameter
+     */
+    @Parameter(property = "depsMode", defaultValue = "transitive")
+    private String depsMode;
+
+    /**
+     * comma separated license types of the jvm_import and local rules: notice, permissive, reciprocal, restricted, ...
+     * @parameter
+     */
+    @Parameter(property = "licenses", defaultValue = "notice")
+    private String licenses;
+
+    /**
+     * if true split the dependencies by scope: test ones only for the tests, provided ones as neverlink
+     * @parameter
+     */
+    @Parameter(property = "splitScopes", defaultValue = "false")
+    private Boolean splitScopes;
+
+    /**
+     * dependencies not referenced by the compiled classes: none kept, or runtime moved to runtime_deps
+     * @parameter
+     */
+    @Parameter(property = "pruneUnused", defaultValue = "none")
+    private String pruneUnused;
+
+    /**
+     * granularity of the generated libraries: one per module, one per package of the module, or balanced partitions of packages
+     * @parameter
+     */
+    @Parameter(property = "granularity", defaultValue = "module")
+    private String granularity;
+
+    /**
+     * number of source files per library in the partition granularity
+     * @parameter
+     */
+    @Parameter(property = "partitionSize", defaultValue = "400")
+    private Integer partitionSize;
+
+    /**
+     * path of the persistent hash cache, if empty kept in the local repository
+     * @parameter
+     */
+    @Parameter(property = "hashCache", defaultValue = "")
+    private String hashCache;
+
+    /**
+     * if true hash the JARs to verify the checksum files of the local repository, a mismatch fails the build
+     * @parameter
+     */
+    @Parameter(property = "verifyHash", defaultValue = "false")
+    private Boolean verifyHash;
+
     /**
      * add remote server of the Maven dependency
      * @parameter
@@ -121,13 +209,50 @@ public class GoalBuild extends AbstractMojo {
     @Parameter(property = "resMain", defaultValue = "src/main/resources")
     private String resMain;
 
+    /**
+     * number of threads hashing dependencies, sized to the storage rather than to the CPU count
+     * @parameter
+     */
+    @Parameter(property = "hashThreads", defaultValue = "4")
+    private Integer hashThreads;
+
+    /**
+     * capacity of the bounded queues between the dependency processing stages
+     * @parameter
+     */
+    @Parameter(property = "queueCapacity", defaultValue = "64")
+    private Integer queueCapacity;
+
     private SortedSet<MavenDependency> allDependencies = new TreeSet<>();
     private SortedSet<MavenServer> allServers = new TreeSet<>();
+    private HashCache cache;
+    private DependencyLabels labels;
+    private boolean addSha256;
+    private Common.WORKSPACE_FORMAT format;
+    private Common.DEPS_MODE mode;
+    private Common.GRANULARITY grain;
+    private Common.PRUNE prune;
+    private Set<String> unused = Collections.emptySet();
+    private Map<String, SortedSet<String>> children;
     private LocalDateTime dateTime = LocalDateTime.now();
 
 
-    // sha1() in com.google.common.hash.Hashing has been deprecated
-    @SuppressWarnings("deprecation")
+    /**
+     * Store a dependency with its rendered JSON and BUILD fragments, null if black listed or removed
+     */
+    private static class Rendered {
+        private final MavenDependency dep;
+        private final String json;
+        private final String label;
+
+        private Rendered(MavenDependency dep, String json, String label) {
+            this.dep = dep;
+            this.json = json;
+            this.label = label;
+        }
+    }
+
+
     public void execute() throws MojoExecutionException {
         // for LifeCycle.afterSessionEnd()
         if (Common.getProjectData("suffix") == null) { //project.isExecutionRoot()) {
@@ -234,79 +359,81 @@ public class GoalBuild extends AbstractMojo {
             }
         }
 
-        // read JAR entries
-        allDependencies.clear();
-        for (Artifact arti : artifacts) {
-            MavenDependency mavenDependency;
-            File file = arti.getFile();
-            String hash = "";
-
-            mavenDependency = new MavenDependency(arti.getGroupId(), arti.getArtifactId(), arti.getVersion());
-
-            if (this.addScope) {
-                mavenDependency.setScope(arti.getScope());
-            }
-
-            if (this.addHash) {
-                try {
-                    byte[] contents = Files.toByteArray(file);
-                    hash = Hashing.sha1().hashBytes(contents).toString();
-                } catch (IOException e) {
-                    throw new MojoExecutionException("Dependency could not be hashed!", e);
-                }
+        format = Common.WORKSPACE_FORMAT.of(workspaceFormat);
+        mode = Common.DEPS_MODE.of(depsMode);
+        grain = Common.GRANULARITY.of(granularity);
+        // used by the WORKSPACE at the end of the session, an unknown type fails early
+        Common.LICENSE.of(licenses);
+        addSha256 = format == Common.WORKSPACE_FORMAT.JVM_IMPORT || format == Common.WORKSPACE_FORMAT.MAVEN_INSTALL;
+        labels = DependencyLabels.getInstance();
+        children = collectChildren(artifacts);
+        prune = Common.PRUNE.of(pruneUnused);
+
+        if (addHash || addSha256 || prune != Common.PRUNE.NONE) {
+            Path pathHashCache = (hashCache == null || hashCache.isEmpty())
+                                 ? Paths.get(localRepo, Common.getDirCache(), Common.getFileHashCache())
+                                 : Paths.get(hashCache);
+
+            cache = HashCache.getInstance(pathHashCache);
+            cache.setVerify(verifyHash);
+        }
 
-                mavenDependency.setHash(hash);
-            }
+        if (prune != Common.PRUNE.NONE) {
+            unused = findUnused(artifacts, localRepo);
+        }
 
-            if (this.addServer) {
-                File remotes = new File(file.getParent() + File.separator + "_remote.repositories");
+        Common.Dependency metaDep = Common.queryLibrary(libName);
 
-                String remoteDescriptorContent;
+        // read JAR entries: scan -> resolve/hash -> render -> write
+        allDependencies.clear();
+        SortedMap<String, Rendered> allRendered = new TreeMap<>();
+        Pipeline<Rendered> pipeline = Pipeline.source("scan", artifacts, queueCapacity)
+                                              .then("hash", (addHash || addSha256) ? hashThreads : 1, queueCapacity, this::resolve)
+                                              .then("render", 1, queueCapacity, dep -> render(dep, removeDep));
+        List<Pipeline.Failure> failures;
+
+        try {
+            failures = pipeline.run("write", rendered -> {
+                allDependencies.add(rendered.dep);
+                allRendered.put(rendered.dep.getName(), rendered);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Dependency processing interrupted!", e);
+        }
 
-                try {
-                    remoteDescriptorContent = Files.toString(remotes, StandardCharsets.UTF_8);
+        getLog().info("pipeline:\n" + pipeline.report());
 
-                    getLog().debug(remoteDescriptorContent);
+        if (!failures.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
 
-                    Matcher jarServerMatcher = Common.getPatternSettingsJar().matcher(remoteDescriptorContent);
+            for (Pipeline.Failure failure : failures) {
+                sb.append("\n");
+                sb.append(Common.getIndentOne());
+                sb.append(failure);
+            }
 
-                    if (jarServerMatcher.find()) {
-                        String server = jarServerMatcher.group(1);
+            MojoExecutionException aggregated = new MojoExecutionException(failures.size()
+                                                                            + " dependencies could not be processed:"
+                                                                            + sb);
 
-                        if (server != null) {
-                            mavenDependency.setServer(server);
-                        } else {
-                            mavenDependency.setServer(defaultServer);
-                        }
-                    } else {
-                        mavenDependency.setServer(defaultServer);
-                    }
-                } catch (IOException e) {
-                    getLog().warn("could not locate repository file for " + arti.getArtifactId()
-                                                                          + ", setting to default server: " + defaultServer);
-                    mavenDependency.setServer(defaultServer);
-                }
+            for (Pipeline.Failure failure : failures) {
+                aggregated.addSuppressed(failure.getCause());
             }
 
-            allDependencies.add(mavenDependency);
+            throw aggregated;
         }
 
         // GENERATE OUTPUT
         String pathBuild = pathBase + Common.OUTPUT_FILES.BUILD;
-        String pathDependency = pathBase + Common.OUTPUT_FILES.JSON_DEPENDENCY;
-        String pathServer = pathBase + Common.OUTPUT_FILES.JSON_SERVER;
 
         if (backup) {
             Common.renameFileIfExists(pathBuild, Common.getProjectData("suffix"));
         }
 
         File fileBuild = new File(pathBuild);
-        File fileDependency = new File(pathDependency);
-        File fileServer = new File(pathServer);
-
-        Common.Dependency metaDep = Common.queryLibrary(libName);
 
-        String contentLibrary = Common.getTemplateLibrary();
+        Template contentLibrary = Common.getTemplateLibrary();
         String resFiles= Common.getResources(resMain);
 
         StringBuilder jsonDependency = new StringBuilder();
@@ -318,56 +445,46 @@ public class GoalBuild extends AbstractMojo {
         try (
             FileWriter buildWriter = new FileWriter(fileBuild);
         ) {
+            IntermediateStore store = openStore();
+            String key = IntermediateStore.key(store.getRoot(), project.getBasedir().toPath());
+
             if (metaDep == null || metaDep.getLabel().isEmpty()) {
                 if (!buildPrepend.isEmpty()) {
                     buildWriter.append(buildPrepend);
                     buildWriter.append("\n");
                 }
 
+                // the records of an earlier run would still feed the WORKSPACE
+                store.remove(IntermediateStore.KIND.DEPENDENCY, key);
+                store.remove(IntermediateStore.KIND.SERVER, key);
+
                 getLog().info("output:\n" + Common.getIndentOne() + pathBuild);
             } else {
-                FileWriter dependencyWriter = new FileWriter(fileDependency);
-                FileWriter serverWriter = new FileWriter(fileServer);
+                ScopedDependencies scoped = new ScopedDependencies(libName, splitScopes, build);
 
-                for (MavenDependency dep : allDependencies) {
-                    String depName = Common.sanitize(dep.getGroupId()
-                                                     + Common.getSepSanitize()
-                                                     + dep.getArtifactId()
-                                                     + Common.getSepSanitize()
-                                                     + dep.getVersion());
-
-                    if (!Common.isBlackListed(depName)) {
-                        JSONObject jsonObject = new JSONObject(dep);
-
-                        jsonDependency.append(jsonObject.toString());
+                for (Rendered rendered : allRendered.values()) {
+                    if (rendered.json != null) {
+                        jsonDependency.append(rendered.json);
                         jsonDependency.append(",");
+                    }
 
-                        Common.Dependency currDep = Common.queryLibrary(dep.getName());
-
-                        if (currDep == null || currDep.getLabel().isEmpty()) {
-                            if (!removeDep.contains("@" + dep.getName() + "//jar")) {
-                                build.append(Common.getIndentTwo());
-                                build.append("\"@");
-                                build.append(dep.getName());
-                                build.append("//jar\",");
-                                build.append("\n");
+                    if (rendered.label != null) {
+                        if (unused.contains(rendered.dep.getName())) {
+                            if (prune == Common.PRUNE.RUNTIME) {
+                                scoped.addRuntime(rendered.label);
                             }
                         } else {
-                            if (!removeDep.contains(currDep.getLabel())) {
-                                build.append(Common.getIndentTwo());
-                                build.append("\"");
-                                build.append(currDep.getLabel());
-                                build.append("\",");
-                                build.append("\n");
-                            }
+                            scoped.add(rendered.dep.getScope(), rendered.label);
                         }
                     }
                 }
 
-                for (MavenServer srv : allServers) {
-                    JSONObject jsonObject = new JSONObject(srv);
+                String deps = scoped.getDeps();
+                String runtimeDeps = scoped.getRuntimeDeps();
+                String wrappers = scoped.getWrappers();
 
-                    jsonServer.append(jsonObject.toString());
+                for (MavenServer srv : allServers) {
+                    srv.writeJson(new JsonWriter(jsonServer));
                     jsonServer.append(",");
                 }
 
@@ -377,43 +494,346 @@ public class GoalBuild extends AbstractMojo {
                     buildWriter.append("\n");
                 }
 
-                buildWriter.append(contentLibrary.replaceFirst("#LIB_NAME#",
-                                                               libName)
-                                                 .replaceFirst("#SRCS_GLOB#",
-                                                               Common.getGlobSources(metaDep.getSources()))
-                                                 .replaceFirst("#RES_FILES#",
-                                                               resFiles)
-                                                 .replaceFirst("#JAVA_DEPS#",
-                                                               Common.removeLastChars(build.toString(), 1)));
+                if (grain != Common.GRANULARITY.MODULE) {
+                    buildWriter.append(renderPackages(libName,
+                                                      metaDep.getSources(),
+                                                      resFiles,
+                                                      deps,
+                                                      runtimeDeps));
+                } else {
+                    contentLibrary.with("LIB_NAME", libName)
+                                  .with("SRCS_GLOB", Common.getGlobSources(metaDep.getSources()))
+                                  .with("RES_FILES", resFiles)
+                                  .with("JAVA_DEPS", Common.withoutLastChars(deps, 1))
+                                  .with("RUNTIME_DEPS", runtimeDeps)
+                                  .renderTo(buildWriter);
+                }
+
+                if (!wrappers.isEmpty()) {
+                    buildWriter.append("\n");
+                    buildWriter.append(wrappers);
+                }
 
                 if (!buildAppend.isEmpty()) {
                     buildWriter.append(buildAppend);
                 }
 
-                // 2. file: JSON serialize JARs - to be used in Bazel WORKSPACE file
+                // 2. record: JSON serialize JARs - to be used in Bazel WORKSPACE file
                 if (jsonDependency.length() > 1) {
                     jsonDependency.setLength(jsonDependency.length() - 1);
                 }
                 jsonDependency.append("]");
 
-                dependencyWriter.append(jsonDependency);
-                dependencyWriter.close();
+                store.append(IntermediateStore.KIND.DEPENDENCY, key, jsonDependency.toString());
 
-                // 3. file: JSON serialize servers - to be used in Bazel WORKSPACE file
+                // 3. record: JSON serialize servers - to be used in Bazel WORKSPACE file
                 if (jsonServer.length() > 1) {
                     jsonServer.setLength(jsonServer.length() - 1);
                 }
                 jsonServer.append("]");
 
-                serverWriter.append(jsonServer);
-                serverWriter.close();
+                store.append(IntermediateStore.KIND.SERVER, key, jsonServer.toString());
 
-                getLog().info("output:\n" + Common.getIndentOne() + pathServer + "\n"
-                                          + Common.getIndentOne() + pathDependency + "\n"
+                getLog().info("output:\n" + Common.getIndentOne() + "dependency and server records: " + store.getRoot().resolve(key) + "\n"
                                           + Common.getIndentOne() + pathBuild);
             }
         } catch (IOException e) {
             getLog().error(e.getMessage());
         }
     }
+
+    /**
+     * The store of the session, with the modules of the whole reactor, even if only some of them are built
+     */
+    private IntermediateStore openStore() throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance(session.getTopLevelProject().getBasedir().toPath());
+        List<MavenProject> projects = session.getAllProjects() == null ? session.getProjects() : session.getAllProjects();
+        List<Path> reactor = new ArrayList<>();
+
+        for (MavenProject p : projects) {
+            reactor.add(p.getBasedir().toPath());
+        }
+
+        store.setReactor(reactor);
+
+        return store;
+    }
+
+    /**
+     * One java_library() per package, packages in a cycle share one, behind an aggregate exporting them under the module's name
+     * <br>
+     * In the partition granularity the packages are grouped into libraries of about {@link #partitionSize} source files.
+     * <br>
+     * The aggregate comes first, so that the test and binary goals find it as the library of the module.
+     */
+    private String renderPackages(String libName, String[] sources, String resFiles, String deps, String runtimeDeps)
+        throws IOException {
+        PackageGraph packageGraph = PackageGraph.scan(project.getBasedir().toPath(), sources);
+
+        if (grain == Common.GRANULARITY.PARTITION) {
+            packageGraph.partition(partitionSize);
+        }
+
+        List<SortedSet<String>> targets = packageGraph.getTargets();
+        String[] names = new String[targets.size()];
+        StringBuilder exports = new StringBuilder();
+        StringBuilder rules = new StringBuilder();
+
+        for (int t = 0; t < targets.size(); t++) {
+            names[t] = PackageGraph.getTargetName(libName, targets.get(t));
+
+            exports.append(Common.getIndentTwo())
+                   .append("\":")
+                   .append(names[t])
+                   .append("\",\n");
+        }
+
+        // dependencies first
+        for (int t = 0; t < targets.size(); t++) {
+            StringBuilder targetDeps = new StringBuilder(deps);
+
+            for (int d : packageGraph.getTargetDeps(t)) {
+                targetDeps.append(Common.getIndentTwo())
+                          .append("\":")
+                          .append(names[d])
+                          .append("\",\n");
+            }
+
+            rules.append("\n");
+            Common.getTemplateLibrary()
+                  .with("LIB_NAME", names[t])
+                  .with("SRCS_GLOB", Common.getGlobSources(packageGraph.getSources(targets.get(t))))
+                  .with("RES_FILES", "")
+                  .with("JAVA_DEPS", Common.withoutLastChars(targetDeps, 1))
+                  .with("RUNTIME_DEPS", runtimeDeps)
+                  .renderTo(rules);
+            rules.append("\n");
+        }
+
+        getLog().info("package targets: " + packageGraph.getGraph().size()
+                      + " packages in " + targets.size()
+                      + " targets, " + packageGraph.getNumCycles() + " cycles merged");
+
+        if (grain == Common.GRANULARITY.PARTITION) {
+            List<Integer> sizes = new ArrayList<>();
+
+            for (SortedSet<String> target : targets) {
+                sizes.add(packageGraph.getNumFiles(target));
+            }
+
+            getLog().info("partition sizes: " + sizes);
+        }
+
+        return Common.getTemplateExports()
+                     .with("LIB_NAME", libName)
+                     .with("ATTRIBUTES", "\n" + Common.getIndentOne() + "visibility = [\"//visibility:public\"],"
+                                         + "\n" + Common.getIndentOne() + "resources = [" + resFiles
+                                         + "\n" + Common.getIndentOne() + "],")
+                     .with("JAVA_EXPORTS", Common.withoutLastChars(exports, 1))
+                     .render()
+               + "\n"
+               + rules;
+    }
+
+    /**
+     * Names of the dependencies whose classes are never referenced by the compiled classes of the module
+     * <br>
+     * Only compile and provided scoped JARs are candidates, annotation processors are kept. The dependencies of a
+     * referenced JAR are used, too: javac loads the supertypes of the referenced types, although the compiled classes
+     * do not name them. In the direct mode a dependency is kept as long as any of its transitive dependencies is used,
+     * since it exports them.
+     */
+    private Set<String> findUnused(Set<Artifact> artifacts, String localRepo) throws MojoExecutionException {
+        Path dirClasses = Paths.get(project.getBuild().getOutputDirectory());
+
+        if (!Files.isDirectory(dirClasses)) {
+            getLog().warn("no compiled classes, unused dependencies are kept: " + dirClasses);
+            return Collections.emptySet();
+        }
+
+        ClassReferences references;
+        JarIndex index = JarIndex.getInstance(Paths.get(localRepo, Common.getDirCache(), Common.getFileJarIndex()));
+        Set<String> used = new HashSet<>();
+        SortedMap<String, String> candidates = new TreeMap<>();
+
+        try {
+            references = ClassReferences.scan(dirClasses);
+
+            for (Artifact arti : artifacts) {
+                File file = arti.getFile();
+                String coordinate = arti.getGroupId() + ":" + arti.getArtifactId();
+
+                if (Artifact.SCOPE_TEST.equals(arti.getScope())
+                    || Artifact.SCOPE_RUNTIME.equals(arti.getScope())
+                    || file == null
+                    || !file.isFile()) {
+                    used.add(coordinate);
+                } else if (!isPrunable(references, index.index(file.toPath(), cache.hash(file.toPath(), ArtifactHash.SHA_1)))) {
+                    used.add(coordinate);
+                } else {
+                    candidates.put(coordinate, labels.name(arti.getGroupId(), arti.getArtifactId(), arti.getVersion()));
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not analyze the compiled classes: " + e.getMessage(), e);
+        }
+
+        used = closeUsed(used, children);
+
+        Set<String> names = new TreeSet<>();
+
+        for (Map.Entry<String, String> me : candidates.entrySet()) {
+            if (!used.contains(me.getKey())
+                && (mode != Common.DEPS_MODE.DIRECT || !exportsUsed(me.getKey(), used, new HashSet<>()))) {
+                names.add(me.getValue());
+            }
+        }
+
+        getLog().info("unused dependencies (" + prune + "): " + names.size()
+                      + " of " + artifacts.size()
+                      + ", " + references.getNumClassFiles() + " class files, "
+                      + references.getClasses().size() + " referenced types"
+                      + (names.isEmpty() ? "" : "\n" + Common.getIndentOne() + String.join("\n" + Common.getIndentOne(), names)));
+
+        return names;
+    }
+
+    /**
+     * True if the JAR is neither referenced by the compiled classes nor run by javac as an annotation processor
+     */
+    static boolean isPrunable(ClassReferences references, JarIndex.Entry entry) {
+        return !entry.isProcessor() && !references.isUsedBy(entry);
+    }
+
+    /**
+     * The used artifacts with their transitive dependencies, as "groupId:artifactId"
+     */
+    static Set<String> closeUsed(Collection<String> used, Map<String, SortedSet<String>> children) {
+        Set<String> closed = new HashSet<>(used);
+        Deque<String> pending = new ArrayDeque<>(used);
+
+        while (!pending.isEmpty()) {
+            for (String child : children.getOrDefault(pending.pop(), Collections.emptySortedSet())) {
+                if (closed.add(child)) {
+                    pending.push(child);
+                }
+            }
+        }
+
+        return closed;
+    }
+
+    private boolean exportsUsed(String coordinate, Set<String> used, Set<String> visited) {
+        for (String child : children.getOrDefault(coordinate, Collections.emptySortedSet())) {
+            if (visited.add(child) && (used.contains(child) || exportsUsed(child, used, visited))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Map each resolved artifact, as "groupId:artifactId", to its direct children, recovered from the dependency trails
+     * <br>
+     * A trail lists the project first and the artifact last, so the entry before the artifact is its parent.
+     */
+    private static Map<String, SortedSet<String>> collectChildren(Set<Artifact> artifacts) {
+        Map<String, SortedSet<String>> children = new HashMap<>();
+
+        for (Artifact arti : artifacts) {
+            List<String> trail = arti.getDependencyTrail();
+
+            if (trail == null || trail.size() < 3) {
+                // direct dependency of the project
+                continue;
+            }
+
+            String[] parent = trail.get(trail.size() - 2).split(":");
+
+            if (parent.length >= 2) {
+                children.computeIfAbsent(parent[0] + ":" + parent[1], k -> new TreeSet<>())
+                        .add(arti.getGroupId() + ":" + arti.getArtifactId());
+            }
+        }
+
+        return children;
+    }
+
+    private MavenDependency resolve(Artifact arti) throws IOException {
+        MavenDependency mavenDependency;
+        File file = arti.getFile();
+        String hash = "";
+
+        mavenDependency = new MavenDependency(arti.getGroupId(), arti.getArtifactId(), arti.getVersion());
+
+        if (this.addScope || this.splitScopes) {
+            mavenDependency.setScope(arti.getScope());
+        }
+
+        if (this.addHash) {
+            hash = cache.hash(file.toPath(), ArtifactHash.SHA_1);
+
+            mavenDependency.setHash(hash);
+        }
+
+        if (this.addSha256) {
+            mavenDependency.setSha256(cache.hash(file.toPath(), ArtifactHash.SHA_256));
+        }
+
+        if (arti.getDependencyTrail() != null) {
+            // the trail starts with the project itself
+            mavenDependency.setDepth(arti.getDependencyTrail().size() - 1);
+        }
+
+        mavenDependency.setDependencies(children.getOrDefault(mavenDependency.retrieveCoordinate(),
+                                                              Collections.emptySortedSet()));
+
+        if (this.addServer) {
+            String server = RemoteRepositories.findServer(file.toPath());
+
+            if (server == null) {
+                getLog().debug("no remote repository recorded for " + arti.getArtifactId()
+                                                                    + ", setting to default server: " + defaultServer);
+                mavenDependency.setServer(defaultServer);
+            } else {
+                mavenDependency.setServer(server);
+            }
+        }
+
+        return mavenDependency;
+    }
+
+    private Rendered render(MavenDependency dep, SortedSet<String> removeDep) {
+        // the sanitized "groupId_artifactId_version"
+        if (Common.isBlackListed(dep.getName())) {
+            return new Rendered(dep, null, null);
+        }
+
+        String json = dep.outputAsJson();
+
+        // the WORKSPACE needs every dependency, the library only the direct ones
+        if (mode == Common.DEPS_MODE.DIRECT && dep.getDepth() != 1) {
+            return new Rendered(dep, json, null);
+        }
+
+        Common.Dependency currDep = Common.queryLibrary(dep.getName());
+
+        DependencyLabels.Label label;
+
+        if (currDep == null || currDep.getLabel().isEmpty()) {
+            // rules_jvm_external names its targets after the versionless coordinate
+            if (format == Common.WORKSPACE_FORMAT.MAVEN_INSTALL) {
+                label = labels.mavenInstall(dep);
+            } else if (mode == Common.DEPS_MODE.DIRECT) {
+                label = labels.exports(dep);
+            } else {
+                label = labels.jar(dep);
+            }
+        } else {
+            label = labels.module(currDep.getLabel());
+        }
+
+        return new Rendered(dep, json, removeDep.contains(label.getLabel()) ? null : label.getFragment());
+    }
 }
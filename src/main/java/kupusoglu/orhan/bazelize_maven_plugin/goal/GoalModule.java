@@ -1,8 +1,10 @@
 package kupusoglu.orhan.bazelize_maven_plugin.goal;
 
 import kupusoglu.orhan.bazelize_maven_plugin.model.Common;
+import kupusoglu.orhan.bazelize_maven_plugin.model.IntermediateStore;
 import kupusoglu.orhan.bazelize_maven_plugin.model.MavenMeta;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -14,10 +16,11 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -25,7 +28,7 @@ import java.nio.file.Paths;
  * <br>
  * Order: 1
  * <br>
- * Saves to an intermediate JSON file the current module's meta data:
+ * Saves to the intermediate store at the root the current module's meta data:
  * <br>
  * <ul>
  * <li>baseDir</li>
@@ -55,6 +58,9 @@ public class GoalModule extends AbstractMojo {
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    private MavenSession session;
+
     /**
      * if true back up the 'BUILD' and 'tmp-bzl-meta.json' files - to be used by LifeCycle
      * @parameter
@@ -176,22 +182,32 @@ public class GoalModule extends AbstractMojo {
 
             getLog().info(meta.recordBazelSources());
 
-            File fileModule = new File(meta.retrieveAbsDir().toString()
-                                       + File.separator
-                                       + Common.OUTPUT_FILES.JSON_MODULE);
+            // committed at the end of the session, earlier records stay in older segments
+            IntermediateStore store = openStore();
+            String key = IntermediateStore.key(store.getRoot(), baseDir);
 
-            if (finalSuffix != null) {
-                Common.renameFileIfExists(fileModule.getAbsolutePath(), finalSuffix);
-            }            
-            
-            FileWriter metaWriter = new FileWriter(fileModule);
-            metaWriter.write(MavenMeta.getMetaData(meta));
-            metaWriter.flush();
-            metaWriter.close();
+            store.append(IntermediateStore.KIND.MODULE, key, MavenMeta.getMetaData(meta));
 
-            getLog().info("output:\n" + Common.getIndentOne() + fileModule);
+            getLog().info("output:\n" + Common.getIndentOne() + "module record: " + store.getRoot().resolve(key));
         } catch (IOException e) {
             getLog().error(e.getMessage());
         }
     }
+
+    /**
+     * The store of the session, with the modules of the whole reactor, even if only some of them are built
+     */
+    private IntermediateStore openStore() throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance(session.getTopLevelProject().getBasedir().toPath());
+        List<MavenProject> projects = session.getAllProjects() == null ? session.getProjects() : session.getAllProjects();
+        List<Path> reactor = new ArrayList<>();
+
+        for (MavenProject p : projects) {
+            reactor.add(p.getBasedir().toPath());
+        }
+
+        store.setReactor(reactor);
+
+        return store;
+    }
 }
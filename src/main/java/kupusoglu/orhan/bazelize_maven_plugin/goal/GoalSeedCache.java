@@ -0,0 +1,90 @@
+package kupusoglu.orhan.bazelize_maven_plugin.goal;
+
+import kupusoglu.orhan.bazelize_maven_plugin.model.Common;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+
+/**
+ * Goal <strong>seed-cache</strong>
+ * <br>
+ * Seeds a <strong>Bazel repository cache</strong> with the JARs of the local Maven repository referred by the WORKSPACE,
+ * so that the first Bazel build does not download them again
+ * <br>
+ * Requires the <strong>build</strong> goal's dependency data, SHA-256 hashes are reused or computed.
+ * <br><br>
+ * <pre>
+ * mvn kupusoglu.orhan:bazelize-maven-plugin:seed-cache -DrepositoryCache=$(bazel info repository_cache)
+ * mvn bazelize:seed-cache -DrepositoryCache=/mnt/cache/bazel
+ * </pre>
+ * <br>
+ * The location of the cache depends on the platform and on the Bazel options, thus it is required.
+ */
+@Mojo(
+    name = "seed-cache",
+    defaultPhase = LifecyclePhase.PROCESS_SOURCES,
+    requiresDependencyResolution = ResolutionScope.TEST
+)
+public class GoalSeedCache extends AbstractMojo {
+    @Parameter(defaultValue = "${project}", required = true, readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${settings}", required = true, readonly = true)
+    private Settings settings;
+
+    /**
+     * Bazel repository cache, as printed by "bazel info repository_cache" or given by --repository_cache
+     * @parameter
+     */
+    @Parameter(property = "repositoryCache", required = true)
+    private String repositoryCache;
+
+    /**
+     * path of the persistent hash cache, if empty kept in the local repository
+     * @parameter
+     */
+    @Parameter(property = "hashCache", defaultValue = "")
+    private String hashCache;
+
+
+    public void execute() throws MojoExecutionException {
+        if (project.isExecutionRoot()) {
+            String localRepo = settings.getLocalRepository();
+            Path pathRepositoryCache;
+            Path pathHashCache;
+
+            if (repositoryCache == null || repositoryCache.isEmpty()) {
+                throw new MojoExecutionException("repository cache is required, "
+                                                 + "run with -DrepositoryCache=$(bazel info repository_cache)");
+            } else {
+                pathRepositoryCache = Paths.get(repositoryCache);
+            }
+
+            if (hashCache == null || hashCache.isEmpty()) {
+                pathHashCache = Paths.get(localRepo, Common.getDirCache(), Common.getFileHashCache());
+            } else {
+                pathHashCache = Paths.get(hashCache);
+            }
+
+            getLog().info("repository cache: " + pathRepositoryCache);
+
+            Common.seedCache(getLog(),
+                             project.getBasedir().getAbsolutePath(),
+                             Paths.get(localRepo),
+                             pathRepositoryCache,
+                             pathHashCache);
+        } else {
+            getLog().info("skipping");
+        }
+    }
+}
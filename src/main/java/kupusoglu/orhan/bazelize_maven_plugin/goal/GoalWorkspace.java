@@ -9,6 +9,7 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
 
 import java.time.LocalDateTime;
 
@@ -34,6 +35,9 @@ public class GoalWorkspace extends AbstractMojo {
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${settings}", required = true, readonly = true)
+    private Settings settings;
+
     /**
      * if true back up the 'WORKSPACE' file
      * @parameter
@@ -55,6 +59,41 @@ public class GoalWorkspace extends AbstractMojo {
     @Parameter(property = "workspaceName", defaultValue = "")
     private String workspaceName;
 
+    /**
+     * format of the dependency rules: maven_jar, jvm_import pinned with SHA-256, local reading the local repository, or maven_install
+     * @parameter
+     */
+    @Parameter(property = "workspaceFormat", defaultValue = "maven_jar")
+    private String workspaceFormat;
+
+    /**
+     * strategy to pick one version per groupId:artifactId: nearest, highest, or bom
+     * @parameter
+     */
+    @Parameter(property = "mediation", defaultValue = "nearest")
+    private String mediation;
+
+    /**
+     * path of the BOM pom.xml pinning the versions for the bom mediation strategy
+     * @parameter
+     */
+    @Parameter(property = "bomFile", defaultValue = "")
+    private String bomFile;
+
+    /**
+     * dependency mode of the build goal, direct adds the wrapper targets exporting the transitive dependencies
+     * @parameter
+     */
+    @Parameter(property = "depsMode", defaultValue = "transitive")
+    private String depsMode;
+
+    /**
+     * comma separated license types of the jvm_import and local rules: notice, permissive, reciprocal, restricted, ...
+     * @parameter
+     */
+    @Parameter(property = "licenses", defaultValue = "notice")
+    private String licenses;
+
 
     public void execute() throws MojoExecutionException {
         if (project.isExecutionRoot()) {
@@ -65,11 +104,20 @@ public class GoalWorkspace extends AbstractMojo {
                 finalSuffix = Common.getBackupSuffix(suffix, ctxSuffix);
             }
 
-            try {
-                Common.generateWorkspace(getLog(), project.getBasedir().getAbsolutePath(), workspaceName, finalSuffix);
-            } catch (MojoExecutionException e) {
-                getLog().error(e.getMessage());
-            }
+            // a record which cannot be parsed fails the goal, after all the others are merged
+            Common.generateWorkspace(getLog(),
+                                     project.getBasedir().getAbsolutePath(),
+                                     workspaceName,
+                                     workspaceFormat,
+                                     settings.getLocalRepository(),
+                                     mediation,
+                                     bomFile,
+                                     depsMode,
+                                     licenses,
+                                     finalSuffix);
+
+            // a cycle fails the goal
+            Common.generateModuleGraph(getLog(), project.getBasedir().getAbsolutePath());
         } else {
             getLog().info("skipping");
         }
@@ -1,6 +1,11 @@
 package kupusoglu.orhan.bazelize_maven_plugin.goal;
 
 import kupusoglu.orhan.bazelize_maven_plugin.model.Common;
+import kupusoglu.orhan.bazelize_maven_plugin.model.DependencyLabels;
+import kupusoglu.orhan.bazelize_maven_plugin.model.HashCache;
+import kupusoglu.orhan.bazelize_maven_plugin.model.IntermediateStore;
+import kupusoglu.orhan.bazelize_maven_plugin.model.JarIndex;
+import kupusoglu.orhan.bazelize_maven_plugin.model.RemoteRepositories;
 
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
@@ -116,6 +121,8 @@ public class LifeCycle extends AbstractMavenLifecycleParticipant {
 
             display(props, backup, rootDir, suffix);
 
+            IntermediateStore.closeInstance(log);
+
             try {
                 Common.generateMetaFile(log, rootDir, suffix);
             } catch (MojoExecutionException e) {
@@ -124,14 +131,34 @@ public class LifeCycle extends AbstractMavenLifecycleParticipant {
         } else if (goal.endsWith("build")) {
             log = getLog(objLog);
             String workspaceName = props.getProperty("workspaceName");
+            String workspaceFormat = props.getProperty("workspaceFormat");
+            String localRepo = session.getSettings().getLocalRepository();
+            String mediation = props.getProperty("mediation");
+            String bomFile = props.getProperty("bomFile");
+            String depsMode = props.getProperty("depsMode");
+            String licenses = props.getProperty("licenses");
 
             display(props, backup, rootDir, suffix);
 
+            IntermediateStore.closeInstance(log);
+
             try {
-                Common.generateWorkspace(log, rootDir, workspaceName, suffix);
+                Common.generateWorkspace(log, rootDir, workspaceName, workspaceFormat, localRepo, mediation, bomFile, depsMode, licenses, suffix);
             } catch (MojoExecutionException e) {
                 logger.error(e.getMessage());
             }
+
+            HashCache.closeInstance(log);
+            JarIndex.closeInstance(log);
+            DependencyLabels.closeInstance(log);
+            // a long-lived JVM runs later sessions, e.g. mvnd
+            RemoteRepositories.clearCache();
+
+            try {
+                Common.generateModuleGraph(log, rootDir);
+            } catch (MojoExecutionException e) {
+                throw new MavenExecutionException(e.getMessage(), e);
+            }
         } else {
             logger.info("Event - afterSessionEnd - ignored");
         }
@@ -0,0 +1,77 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Streaming message digest of JAR files
+ * <br>
+ * A JAR is read through a {@code FileChannel} into a reused direct buffer, one per thread,
+ * and fed to the JDK's {@code MessageDigest}, whose SHA implementations are intrinsified by the JIT.
+ * <br>
+ * Memory use does not depend on the size of the file, large JARs are never copied onto the heap.
+ */
+public class ArtifactHash {
+    public static final String SHA_1 = "SHA-1";
+    public static final String SHA_256 = "SHA-256";
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+
+    private ArtifactHash() {
+        // no instance required, use static factory methods
+    }
+
+    public static String sha1(Path file) throws IOException {
+        return hash(file, SHA_1);
+    }
+
+    public static String sha256(Path file) throws IOException {
+        return hash(file, SHA_256);
+    }
+
+    public static String hash(Path file, String algorithm) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("unknown hash algorithm: " + algorithm, e);
+        }
+
+        ByteBuffer buffer = BUFFER.get();
+
+        try (
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        ) {
+            buffer.clear();
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+
+        return new String(chars);
+    }
+}
@@ -0,0 +1,242 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+
+/**
+ * Types referenced by compiled classes, read from the constant pools of their <strong>.class</strong> files
+ * <br>
+ * No bytecode library is needed: the constant pool is parsed up to its end, the rest of a class file is skipped.
+ * Types are collected from the "Class" entries and from the descriptors and signatures among the "Utf8" entries,
+ * therefore annotations and generic arguments count as references, too.
+ * <br>
+ * A dependency is used if it provides any of the referenced types, matched package first through the {@link JarIndex}.
+ * <br>
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html#jvms-4.4">The Constant Pool</a>
+ */
+public class ClassReferences {
+    private static final int MAGIC = 0xcafebabe;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String EXT_CLASS = ".class";
+
+    private final SortedSet<String> classes = new TreeSet<>();
+    private Map<String, List<String>> byPackage;
+    private int numClassFiles = 0;
+
+
+    /**
+     * Scan the ".class" files under the given directory, e.g. "target/classes"
+     */
+    public static ClassReferences scan(Path dir) throws IOException {
+        ClassReferences references = new ClassReferences();
+        List<Path> files = new ArrayList<>();
+
+        try (
+            Stream<Path> stream = Files.walk(dir);
+        ) {
+            stream.filter(path -> path.toString().endsWith(EXT_CLASS) && Files.isRegularFile(path))
+                  .forEach(files::add);
+        }
+
+        for (Path file : files) {
+            try (
+                InputStream in = new BufferedInputStream(Files.newInputStream(file));
+            ) {
+                references.add(in);
+                references.numClassFiles++;
+            }
+        }
+
+        // types defined by the module itself need no dependency
+        for (Path file : files) {
+            String relative = dir.relativize(file).toString().replace('\\', '/');
+            references.classes.remove(relative.substring(0, relative.length() - EXT_CLASS.length()));
+        }
+
+        return references;
+    }
+
+    /**
+     * Add the types referenced by the constant pool of the given class file
+     */
+    public void add(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+
+        byPackage = null;
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a class file");
+        }
+
+        // minor and major version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        List<Integer> classIndexes = new ArrayList<>();
+
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classIndexes.add(in.readUnsignedShort());
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    in.skipBytes(2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    in.skipBytes(3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    in.skipBytes(4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    in.skipBytes(8);
+                    // takes two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("unknown constant pool tag: " + tag);
+            }
+        }
+
+        for (int index : classIndexes) {
+            String name = index < count ? utf8[index] : null;
+
+            if (name != null) {
+                if (name.startsWith("[")) {
+                    addDescriptor(name);
+                } else {
+                    classes.add(name);
+                }
+            }
+        }
+
+        // descriptors and signatures: "(Ljava/util/List<Lcom/example/Foo;>;)V"
+        for (String value : utf8) {
+            if (value != null && value.indexOf(';') > 0) {
+                addDescriptor(value);
+            }
+        }
+    }
+
+    private void addDescriptor(String descriptor) {
+        int start = descriptor.indexOf('L');
+
+        while (start >= 0) {
+            int end = start + 1;
+
+            while (end < descriptor.length() && ";<.".indexOf(descriptor.charAt(end)) < 0) {
+                end++;
+            }
+
+            if (end < descriptor.length() && end > start + 1) {
+                String name = descriptor.substring(start + 1, end);
+
+                if (isInternalName(name)) {
+                    classes.add(name);
+                }
+            }
+
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    // guards against string constants that merely look like descriptors
+    private static boolean isInternalName(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c != '/' && c != '$' && !Character.isJavaIdentifierPart(c)) {
+                return false;
+            }
+        }
+
+        return !name.startsWith("/") && !name.endsWith("/");
+    }
+
+    public SortedSet<String> getClasses() {
+        return Collections.unmodifiableSortedSet(classes);
+    }
+
+    public int getNumClassFiles() {
+        return numClassFiles;
+    }
+
+    /**
+     * True if the JAR provides any of the referenced types
+     */
+    public boolean isUsedBy(JarIndex.Entry entry) {
+        if (byPackage == null) {
+            byPackage = new HashMap<>();
+
+            for (String internalName : classes) {
+                int slash = internalName.lastIndexOf('/');
+
+                byPackage.computeIfAbsent(slash < 0 ? "" : internalName.substring(0, slash), k -> new ArrayList<>())
+                         .add(internalName);
+            }
+        }
+
+        for (String pkg : entry.getPackages()) {
+            List<String> candidates = byPackage.get(pkg);
+
+            if (candidates != null) {
+                for (String internalName : candidates) {
+                    if (entry.providesClass(internalName)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+}
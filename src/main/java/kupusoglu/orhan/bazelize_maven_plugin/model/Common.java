@@ -1,13 +1,12 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
-import com.google.common.base.CharMatcher;
 import com.google.common.io.Files;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,11 +23,14 @@ import java.util.stream.Stream;
  */
 public class Common {
     private static HashMap<String, Dependency> MAP_META_DEPENDENCY;
+    private static MetaIndex META_INDEX;
+    private static boolean META_INDEX_OPENED = false;
     private static HashMap<String, String> MAP_PROJECT_DATA;
-    private static Optional<String> TEMPLATE_LIBRARY = Optional.empty();
-    private static Optional<String> TEMPLATE_BINARY = Optional.empty();
-    private static Optional<String> TEMPLATE_TEST = Optional.empty();
-    private static Optional<String> TEMPLATE_SERVER = Optional.empty();
+    private static Template TEMPLATE_LIBRARY;
+    private static Template TEMPLATE_BINARY;
+    private static Template TEMPLATE_TEST;
+    private static Template TEMPLATE_SERVER;
+    private static Template TEMPLATE_EXPORTS;
     private static Optional<String> RES_CLASS = Optional.empty();
     private static Pattern PATTERN_BLACK_LIST = Pattern.compile("^jdk_tools");
 
@@ -38,10 +40,23 @@ public class Common {
     private static final String INDENT_1 = "    ";
     private static final String INDENT_2 = INDENT_1 + INDENT_1;
     private static final String DIR_CURRENT = ".";
-    private static final Pattern PATTERN_SETTINGS_JAR = Pattern.compile("^.+?\\.[^javadoc]\\.jar\\>(.+?)\\=$", Pattern.MULTILINE);
+    private static final String DIR_CACHE = ".bazelize";
+    private static final String FILE_HASH_CACHE = "hash-cache.txt";
+    private static final String FILE_JAR_INDEX = "jar-index.bin";
+    private static final String PKG_EXPORTS = "third_party/maven";
+    private static final String SUFFIX_TEST_DEPS = "_test_deps";
+    private static final String SUFFIX_PROVIDED_DEPS = "_provided_deps";
     private static final Pattern PATTERN_BAZEL_LIB = Pattern.compile("\\s*java_library\\(\n?\\s*name\\s*=\\s*\"(.*)\",", Pattern.MULTILINE);
     private static final String FORMATTED_TIMESTAMP = "yyyy-MM-dd_HH-mm-ss";
     private static final DateTimeFormatter FORMATTED_PATTERN = DateTimeFormatter.ofPattern(FORMATTED_TIMESTAMP);
+    // lookup table of sanitize() for the ASCII range
+    private static final boolean[] IDENTIFIER_PART_ASCII = new boolean[128];
+
+    static {
+        for (char c = 0; c < IDENTIFIER_PART_ASCII.length; c++) {
+            IDENTIFIER_PART_ASCII[c] = Character.isJavaIdentifierPart(c);
+        }
+    }
 
 
     /**
@@ -54,6 +69,12 @@ public class Common {
         private String dir;
         private String jar;
 
+        public static final String JSON_NAME = "name";
+        public static final String JSON_LABEL = "label";
+        public static final String JSON_SOURCES = "sources";
+        public static final String JSON_DIR = "dir";
+        public static final String JSON_JAR = "jar";
+
         public Dependency(String name, String label, String[] sources) {
             this.name = name;
             this.label = label;
@@ -89,6 +110,57 @@ public class Common {
         public String getJar() {
             return this.jar;
         }
+
+        public void writeJson(JsonWriter writer) throws IOException {
+            writer.beginObject()
+                  .name(JSON_NAME).value(this.name)
+                  .name(JSON_LABEL).value(this.label)
+                  .name(JSON_SOURCES).value(this.sources)
+                  .name(JSON_DIR).value(this.dir)
+                  .name(JSON_JAR).value(this.jar)
+                  .endObject();
+        }
+
+        /**
+         * Read an object written by {@link #writeJson(JsonWriter)}, unknown keys are skipped
+         */
+        public static Dependency readJson(JsonReader reader) throws IOException {
+            String name = null;
+            String label = null;
+            List<String> sources = new ArrayList<>();
+            String dir = "";
+            String jar = null;
+
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case JSON_NAME: name = reader.nextString(); break;
+                    case JSON_LABEL: label = reader.nextString(); break;
+                    case JSON_DIR: dir = reader.nextString(); break;
+                    case JSON_JAR: jar = reader.nextString(); break;
+                    case JSON_SOURCES:
+                        reader.beginArray();
+
+                        while (reader.hasNext()) {
+                            sources.add(reader.nextString());
+                        }
+
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+
+            if (name == null || label == null) {
+                throw new IOException("library without name or label");
+            }
+
+            return new Dependency(name, label, sources.toArray(new String[0]), dir == null ? "" : dir, jar);
+        }
     }
 
     /**
@@ -115,6 +187,11 @@ public class Common {
                 return "server.template";
             }
         },
+        TEMPLATE_EXPORTS {
+            public String toString() {
+                return "exports.template";
+            }
+        },
         BUILD_PREPEND {
             public String toString() {
                 return "bzl-build-prepend.txt";
@@ -156,6 +233,7 @@ public class Common {
                 return "WORKSPACE";
             }
         },
+        // module, dependency and server files: written by earlier versions, now records of the intermediate store
         JSON_MODULE(false) {
             public String toString() {
                 return "tmp-bzl-module.json";
@@ -166,6 +244,12 @@ public class Common {
                 return "tmp-bzl-meta.json";
             }
         },
+        // sorted index of the meta data, memory-mapped by queryLibrary
+        META_INDEX(false) {
+            public String toString() {
+                return "tmp-bzl-meta.idx";
+            }
+        },
         JSON_DEPENDENCY(false) {
             public String toString() {
                 return "tmp-bzl-dependency.json";
@@ -175,6 +259,27 @@ public class Common {
             public String toString() {
                 return "tmp-bzl-server.json";
             }
+        },
+        MAVEN_INSTALL_JSON(true) {
+            public String toString() {
+                return "maven_install.json";
+            }
+        },
+        JSON_MODULE_GRAPH(false) {
+            public String toString() {
+                return "tmp-bzl-module-graph.json";
+            }
+        },
+        DOT_MODULE_GRAPH(false) {
+            public String toString() {
+                return "tmp-bzl-module-graph.dot";
+            }
+        },
+        // prefix of the segments and the lock file
+        STORE(false) {
+            public String toString() {
+                return "tmp-bzl-store";
+            }
         };
 
         private final boolean isBazelFile;
@@ -189,6 +294,297 @@ public class Common {
     }
 
 
+    /**
+     * WORKSPACE output formats
+     */
+    public enum WORKSPACE_FORMAT {
+        MAVEN_JAR {
+            public String toString() {
+                return "maven_jar";
+            }
+        },
+        JVM_IMPORT {
+            public String toString() {
+                return "jvm_import";
+            }
+        },
+        LOCAL {
+            public String toString() {
+                return "local";
+            }
+        },
+        MAVEN_INSTALL {
+            public String toString() {
+                return "maven_install";
+            }
+        };
+
+        public static WORKSPACE_FORMAT of(String format) throws MojoExecutionException {
+            if (format == null || format.isEmpty()) {
+                return MAVEN_JAR;
+            }
+
+            for (WORKSPACE_FORMAT value : values()) {
+                if (value.toString().equals(format)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown workspace format: " + format
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
+    /**
+     * Strategies to pick one version per "groupId:artifactId" for the WORKSPACE
+     */
+    public enum MEDIATION {
+        NEAREST {
+            public String toString() {
+                return "nearest";
+            }
+        },
+        HIGHEST {
+            public String toString() {
+                return "highest";
+            }
+        },
+        BOM {
+            public String toString() {
+                return "bom";
+            }
+        };
+
+        public static MEDIATION of(String mediation) throws MojoExecutionException {
+            if (mediation == null || mediation.isEmpty()) {
+                return NEAREST;
+            }
+
+            for (MEDIATION value : values()) {
+                if (value.toString().equals(mediation)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown mediation strategy: " + mediation
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
+    /**
+     * Dependencies listed by the generated libraries
+     */
+    public enum DEPS_MODE {
+        TRANSITIVE {
+            public String toString() {
+                return "transitive";
+            }
+        },
+        DIRECT {
+            public String toString() {
+                return "direct";
+            }
+        };
+
+        public static DEPS_MODE of(String depsMode) throws MojoExecutionException {
+            if (depsMode == null || depsMode.isEmpty()) {
+                return TRANSITIVE;
+            }
+
+            for (DEPS_MODE value : values()) {
+                if (value.toString().equals(depsMode)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown dependency mode: " + depsMode
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
+    /**
+     * License types of the "licenses" attribute of the imported JARs
+     */
+    public enum LICENSE {
+        RESTRICTED {
+            public String toString() {
+                return "restricted";
+            }
+        },
+        RECIPROCAL {
+            public String toString() {
+                return "reciprocal";
+            }
+        },
+        NOTICE {
+            public String toString() {
+                return "notice";
+            }
+        },
+        PERMISSIVE {
+            public String toString() {
+                return "permissive";
+            }
+        },
+        UNENCUMBERED {
+            public String toString() {
+                return "unencumbered";
+            }
+        },
+        BY_EXCEPTION_ONLY {
+            public String toString() {
+                return "by_exception_only";
+            }
+        };
+
+        /**
+         * Comma separated license types, notice if empty
+         */
+        public static List<LICENSE> of(String licenses) throws MojoExecutionException {
+            List<LICENSE> list = new ArrayList<>();
+
+            if (licenses != null) {
+                for (String license : licenses.split(",")) {
+                    String trimmed = license.trim();
+
+                    if (trimmed.isEmpty()) {
+                        continue;
+                    }
+
+                    LICENSE found = null;
+
+                    for (LICENSE value : values()) {
+                        if (value.toString().equals(trimmed)) {
+                            found = value;
+                        }
+                    }
+
+                    if (found == null) {
+                        throw new MojoExecutionException("Unknown license type: " + trimmed
+                                                         + ", expected one of: " + Arrays.toString(values()));
+                    } else if (!list.contains(found)) {
+                        list.add(found);
+                    }
+                }
+            }
+
+            if (list.isEmpty()) {
+                list.add(NOTICE);
+            }
+
+            return list;
+        }
+    }
+
+
+    /**
+     * Handling of the dependencies not referenced by the compiled classes of a module
+     * <br>
+     * A dependency of a referenced JAR is never a candidate, it may provide a supertype of a referenced type, which
+     * javac needs although the compiled classes do not name it. The others are moved to "runtime_deps" rather than
+     * removed, since they may still be loaded by reflection.
+     */
+    public enum PRUNE {
+        NONE {
+            public String toString() {
+                return "none";
+            }
+        },
+        RUNTIME {
+            public String toString() {
+                return "runtime";
+            }
+        };
+
+        public static PRUNE of(String prune) throws MojoExecutionException {
+            if (prune == null || prune.isEmpty()) {
+                return NONE;
+            }
+
+            for (PRUNE value : values()) {
+                if (value.toString().equals(prune)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown pruning of unused dependencies: " + prune
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
+    /**
+     * Granularity of the generated libraries
+     */
+    public enum GRANULARITY {
+        MODULE {
+            public String toString() {
+                return "module";
+            }
+        },
+        PACKAGE {
+            public String toString() {
+                return "package";
+            }
+        },
+        PARTITION {
+            public String toString() {
+                return "partition";
+            }
+        };
+
+        public static GRANULARITY of(String granularity) throws MojoExecutionException {
+            if (granularity == null || granularity.isEmpty()) {
+                return MODULE;
+            }
+
+            for (GRANULARITY value : values()) {
+                if (value.toString().equals(granularity)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown granularity: " + granularity
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
+    /**
+     * Cost of a target in the analysis of the graph
+     */
+    public enum COST {
+        FILES {
+            public String toString() {
+                return "files";
+            }
+        },
+        BYTES {
+            public String toString() {
+                return "bytes";
+            }
+        };
+
+        public static COST of(String cost) throws MojoExecutionException {
+            if (cost == null || cost.isEmpty()) {
+                return FILES;
+            }
+
+            for (COST value : values()) {
+                if (value.toString().equals(cost)) {
+                    return value;
+                }
+            }
+
+            throw new MojoExecutionException("Unknown cost: " + cost
+                                             + ", expected one of: " + Arrays.toString(values()));
+        }
+    }
+
+
     private Common() {
         // no instance required, use static factory methods
     }
@@ -218,8 +614,28 @@ public class Common {
         return DIR_CURRENT;
     }
 
-    public static Pattern getPatternSettingsJar() {
-        return PATTERN_SETTINGS_JAR;
+    public static String getDirCache() {
+        return DIR_CACHE;
+    }
+
+    public static String getPkgExports() {
+        return PKG_EXPORTS;
+    }
+
+    public static String getFileJarIndex() {
+        return FILE_JAR_INDEX;
+    }
+
+    public static String getSuffixTestDeps() {
+        return SUFFIX_TEST_DEPS;
+    }
+
+    public static String getSuffixProvidedDeps() {
+        return SUFFIX_PROVIDED_DEPS;
+    }
+
+    public static String getFileHashCache() {
+        return FILE_HASH_CACHE;
     }
 
     public static Pattern getPatternBazelLib() {
@@ -237,8 +653,66 @@ public class Common {
         return s.substring(0, s.length() - n);
     }
 
+    /**
+     * A view without the last n chars, nothing is copied
+     */
+    public static CharSequence withoutLastChars(CharSequence s, int n) {
+        return CharBuffer.wrap(s, 0, Math.max(s.length() - n, 0));
+    }
+
     public static String sanitize(CharSequence input) {
-        return CharMatcher.forPredicate(Character::isJavaIdentifierPart).negate().replaceFrom(input, getSepSanitize());
+        int length = input.length();
+        int i = 0;
+
+        while (i < length && isIdentifierPart(input.charAt(i))) {
+            i++;
+        }
+
+        // nothing to replace, a string is returned as is
+        if (i == length) {
+            return input.toString();
+        }
+
+        char[] chars = new char[length];
+
+        for (int j = 0; j < length; j++) {
+            char c = input.charAt(j);
+            chars[j] = (j < i || isIdentifierPart(c)) ? c : SEP_SANITIZE;
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Same as sanitizing "groupId_artifactId_version", without concatenating it first - versionless if version is null
+     */
+    public static String sanitize(String groupId, String artifactId, String version) {
+        int length = groupId.length() + 1 + artifactId.length() + (version == null ? 0 : 1 + version.length());
+        char[] chars = new char[length];
+        int pos = sanitizeInto(groupId, chars, 0);
+
+        chars[pos++] = SEP_SANITIZE;
+        pos = sanitizeInto(artifactId, chars, pos);
+
+        if (version != null) {
+            chars[pos++] = SEP_SANITIZE;
+            sanitizeInto(version, chars, pos);
+        }
+
+        return new String(chars);
+    }
+
+    private static int sanitizeInto(String s, char[] chars, int pos) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            chars[pos++] = isIdentifierPart(c) ? c : SEP_SANITIZE;
+        }
+
+        return pos;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c < 128 ? IDENTIFIER_PART_ASCII[c] : Character.isJavaIdentifierPart(c);
     }
 
     public static String getFormattedTimestamp(LocalDateTime dateTime) {
@@ -383,6 +857,12 @@ public class Common {
 
     public static Dependency queryLibrary(String key) {
         if (MAP_META_DEPENDENCY == null) {
+            MetaIndex metaIndex = getMetaIndex();
+
+            if (metaIndex != null) {
+                return metaIndex.get(key);
+            }
+
             try {
                 jsonToMap();
             } catch (IOException e) {
@@ -397,36 +877,56 @@ public class Common {
         }
     }
 
-    public static String getTemplateLibrary() {
-        if (!TEMPLATE_LIBRARY.isPresent()) {
-            TEMPLATE_LIBRARY = readTemplate(INPUT_FILES.TEMPLATE_LIBRARY);
+    public static Collection<Dependency> queryLibraries() {
+        if (MAP_META_DEPENDENCY == null) {
+            try {
+                jsonToMap();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return Collections.unmodifiableCollection(MAP_META_DEPENDENCY.values());
+    }
+
+    public static Template getTemplateLibrary() {
+        if (TEMPLATE_LIBRARY == null) {
+            TEMPLATE_LIBRARY = Template.compile(readTemplate(INPUT_FILES.TEMPLATE_LIBRARY).orElse(""));
         }
 
-        return TEMPLATE_LIBRARY.orElse("");
+        return TEMPLATE_LIBRARY;
     }
 
-    public static String getTemplateBinary() {
-        if (!TEMPLATE_BINARY.isPresent()) {
-            TEMPLATE_BINARY = readTemplate(INPUT_FILES.TEMPLATE_BINARY);
+    public static Template getTemplateBinary() {
+        if (TEMPLATE_BINARY == null) {
+            TEMPLATE_BINARY = Template.compile(readTemplate(INPUT_FILES.TEMPLATE_BINARY).orElse(""));
         }
 
-        return TEMPLATE_BINARY.orElse("");
+        return TEMPLATE_BINARY;
     }
 
-    public static String getTemplateTest() {
-        if (!TEMPLATE_TEST.isPresent()) {
-            TEMPLATE_TEST = readTemplate(INPUT_FILES.TEMPLATE_TEST);
+    public static Template getTemplateTest() {
+        if (TEMPLATE_TEST == null) {
+            TEMPLATE_TEST = Template.compile(readTemplate(INPUT_FILES.TEMPLATE_TEST).orElse(""));
         }
 
-        return TEMPLATE_TEST.orElse("");
+        return TEMPLATE_TEST;
     }
 
-    public static String getTemplateServer() {
-        if (!TEMPLATE_SERVER.isPresent()) {
-            TEMPLATE_SERVER = readTemplate(INPUT_FILES.TEMPLATE_SERVER);
+    public static Template getTemplateServer() {
+        if (TEMPLATE_SERVER == null) {
+            TEMPLATE_SERVER = Template.compile(readTemplate(INPUT_FILES.TEMPLATE_SERVER).orElse(""));
         }
 
-        return TEMPLATE_SERVER.orElse("");
+        return TEMPLATE_SERVER;
+    }
+
+    public static Template getTemplateExports() {
+        if (TEMPLATE_EXPORTS == null) {
+            TEMPLATE_EXPORTS = Template.compile(readTemplate(INPUT_FILES.TEMPLATE_EXPORTS).orElse(""));
+        }
+
+        return TEMPLATE_EXPORTS;
     }
 
     public static void setBlackListPattern(String blackListPattern) {
@@ -481,6 +981,28 @@ public class Common {
         return res.orElse("");
     }
 
+    /**
+     * The index written next to the meta data, null if missing, out of date or the meta data is a resource
+     */
+    private static synchronized MetaIndex getMetaIndex() {
+        if (!META_INDEX_OPENED) {
+            META_INDEX_OPENED = true;
+
+            if (getProjectData("baseDir") != null) {
+                Path dir = Paths.get(getProjectData("baseDir"));
+
+                try {
+                    META_INDEX = MetaIndex.open(dir.resolve(OUTPUT_FILES.META_INDEX.toString()),
+                                                dir.resolve(OUTPUT_FILES.JSON_META.toString()));
+                } catch (IOException e) {
+                    System.err.println("[WARNING] meta index ignored: " + e.getMessage() + "\n");
+                }
+            }
+        }
+
+        return META_INDEX;
+    }
+
     private static void jsonToMap() throws IOException {
         String filenameMeta = OUTPUT_FILES.JSON_META.toString();
         String stringMeta = "";
@@ -506,29 +1028,20 @@ public class Common {
             e2.printStackTrace();
         }
 
-        JSONArray jsonArray = new JSONArray(stringMeta);
         MAP_META_DEPENDENCY = new HashMap<>();
 
-        String keyName = "name";
-        String keyLabel = "label";
-        String keySources = "sources";
+        try (
+            JsonReader reader = new JsonReader(new StringReader(stringMeta));
+        ) {
+            reader.beginArray();
 
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject item = jsonArray.getJSONObject(i);
+            while (reader.hasNext()) {
+                Dependency dep = Dependency.readJson(reader);
 
-            List<String> sourcesList = new ArrayList<>();
-            JSONArray sourcesArray = item.getJSONArray(keySources);
-            for (int j = 0; j < sourcesArray.length(); j++) {
-                sourcesList.add(sourcesArray.getString(j));
+                MAP_META_DEPENDENCY.put(dep.getName(), dep);
             }
 
-            String[] sources = new String[sourcesList.size()];
-            sources = sourcesList.toArray(sources);
-
-            String name = item.getString(keyName);
-            Dependency dep = new Dependency(name, item.getString(keyLabel), sources);
-
-            MAP_META_DEPENDENCY.put(name, dep);
+            reader.endArray();
         }
     }
 
@@ -590,16 +1103,214 @@ public class Common {
         saveMeta.execute();
     }
 
-    public static void generateWorkspace(Log log, String baseDir, String workspaceName, String suffix)
+    public static void generateWorkspace(Log log,
+                                         String baseDir,
+                                         String workspaceName,
+                                         String workspaceFormat,
+                                         String localRepo,
+                                         String mediation,
+                                         String bomFile,
+                                         String depsMode,
+                                         String licenses,
+                                         String suffix)
         throws MojoExecutionException {
+        WORKSPACE_FORMAT format = WORKSPACE_FORMAT.of(workspaceFormat);
+        VersionMediation versionMediation = new VersionMediation(log,
+                                                                 MEDIATION.of(mediation),
+                                                                 (bomFile == null || bomFile.isEmpty()) ? null : Paths.get(bomFile));
+
         if (suffix != null) {
             renameFileIfExists(baseDir + File.separator + OUTPUT_FILES.WORKSPACE, suffix);
+
+            if (format == WORKSPACE_FORMAT.MAVEN_INSTALL) {
+                renameFileIfExists(baseDir + File.separator + OUTPUT_FILES.MAVEN_INSTALL_JSON, suffix);
+            }
         }
 
-        SaveWorkspace saveWorkspace = new SaveWorkspace(log, baseDir, workspaceName);
+        SaveWorkspace saveWorkspace = new SaveWorkspace(log,
+                                                        baseDir,
+                                                        workspaceName,
+                                                        format,
+                                                        localRepo,
+                                                        versionMediation,
+                                                        DEPS_MODE.of(depsMode),
+                                                        LICENSE.of(licenses));
         saveWorkspace.execute();
     }
 
+    private static ModuleGraph readModuleGraph(Path root) throws MojoExecutionException {
+        try {
+            return ModuleGraph.read(root);
+        } catch (IOException | UncheckedIOException e) {
+            throw new MojoExecutionException("module graph could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Export the module graph as JSON and DOT, fail on the first cycle since Bazel would reject it
+     */
+    public static void generateModuleGraph(Log log, String baseDir)
+        throws MojoExecutionException {
+        Path root = Paths.get(baseDir).normalize().toAbsolutePath();
+        long start = System.nanoTime();
+
+        // the meta data of the root, unless already read by the build goal
+        if (getProjectData("baseDir") == null) {
+            setProjectData("baseDir", root.toString());
+        }
+
+        ModuleGraph moduleGraph = readModuleGraph(root);
+        List<List<String>> cycles = moduleGraph.findCycles();
+
+        try {
+            Path fileJson = root.resolve(OUTPUT_FILES.JSON_MODULE_GRAPH.toString());
+            Path fileDot = root.resolve(OUTPUT_FILES.DOT_MODULE_GRAPH.toString());
+
+            java.nio.file.Files.write(fileJson, moduleGraph.outputAsJson().getBytes(StandardCharsets.UTF_8));
+            java.nio.file.Files.write(fileDot, moduleGraph.outputAsDot().getBytes(StandardCharsets.UTF_8));
+
+            log.info("module graph " + moduleGraph.done() + "\n"
+                     + INDENT_1 + "time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            log.info("output:\n" + INDENT_1 + fileJson + "\n"
+                                  + INDENT_1 + fileDot);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+
+        if (!cycles.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+
+            for (List<String> cycle : cycles) {
+                sb.append("\n");
+                sb.append(INDENT_1);
+                sb.append(ModuleGraph.outputAsCycle(cycle));
+            }
+
+            throw new MojoExecutionException(cycles.size() + " module dependency cycles, rejected by Bazel:" + sb);
+        }
+    }
+
+    /**
+     * Report the critical path and the parallelism of the generated libraries, weighted by their sources
+     * <br>
+     * In the module granularity a node is a module. Otherwise the packages of each module are grouped as by the
+     * <strong>build</strong> goal, and a node is a package or partition library. A module is then an aggregate
+     * without sources, and each of its libraries depends on the aggregates of the modules it depends on.
+     */
+    public static void analyzeGraph(Log log, String baseDir, String cost, String granularity, int partitionSize, int cores, int top)
+        throws MojoExecutionException {
+        Path root = Paths.get(baseDir).normalize().toAbsolutePath();
+        COST metric = COST.of(cost);
+        GRANULARITY grain = GRANULARITY.of(granularity);
+        long start = System.nanoTime();
+
+        if (getProjectData("baseDir") == null) {
+            setProjectData("baseDir", root.toString());
+        }
+
+        ModuleGraph moduleGraph = readModuleGraph(root);
+        List<List<String>> cycles = moduleGraph.findCycles();
+
+        if (!cycles.isEmpty()) {
+            throw new MojoExecutionException("cyclic module graph, no critical path: "
+                                             + ModuleGraph.outputAsCycle(cycles.get(0)));
+        }
+
+        DependencyGraph<String> modules = moduleGraph.getGraph();
+        DependencyGraph<String> graph = grain == GRANULARITY.MODULE ? modules : new DependencyGraph<>();
+        Map<String, Long> costByName = new HashMap<>();
+
+        for (int i = 0; i < modules.size(); i++) {
+            String name = modules.getNode(i);
+            Dependency library = queryLibrary(name);
+            Path dir = root.resolve(library.getDir() == null ? "" : library.getDir());
+
+            if (grain == GRANULARITY.MODULE) {
+                costByName.put(name, sourceCost(log, dir, library.getSources(), metric));
+                continue;
+            }
+
+            PackageGraph packageGraph;
+
+            try {
+                packageGraph = PackageGraph.scan(dir, library.getSources());
+            } catch (IOException e) {
+                log.warn("no package graph, analyzed as one library: " + name + " -- " + e.getMessage());
+                packageGraph = null;
+            }
+
+            graph.addNode(name);
+
+            if (packageGraph == null || packageGraph.getGraph().size() == 0) {
+                costByName.put(name, sourceCost(log, dir, library.getSources(), metric));
+
+                for (int j : modules.getEdges(i)) {
+                    graph.addEdge(name, modules.getNode(j));
+                }
+
+                continue;
+            }
+
+            if (grain == GRANULARITY.PARTITION) {
+                packageGraph.partition(partitionSize);
+            }
+
+            List<SortedSet<String>> targets = packageGraph.getTargets();
+
+            costByName.put(name, 0L);
+
+            for (int t = 0; t < targets.size(); t++) {
+                String target = PackageGraph.getTargetName(name, targets.get(t));
+
+                graph.addEdge(name, target);
+                costByName.put(target, sourceCost(log, dir, packageGraph.getSources(targets.get(t)), metric));
+
+                for (int d : packageGraph.getTargetDeps(t)) {
+                    graph.addEdge(target, PackageGraph.getTargetName(name, targets.get(d)));
+                }
+
+                for (int j : modules.getEdges(i)) {
+                    graph.addEdge(target, modules.getNode(j));
+                }
+            }
+        }
+
+        long[] costs = new long[graph.size()];
+
+        for (int i = 0; i < graph.size(); i++) {
+            costs[i] = costByName.getOrDefault(graph.getNode(i), 0L);
+        }
+
+        GraphAnalysis analysis = new GraphAnalysis(graph, costs);
+
+        log.info("cost: " + metric + ", granularity: " + grain);
+        log.info("analysis " + analysis.report(cores, top) + "\n"
+                 + INDENT_1 + "time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Number or size of the ".java" files matched by the source globs
+     */
+    private static long sourceCost(Log log, Path dir, String[] globs, COST metric) {
+        long cost = 0;
+
+        for (String glob : globs) {
+            Path dirSource = dir.resolve(glob).getParent();
+
+            try (
+                DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(dirSource, "*.java");
+            ) {
+                for (Path file : stream) {
+                    cost += metric == COST.BYTES ? java.nio.file.Files.size(file) : 1;
+                }
+            } catch (IOException e) {
+                log.warn("no sources: " + dirSource);
+            }
+        }
+
+        return cost;
+    }
+
     public static void generateBinary(Log log, String baseDir, String mainClass, String binName, String suffix)
         throws MojoExecutionException {
         if (suffix != null) {
@@ -620,6 +1331,28 @@ public class Common {
         saveTest.execute();
     }
 
+    public static void seedCache(Log log, String baseDir, Path localRepo, Path repositoryCache, Path pathHashCache) {
+        Path root = Paths.get(baseDir).normalize().toAbsolutePath();
+        HashCache hashCache = HashCache.getInstance(pathHashCache);
+
+        try (
+            IntermediateStore.Index index = IntermediateStore.open(root);
+        ) {
+            SeedCache seedCache = new SeedCache(log,
+                                                localRepo,
+                                                repositoryCache,
+                                                hashCache);
+
+            seedCache.collect(index);
+            seedCache.seed();
+            seedCache.done();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+
+        HashCache.closeInstance(log);
+    }
+
     public static String getGlobSources(String[] sources) {
         StringBuilder sb = new StringBuilder();
         List<String> src = Arrays.asList(sources);
@@ -85,7 +85,7 @@ public class CreateBinary extends SimpleFileVisitor<Path> {
         if (numBuildMatches == 0) {
             log.warn("no BUILD files found\n");
         } else {
-            String contentBinary = Common.getTemplateBinary();
+            Template contentBinary = Common.getTemplateBinary();
             StringBuilder sb = new StringBuilder();
 
             for (String libName : listLibName) {
@@ -101,12 +101,10 @@ public class CreateBinary extends SimpleFileVisitor<Path> {
             ) {
                 try {
                     buildWriter.append("\n");
-                    buildWriter.append(contentBinary.replaceFirst("#BIN_NAME#",
-                                                                  Common.sanitize(this.binName))
-                                                    .replaceFirst("#RUNTIME_DEPS#",
-                                                                  Common.removeLastChars(sb.toString(), 1))
-                                                    .replaceFirst("#MAIN_CLASS#",
-                                                                  this.mainClass));
+                    contentBinary.with("BIN_NAME", Common.sanitize(this.binName))
+                                 .with("RUNTIME_DEPS", Common.withoutLastChars(sb, 1))
+                                 .with("MAIN_CLASS", this.mainClass)
+                                 .renderTo(buildWriter);
                 } catch (IOException e) {
                     log.error(e.getMessage());
                 }
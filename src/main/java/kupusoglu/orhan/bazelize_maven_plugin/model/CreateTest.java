@@ -27,6 +27,7 @@ public class CreateTest extends SimpleFileVisitor<Path> {
     private Path fileBuildPath;
 
     private String libName;
+    private boolean hasTestDeps = false;
     private int numJavaTestMatches = 0;
 
 
@@ -48,6 +49,7 @@ public class CreateTest extends SimpleFileVisitor<Path> {
 
         if (regexMatcher.find()) {
             this.libName = regexMatcher.group(1);
+            this.hasTestDeps = data.contains("name = \"" + this.libName + Common.getSuffixTestDeps() + "\"");
             log.info("found Java library: " + libName + " -- " + absolutePath);
         } else {
             log.warn("Java library not found -- " + absolutePath);
@@ -87,7 +89,7 @@ public class CreateTest extends SimpleFileVisitor<Path> {
     }
 
     public void addTest(String nameCanonical, String srcTestFile) {
-        String contentTest = Common.getTemplateTest();
+        Template contentTest = Common.getTemplateTest();
         String resFiles= Common.getResources(resTest);
         StringBuilder sb = new StringBuilder();
 
@@ -96,6 +98,16 @@ public class CreateTest extends SimpleFileVisitor<Path> {
         sb.append(this.libName);
         sb.append("\",");
 
+        // test and provided scoped dependencies, see the build goal's splitScopes
+        if (hasTestDeps) {
+            sb.append("\n");
+            sb.append(Common.getIndentTwo());
+            sb.append("\":");
+            sb.append(this.libName);
+            sb.append(Common.getSuffixTestDeps());
+            sb.append("\",");
+        }
+
         String depLibName = sb.toString();
 
         // append the rule
@@ -104,17 +116,12 @@ public class CreateTest extends SimpleFileVisitor<Path> {
         ) {
             try {
                 buildWriter.append("\n");
-                buildWriter.append(contentTest.replaceFirst("#TEST_NAME#",
-                                                            Common.sanitize(nameCanonical))
-                                              .replaceFirst("#SRCS_GLOB#",
-                                                            srcTestFile)
-                                              .replaceFirst("#TEST_CLASS#",
-                                                            nameCanonical)
-                                              .replaceFirst("#RES_FILES#",
-                                                            resFiles)
-                                              .replaceFirst("#JAVA_DEPS#",
-                                                            depLibName));
-                ;
+                contentTest.with("TEST_NAME", Common.sanitize(nameCanonical))
+                           .with("SRCS_GLOB", srcTestFile)
+                           .with("TEST_CLASS", nameCanonical)
+                           .with("RES_FILES", resFiles)
+                           .with("JAVA_DEPS", depLibName)
+                           .renderTo(buildWriter);
             } catch (IOException e) {
                 log.error(e.getMessage());
             }
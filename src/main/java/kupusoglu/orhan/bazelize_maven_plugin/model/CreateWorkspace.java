@@ -1,33 +1,44 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
- * A {@code FileVisitor} to generate the <strong>Bazel WORKSPACE</strong> script
+ * Generate the <strong>Bazel WORKSPACE</strong> script from the records of the {@link IntermediateStore}
  * <br>
  * @see <a href="https://docs.bazel.build/versions/master/be/workspace.html">Bazel WORKSPACE</a>
- * @see <a href="https://docs.oracle.com/javase/tutorial/essential/io/walk.html">Walking the File Tree</a>
- * @see <a href="https://docs.oracle.com/javase/tutorial/essential/io/examples/Find.java">Find.java</a>
  */
-public class CreateWorkspace extends SimpleFileVisitor<Path> {
+public class CreateWorkspace {
     private Log log;
     private Path root;
     private String bzlWorkspaceName;
-    private PathMatcher matcherDependency;
-    private PathMatcher matcherServer;
+    private Common.WORKSPACE_FORMAT format;
+    private Path localRepo;
+    private VersionMediation mediation;
+    private Common.DEPS_MODE depsMode;
+    private List<Common.LICENSE> licenses;
 
     private File workspace;
     private String workspacePrepend;
@@ -37,27 +48,23 @@ public class CreateWorkspace extends SimpleFileVisitor<Path> {
     private StringBuilder sbServer = new StringBuilder();
     private int numDepMatches = 0;
     private int numSrvMatches = 0;
+    private GavTable tableDependency = new GavTable();
     private TreeMap<String, MavenDependency> mapDependency = new TreeMap<>();
     private TreeMap<String, MavenServer> mapServer = new TreeMap<>();
+    private Set<Path> dirModules = new TreeSet<>();
+    private List<String> keysDependency = new ArrayList<>();
+    private List<String> keysServer = new ArrayList<>();
 
-    private static final String KEY_DEP_NAME = "name";
-    private static final String KEY_GROUP_ID = "groupId";
-    private static final String KEY_ARTIFACT_ID = "artifactId";
-    private static final String KEY_VERSION = "version";
-    private static final String KEY_SCOPE = "scope";
-    private static final String KEY_HASH = "hash";
-    private static final String KEY_SERVER = "server";
-    private static final String KEY_SRV_NAME = "name";
-    private static final String KEY_URL = "url";
-    private static final String KEY_SETTINGS_FILE = "settingsFile";
 
-
-    public CreateWorkspace(Log log, Path root, String bzlWorkspaceName, String fileJar, String fileServer) {
+    public CreateWorkspace(Log log, Path root, String bzlWorkspaceName, Common.WORKSPACE_FORMAT format, Path localRepo, VersionMediation mediation, Common.DEPS_MODE depsMode, List<Common.LICENSE> licenses) {
         this.log = log;
         this.root = root;
         this.bzlWorkspaceName = bzlWorkspaceName;
-        this.matcherDependency = FileSystems.getDefault().getPathMatcher("glob:" + fileJar);
-        this.matcherServer = FileSystems.getDefault().getPathMatcher("glob:" + fileServer);
+        this.format = format;
+        this.localRepo = localRepo;
+        this.mediation = mediation;
+        this.depsMode = depsMode;
+        this.licenses = licenses;
 
         String pathBase = this.root + File.separator;
 
@@ -72,93 +79,412 @@ public class CreateWorkspace extends SimpleFileVisitor<Path> {
         }
     }
 
-    public void collect(Path file) {
-        Path name = file.getFileName();
+    /**
+     * Look up the records saved by the <strong>build</strong> goal, then parse them
+     */
+    public void collect(IntermediateStore.Index index) throws MojoExecutionException {
+        for (String key : index.getKeys(IntermediateStore.KIND.DEPENDENCY)) {
+            numDepMatches++;
+
+            log.info("found DEPENDENCY: " + root.resolve(key));
+
+            keysDependency.add(key);
+            dirModules.add(root.resolve(key).normalize());
+        }
+
+        for (String key : index.getKeys(IntermediateStore.KIND.SERVER)) {
+            numSrvMatches++;
+
+            log.info("found SERVER: " + root.resolve(key));
+
+            keysServer.add(key);
+        }
 
-        if (name != null) {
-            if (matcherDependency.matches(name)) {
-                numDepMatches++;
+        merge(index);
+    }
 
-                Path absolutePath = file.toAbsolutePath().normalize();
+    /**
+     * The records parsed by one thread
+     */
+    private static class Partial {
+        private final GavTable table = new GavTable();
+        private final Map<String, MavenServer> servers = new HashMap<>();
+        private final Map<String, Integer> ranks = new HashMap<>();
+        private final List<Exception> failures = new ArrayList<>();
+    }
 
-                log.info("found DEPENDENCY: " + absolutePath);
+    /**
+     * Parse the collected records in parallel, one partial table per thread, then merge the partial tables
+     * <br>
+     * Records are ranked by their keys and the entry of the lowest rank wins, so the result does not depend on the threads.
+     * A record which cannot be parsed does not stop the others: every partial table is merged, then the failures
+     * are reported together.
+     */
+    private void merge(IntermediateStore.Index index) throws MojoExecutionException {
+        List<String> keys = new ArrayList<>(keysDependency);
+        int numDependency = keys.size();
+
+        keys.addAll(keysServer);
+
+        int numThreads = Math.max(1, Math.min(keys.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Partial>> futures = new ArrayList<>();
+
+        for (int t = 0; t < numThreads; t++) {
+            futures.add(executor.submit(() -> {
+                Partial partial = new Partial();
+
+                for (int i = next.getAndIncrement(); i < keys.size(); i = next.getAndIncrement()) {
+                    String key = keys.get(i);
+
+                    try {
+                        if (i < numDependency) {
+                            try (
+                                JsonReader reader = index.reader(IntermediateStore.KIND.DEPENDENCY, key);
+                            ) {
+                                readDependencies(reader, partial.table, i);
+                            }
+                        } else {
+                            try (
+                                JsonReader reader = index.reader(IntermediateStore.KIND.SERVER, key);
+                            ) {
+                                readServers(reader, partial.servers, partial.ranks, i);
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // a malformed record, e.g. a name or a value of an unexpected type
+                        partial.failures.add(new IOException(root.resolve(key) + " - " + e.getMessage(), e));
+                    }
+                }
+
+                return partial;
+            }));
+        }
 
-                processDependency(absolutePath);
-            } else if (matcherServer.matches(name)) {
-                numSrvMatches++;
+        executor.shutdown();
 
-                Path absolutePath = file.toAbsolutePath().normalize();
+        Map<String, Integer> ranks = new HashMap<>();
+        List<Exception> failures = new ArrayList<>();
 
-                log.info("found SERVER: " + absolutePath);
+        for (Future<Partial> future : futures) {
+            Partial partial;
 
-                processServer(absolutePath);
+            try {
+                partial = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+                break;
+            } catch (ExecutionException e) {
+                failures.add(e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+                continue;
             }
+
+            tableDependency.merge(partial.table);
+
+            for (Map.Entry<String, MavenServer> me : partial.servers.entrySet()) {
+                int rank = partial.ranks.get(me.getKey());
+
+                if (rank < ranks.getOrDefault(me.getKey(), Integer.MAX_VALUE)) {
+                    ranks.put(me.getKey(), rank);
+                    mapServer.put(me.getKey(), me.getValue());
+                }
+            }
+
+            failures.addAll(partial.failures);
+        }
+
+        if (!failures.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+
+            for (Exception failure : failures) {
+                sb.append("\n");
+                sb.append(Common.getIndentOne());
+                sb.append(failure.getMessage());
+            }
+
+            MojoExecutionException aggregated = new MojoExecutionException(failures.size()
+                                                                            + " records could not be parsed:"
+                                                                            + sb);
+
+            for (Exception failure : failures) {
+                aggregated.addSuppressed(failure);
+            }
+
+            throw aggregated;
         }
     }
 
-    public void processDependency(Path absolutePath) {
-        String data = Common.readTextFile(absolutePath);
+    /**
+     * Deserialize the dependencies saved by the <strong>build</strong> goal into the table
+     */
+    public static void readDependencies(JsonReader reader, GavTable table, int rank) throws IOException {
+        List<String> children = new ArrayList<>();
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            String groupId = null;
+            String artifactId = null;
+            String version = null;
+            String scope = null;
+            String hash = null;
+            String server = null;
+            String sha256 = null;
+            int depth = 0;
+
+            children.clear();
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case MavenDependency.JSON_GROUP_ID: groupId = reader.nextString(); break;
+                    case MavenDependency.JSON_ARTIFACT_ID: artifactId = reader.nextString(); break;
+                    case MavenDependency.JSON_VERSION: version = reader.nextString(); break;
+                    case MavenDependency.JSON_SCOPE: scope = reader.nextString(); break;
+                    case MavenDependency.JSON_HASH: hash = reader.nextString(); break;
+                    case MavenDependency.JSON_SERVER: server = reader.nextString(); break;
+                    case MavenDependency.JSON_SHA256: sha256 = reader.nextString(); break;
+                    case MavenDependency.JSON_DEPTH: depth = reader.nextInt(); break;
+                    case MavenDependency.JSON_DEPENDENCIES:
+                        reader.beginArray();
+
+                        while (reader.hasNext()) {
+                            children.add(reader.nextString());
+                        }
+
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
 
-        JSONArray jsonArray = new JSONArray(data);
+            reader.endObject();
 
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject item = jsonArray.getJSONObject(i);
+            if (groupId == null || artifactId == null || version == null) {
+                throw new IOException("dependency without coordinates");
+            }
 
-            String name = item.getString(KEY_DEP_NAME);
-            String version = item.getString(KEY_VERSION);
+            int entry = table.add(groupId, artifactId, version, scope, hash, server, sha256, depth, rank);
 
-            if (!mapDependency.containsKey(name + ":" + version)) {
-                MavenDependency dep = new MavenDependency(item.getString(KEY_GROUP_ID),
-                                                          item.getString(KEY_ARTIFACT_ID),
-                                                          version,
-                                                          item.isNull(KEY_SCOPE) ? "" : item.getString(KEY_SCOPE),
-                                                          item.isNull(KEY_HASH) ? "" : item.getString(KEY_HASH),
-                                                          item.isNull(KEY_SERVER) ? "" : item.getString(KEY_SERVER));
+            // modules see different parts of the same dependency tree
+            for (String child : children) {
+                table.addChild(entry, child);
+            }
+        }
+
+        reader.endArray();
+    }
 
-                mapDependency.put(name, dep);
+    /**
+     * Deserialize the dependencies of a module saved by the <strong>build</strong> goal, empty if there are none
+     */
+    public static List<MavenDependency> readDependencies(IntermediateStore.Index index, String key) {
+        GavTable table = new GavTable();
+
+        try (
+            JsonReader reader = index.reader(IntermediateStore.KIND.DEPENDENCY, key);
+        ) {
+            if (reader != null) {
+                readDependencies(reader, table, 0);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(key, e);
         }
+
+        return table.toDependencies();
     }
 
-    public void processServer(Path absolutePath) {
-        String data = Common.readTextFile(absolutePath);
+    /**
+     * Deserialize the servers saved by the <strong>build</strong> goal, the first one of a name is kept
+     */
+    public static void readServers(JsonReader reader, Map<String, MavenServer> servers, Map<String, Integer> ranks, int rank)
+        throws IOException {
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            MavenServer srv = MavenServer.readJson(reader);
+            String name = srv.getName();
+
+            if (!name.isEmpty() && rank < ranks.getOrDefault(name, Integer.MAX_VALUE)) {
+                servers.put(name, srv);
+                ranks.put(name, rank);
+            }
+        }
+
+        reader.endArray();
+    }
+
+    public void workspace() {
+        mapDependency.clear();
+
+        for (MavenDependency dep : tableDependency.toDependencies()) {
+            mapDependency.putIfAbsent(dep.getName(), dep);
+        }
 
-        JSONArray jsonArray = new JSONArray(data);
+        log.info("dependencies: " + tableDependency.getNumAdded() + " entries merged into " + tableDependency.size()
+                 + ", " + tableDependency.getNumStrings() + " distinct strings");
 
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject item = jsonArray.getJSONObject(i);
+        mediate();
 
-            String name = item.getString(KEY_SRV_NAME);
+        // maven_install targets already carry their dependencies
+        if (depsMode == Common.DEPS_MODE.DIRECT && format != Common.WORKSPACE_FORMAT.MAVEN_INSTALL) {
+            exports();
+        }
 
-            if (!mapServer.containsKey(name)) {
-                MavenServer server = new MavenServer(name,
-                                                     item.getString(KEY_URL),
-                                                     item.getString(KEY_SETTINGS_FILE));
+        if (format == Common.WORKSPACE_FORMAT.MAVEN_INSTALL) {
+            installWorkspace();
+        } else {
+            ruleWorkspace();
+        }
+
+        write();
+    }
 
-                mapServer.put(name, server);
+    /**
+     * Keep one version per "groupId:artifactId" and point the BUILD labels of the dropped versions to the kept one
+     */
+    private void mediate() {
+        if (mediation == null) {
+            return;
+        }
+
+        SortedMap<String, MavenDependency> mediated = mediation.mediate(mapDependency.values());
+        Map<String, String> relabel = mediation.getRelabel();
+
+        mapDependency.clear();
+        mapDependency.putAll(mediated);
+
+        if (!relabel.isEmpty()) {
+            log.info("version conflicts:\n" + mediation.report());
+
+            // maven_install labels carry no version
+            if (format != Common.WORKSPACE_FORMAT.MAVEN_INSTALL) {
+                for (Path dir : dirModules) {
+                    relabelBuild(dir.resolve(Common.OUTPUT_FILES.BUILD.toString()), relabel);
+                }
             }
         }
     }
 
-    public void workspace() {
-        Set<Map.Entry<String, MavenServer>> setServer = mapServer.entrySet();
-        Iterator<Map.Entry<String, MavenServer>> iteratorServer = setServer.iterator();
+    private void relabelBuild(Path fileBuild, Map<String, String> relabel) {
+        if (!Files.isRegularFile(fileBuild)) {
+            return;
+        }
+
+        String content = Common.readTextFile(fileBuild);
+        String relabeled = content;
+
+        for (Map.Entry<String, String> me : relabel.entrySet()) {
+            relabeled = relabeled.replace("\"@" + me.getKey() + "//jar\"", "\"@" + me.getValue() + "//jar\"")
+                                 .replace("\"//" + Common.getPkgExports() + ":" + me.getKey() + "\"",
+                                          "\"//" + Common.getPkgExports() + ":" + me.getValue() + "\"");
+        }
+
+        if (!relabeled.equals(content)) {
+            try {
+                Files.write(fileBuild, relabeled.getBytes(StandardCharsets.UTF_8));
+                log.info("relabeled: " + fileBuild);
+            } catch (IOException e) {
+                log.error(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the wrapper targets of the direct dependency mode into their own package
+     */
+    private void exports() {
+        DependencyExports exports = new DependencyExports(log, mapDependency.values());
+        Path fileBuild = root.resolve(Common.getPkgExports()).resolve(Common.OUTPUT_FILES.BUILD.toString());
+
+        try {
+            Files.createDirectories(fileBuild.getParent());
+            Files.write(fileBuild, exports.outputAsBazelExports().getBytes(StandardCharsets.UTF_8));
+            exports.done();
+            log.info("output:\n" + Common.getIndentOne() + fileBuild);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * A single "maven_install()" declaration, the dependencies are pinned by the lock file next to the WORKSPACE
+     */
+    private void installWorkspace() {
+        MavenInstall install = new MavenInstall(mapDependency.values(), mapServer);
+        int numUnpinned = 0;
+
+        for (MavenDependency dep : mapDependency.values()) {
+            if (dep.getSha256().isEmpty()) {
+                numUnpinned++;
+            }
+        }
+
+        if (numUnpinned > 0) {
+            log.warn(numUnpinned + " dependencies without SHA-256, run the build goal with -DworkspaceFormat=" + format);
+        }
+
+        sbDependency.append(install.outputAsBazelInstall());
+
+        Path lockFile = root.resolve(Common.OUTPUT_FILES.MAVEN_INSTALL_JSON.toString());
+
+        try {
+            Files.write(lockFile, install.outputAsLockFile().getBytes(StandardCharsets.UTF_8));
+            log.info("output:\n" + Common.getIndentOne() + lockFile);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
 
-        while (iteratorServer.hasNext()) {
-            Map.Entry<String, MavenServer> me = iteratorServer.next();
-            MavenServer srv = me.getValue();
-            sbServer.append(srv.outputAsBazelServer());
+    /**
+     * One repository rule per dependency
+     */
+    private void ruleWorkspace() {
+        if (format == Common.WORKSPACE_FORMAT.JVM_IMPORT || format == Common.WORKSPACE_FORMAT.LOCAL) {
+            sbServer.append(MavenDependency.outputAsBazelImportLoad());
+        } else {
+            Set<Map.Entry<String, MavenServer>> setServer = mapServer.entrySet();
+            Iterator<Map.Entry<String, MavenServer>> iteratorServer = setServer.iterator();
+
+            while (iteratorServer.hasNext()) {
+                Map.Entry<String, MavenServer> me = iteratorServer.next();
+                MavenServer srv = me.getValue();
+                sbServer.append(srv.outputAsBazelServer());
+            }
         }
 
         Set<Map.Entry<String, MavenDependency>> setDependency = mapDependency.entrySet();
         Iterator<Map.Entry<String, MavenDependency>> iteratorDependency = setDependency.iterator();
+        int numUnpinned = 0;
 
         while (iteratorDependency.hasNext()) {
             Map.Entry<String, MavenDependency> me = iteratorDependency.next();
-            MavenDependency srv = me.getValue();
-            sbDependency.append(srv.outputAsBazelJar());
+            MavenDependency dep = me.getValue();
+
+            if (format == Common.WORKSPACE_FORMAT.JVM_IMPORT) {
+                MavenServer srv = mapServer.get(dep.getServer());
+
+                if (dep.getSha256().isEmpty()) {
+                    numUnpinned++;
+                }
+
+                sbDependency.append(dep.outputAsBazelImport(dep.retrieveUrl(srv == null ? null : srv.getUrl()), licenses));
+            } else if (format == Common.WORKSPACE_FORMAT.LOCAL) {
+                sbDependency.append(dep.outputAsBazelImport(dep.retrieveLocalUrl(localRepo), licenses));
+            } else {
+                sbDependency.append(dep.outputAsBazelJar());
+            }
         }
 
+        if (numUnpinned > 0) {
+            log.warn(numUnpinned + " dependencies without SHA-256, run the build goal with -DworkspaceFormat=" + format);
+        }
+    }
+
+    private void write() {
         try {
             if (bzlWorkspaceName != null && !bzlWorkspaceName.isEmpty()) {
                 workspaceWriter.append("workspace(name = \"");
@@ -195,27 +521,25 @@ public class CreateWorkspace extends SimpleFileVisitor<Path> {
         }
     }
 
-    public void done() {
-        log.info("completed\n\tmatched: " + numDepMatches
-                                          + " JAR files\n\tmatched: "
-                                          + numSrvMatches
-                                          + " Server files");
-    }
-
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-        if (attrs.isRegularFile()) {
-            collect(file);
-        } else {
-            log.warn("ignored - not a regular file: " + file);
+    /**
+     * Remove the WORKSPACE file opened by the constructor, so that a failed run can be repeated
+     */
+    public void discard() {
+        try {
+            workspaceWriter.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
         }
 
-        return FileVisitResult.CONTINUE;
+        if (!workspace.delete()) {
+            log.warn("could not remove " + workspace);
+        }
     }
 
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException e) {
-        log.error(e.getMessage());
-        return FileVisitResult.CONTINUE;
+    public void done() {
+        log.info("completed\n\tmatched: " + numDepMatches
+                                          + " dependency records\n\tmatched: "
+                                          + numSrvMatches
+                                          + " server records");
     }
 }
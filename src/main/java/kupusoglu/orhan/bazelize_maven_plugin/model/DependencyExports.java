@@ -0,0 +1,233 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Generate the per-artifact wrapper targets of the <strong>direct</strong> dependency mode
+ * <br>
+ * Libraries list only their direct dependencies, the transitive ones are supplied through the "exports" of the wrappers:
+ * <br><br>
+ * <pre>
+ * java_library(
+ *     name = "com_google_guava_guava_23_0",
+ *     exports = [
+ *         "@com_google_guava_guava_23_0//jar",
+ *         ":com_google_errorprone_error_prone_annotations_2_0_18",
+ *     ],
+ * )
+ * </pre>
+ * <br>
+ * The transitive closure is computed once with one {@code BitSet} per artifact. A child reachable through another child
+ * is dropped from the "exports", since Bazel exports transitively. Bazel rejects cyclic "exports", thus the artifacts of
+ * a cycle are collapsed: the wrapper of each member exports the JARs of all the members, and their children outside of
+ * the cycle.
+ */
+public class DependencyExports {
+    private Log log;
+    private List<MavenDependency> dependencies;
+    private BitSet[] children;
+    private BitSet[] closure;
+    private BitSet[] components;
+    private int numPruned = 0;
+    private int numCycles = 0;
+
+
+    public DependencyExports(Log log, Collection<MavenDependency> dependencies) {
+        this.log = log;
+        this.dependencies = new ArrayList<>(dependencies);
+
+        Map<String, Integer> index = new HashMap<>();
+        int size = this.dependencies.size();
+
+        for (int i = 0; i < size; i++) {
+            index.put(this.dependencies.get(i).retrieveCoordinate(), i);
+        }
+
+        this.children = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            children[i] = new BitSet(size);
+
+            for (String child : this.dependencies.get(i).getDependencies()) {
+                Integer j = index.get(child);
+
+                // black-listed children are not pinned
+                if (j != null && j != i) {
+                    children[i].set(j);
+                }
+            }
+        }
+
+        this.closure = computeClosure(children);
+        this.components = computeComponents(closure);
+    }
+
+    /**
+     * The strongly connected component of each artifact, the artifacts reaching each other, shared by its members
+     */
+    private static BitSet[] computeComponents(BitSet[] closure) {
+        int size = closure.length;
+        BitSet[] components = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            if (components[i] == null) {
+                BitSet component = new BitSet(size);
+
+                component.set(i);
+
+                for (int j = closure[i].nextSetBit(0); j >= 0; j = closure[i].nextSetBit(j + 1)) {
+                    if (closure[j].get(i)) {
+                        component.set(j);
+                    }
+                }
+
+                for (int j = component.nextSetBit(0); j >= 0; j = component.nextSetBit(j + 1)) {
+                    components[j] = component;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Transitive closure by fixpoint iteration, which converges on cyclic graphs, too
+     */
+    private static BitSet[] computeClosure(BitSet[] children) {
+        int size = children.length;
+        BitSet[] closure = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            closure[i] = (BitSet)children[i].clone();
+        }
+
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (int i = size - 1; i >= 0; i--) {
+                int before = closure[i].cardinality();
+
+                for (int j = children[i].nextSetBit(0); j >= 0; j = children[i].nextSetBit(j + 1)) {
+                    closure[i].or(closure[j]);
+                }
+
+                if (closure[i].cardinality() != before) {
+                    changed = true;
+                }
+            }
+        }
+
+        return closure;
+    }
+
+    public static String retrieveLabel(MavenDependency dep) {
+        return "//" + Common.getPkgExports() + ":" + dep.getName();
+    }
+
+    public String outputAsBazelExports() {
+        StringBuilder sb = new StringBuilder();
+        Template template = Common.getTemplateExports();
+
+        sb.append("package(default_visibility = [\"//visibility:public\"])\n");
+
+        for (int i = 0; i < dependencies.size(); i++) {
+            MavenDependency dep = dependencies.get(i);
+            BitSet component = components[i];
+            BitSet outside = new BitSet(dependencies.size());
+            StringBuilder exports = new StringBuilder();
+
+            appendJar(exports, dep);
+
+            for (int k = component.nextSetBit(0); k >= 0; k = component.nextSetBit(k + 1)) {
+                outside.or(children[k]);
+
+                if (k != i) {
+                    appendJar(exports, dependencies.get(k));
+                }
+            }
+
+            outside.andNot(component);
+
+            if (component.nextSetBit(0) == i && component.cardinality() > 1) {
+                numCycles++;
+                log.warn("dependency cycle, collapsed: " + names(component));
+            }
+
+            for (int j = outside.nextSetBit(0); j >= 0; j = outside.nextSetBit(j + 1)) {
+                if (isReachableFromSibling(outside, j)) {
+                    numPruned++;
+                } else {
+                    exports.append(Common.getIndentTwo())
+                           .append("\":")
+                           .append(dependencies.get(j).getName())
+                           .append("\",\n");
+                }
+            }
+
+            sb.append("\n");
+            template.with("LIB_NAME", dep.getName())
+                    .with("ATTRIBUTES", "")
+                    .with("JAVA_EXPORTS", Common.withoutLastChars(exports, 1))
+                    .renderTo(sb);
+            sb.append("\n");
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendJar(StringBuilder exports, MavenDependency dep) {
+        exports.append(Common.getIndentTwo())
+               .append("\"@")
+               .append(dep.getName())
+               .append("//jar\",\n");
+    }
+
+    private String names(BitSet component) {
+        List<String> names = new ArrayList<>();
+
+        for (int k = component.nextSetBit(0); k >= 0; k = component.nextSetBit(k + 1)) {
+            names.add(dependencies.get(k).getName());
+        }
+
+        return String.join(" <-> ", names);
+    }
+
+    /**
+     * True if child j is reachable through another child, which is not itself reachable from j
+     */
+    private boolean isReachableFromSibling(BitSet siblings, int j) {
+        for (int k = siblings.nextSetBit(0); k >= 0; k = siblings.nextSetBit(k + 1)) {
+            if (k != j && closure[k].get(j) && !closure[j].get(k)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int getNumPruned() {
+        return numPruned;
+    }
+
+    public int getNumCycles() {
+        return numCycles;
+    }
+
+    public void done() {
+        log.info("exports\n\twrappers: " + dependencies.size()
+                                         + "\n\tredundant exports pruned: "
+                                         + numPruned
+                                         + "\n\tcycles collapsed: "
+                                         + numCycles);
+    }
+}
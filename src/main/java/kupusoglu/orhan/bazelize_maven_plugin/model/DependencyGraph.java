@@ -0,0 +1,230 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A directed graph of nodes, e.g. packages or modules, with an edge from each node to the nodes it depends on
+ * <br>
+ * Strongly connected components are found with Tarjan's algorithm, iteratively, so deep graphs cannot overflow the stack.
+ * Components come in reverse topological order: every component only depends on the components before it.
+ * <br>
+ * The edges of a node are kept in an int array, sorted and deduplicated at the first read after a change,
+ * so memory and time grow with the number of nodes plus edges.
+ * <br>
+ * @see <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">Tarjan's algorithm</a>
+ */
+public class DependencyGraph<T> {
+    private final List<T> nodes = new ArrayList<>();
+    private final Map<T, Integer> index = new HashMap<>();
+    private final List<Edges> edges = new ArrayList<>();
+
+
+    /**
+     * Indexes of the nodes a node depends on, appended as added
+     */
+    private static class Edges {
+        private static final int[] EMPTY = new int[0];
+
+        private int[] targets = EMPTY;
+        private int size = 0;
+        private boolean sorted = true;
+
+        private void add(int j) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(4, 2 * size));
+            }
+
+            if (size > 0 && targets[size - 1] >= j) {
+                sorted = false;
+            }
+
+            targets[size++] = j;
+        }
+
+        /**
+         * The targets, sorted and distinct, in the first {@link #size} slots
+         */
+        private int[] compact() {
+            if (!sorted) {
+                Arrays.sort(targets, 0, size);
+
+                int n = 0;
+
+                for (int k = 0; k < size; k++) {
+                    if (n == 0 || targets[k] != targets[n - 1]) {
+                        targets[n++] = targets[k];
+                    }
+                }
+
+                size = n;
+                sorted = true;
+            }
+
+            return targets;
+        }
+    }
+
+
+    /**
+     * Index of the node, added if unknown
+     */
+    public int addNode(T node) {
+        Integer i = index.get(node);
+
+        if (i == null) {
+            i = nodes.size();
+            nodes.add(node);
+            index.put(node, i);
+            edges.add(new Edges());
+        }
+
+        return i;
+    }
+
+    public void addEdge(T from, T to) {
+        int i = addNode(from);
+        int j = addNode(to);
+
+        edges.get(i).add(j);
+    }
+
+    public List<T> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public int indexOf(T node) {
+        Integer i = index.get(node);
+        return i == null ? -1 : i;
+    }
+
+    public T getNode(int i) {
+        return nodes.get(i);
+    }
+
+    /**
+     * Indexes of the nodes the given node depends on, sorted
+     */
+    public int[] getEdges(int i) {
+        Edges e = edges.get(i);
+
+        return Arrays.copyOf(e.compact(), e.size);
+    }
+
+    public boolean hasEdge(int i, int j) {
+        Edges e = edges.get(i);
+
+        return Arrays.binarySearch(e.compact(), 0, e.size, j) >= 0;
+    }
+
+    public int getNumEdges(int i) {
+        Edges e = edges.get(i);
+
+        e.compact();
+
+        return e.size;
+    }
+
+    /**
+     * Strongly connected components as lists of node indexes, in reverse topological order
+     */
+    public List<int[]> components() {
+        int size = nodes.size();
+        int[] order = new int[size];
+        int[] lowLink = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int top = 0;
+        int counter = 0;
+
+        // explicit call stack: node and the next edge to follow
+        int[] callNode = new int[size];
+        int[] callEdge = new int[size];
+        List<int[]> components = new ArrayList<>();
+
+        Arrays.fill(order, -1);
+
+        for (int start = 0; start < size; start++) {
+            if (order[start] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callNode[0] = start;
+            callEdge[0] = 0;
+            order[start] = lowLink[start] = counter++;
+            stack[top++] = start;
+            onStack[start] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+                Edges e = edges.get(v);
+                int[] targets = e.compact();
+                int k = callEdge[depth];
+
+                if (k < e.size) {
+                    int w = targets[k];
+
+                    callEdge[depth] = k + 1;
+
+                    if (order[w] < 0) {
+                        order[w] = lowLink[w] = counter++;
+                        stack[top++] = w;
+                        onStack[w] = true;
+
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = 0;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], order[w]);
+                    }
+                } else {
+                    if (lowLink[v] == order[v]) {
+                        int end = top;
+
+                        do {
+                            onStack[stack[--top]] = false;
+                        } while (stack[top] != v);
+
+                        int[] component = Arrays.copyOfRange(stack, top, end);
+                        Arrays.sort(component);
+                        components.add(component);
+                    }
+
+                    depth--;
+
+                    if (depth >= 0) {
+                        int parent = callNode[depth];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                    }
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Component of each node, as an index into the list of {@link #components()}
+     */
+    public static int[] componentOf(int size, List<int[]> components) {
+        int[] result = new int[size];
+
+        for (int c = 0; c < components.size(); c++) {
+            for (int i : components.get(c)) {
+                result[i] = c;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,198 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Session-wide memo of the sanitized names and the rendered labels of the dependencies
+ * <br>
+ * Every module lists mostly the same artifacts, thus each name is sanitized once per session, and each label is
+ * rendered once as a fragment of the "deps" list of a BUILD file:
+ * <br><br>
+ * <pre>
+ *         "@com_google_guava_guava_23_0//jar",
+ * </pre>
+ * <br>
+ * Names are looked up through a reused per-thread key, so a known artifact costs no allocation.
+ */
+public class DependencyLabels {
+    private static DependencyLabels INSTANCE;
+
+    private final ThreadLocal<Gav> probe = ThreadLocal.withInitial(Gav::new);
+    private final ConcurrentMap<Gav, String> names = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Label> jars = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Label> exports = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Label> mavenInstall = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Label> modules = new ConcurrentHashMap<>();
+    private final AtomicInteger numHits = new AtomicInteger();
+    private final AtomicInteger numMisses = new AtomicInteger();
+
+
+    /**
+     * A label and its fragment, e.g. "@x//jar" and its quoted and indented line ending with a comma
+     */
+    public static class Label {
+        private final String label;
+        private final String fragment;
+
+        private Label(String label) {
+            this.label = label;
+            this.fragment = Common.getIndentTwo() + "\"" + label + "\",\n";
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getFragment() {
+            return fragment;
+        }
+    }
+
+    /**
+     * A mutable key while probing, an immutable one once stored
+     */
+    private static class Gav {
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private int hash;
+
+        private Gav set(String groupId, String artifactId, String version) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.hash = (groupId.hashCode() * 31 + artifactId.hashCode()) * 31 + Objects.hashCode(version);
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Gav)) {
+                return false;
+            }
+
+            Gav other = (Gav)o;
+
+            return hash == other.hash
+                   && groupId.equals(other.groupId)
+                   && artifactId.equals(other.artifactId)
+                   && Objects.equals(version, other.version);
+        }
+    }
+
+
+    private DependencyLabels() {
+    }
+
+    public static synchronized DependencyLabels getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new DependencyLabels();
+        }
+
+        return INSTANCE;
+    }
+
+    public static synchronized void closeInstance(Log log) {
+        if (INSTANCE != null) {
+            if (log != null) {
+                log.info("dependency labels:\n"
+                         + Common.getIndentOne() + "hits: " + INSTANCE.numHits.get()
+                         + ", sanitized: " + INSTANCE.numMisses.get());
+            }
+
+            INSTANCE = null;
+        }
+    }
+
+    /**
+     * Sanitized "groupId_artifactId_version", versionless if version is null
+     */
+    public String name(String groupId, String artifactId, String version) {
+        String name = names.get(probe.get().set(groupId, artifactId, version));
+
+        if (name != null) {
+            numHits.incrementAndGet();
+            return name;
+        }
+
+        numMisses.incrementAndGet();
+        name = Common.sanitize(groupId, artifactId, version);
+
+        String known = names.putIfAbsent(new Gav().set(groupId, artifactId, version), name);
+
+        return known == null ? name : known;
+    }
+
+    /**
+     * "@x//jar", the label of the JAR in the WORKSPACE
+     */
+    public Label jar(MavenDependency dep) {
+        Label label = jars.get(dep.getName());
+
+        if (label == null) {
+            label = memo(jars, dep.getName(), "@" + dep.getName() + "//jar");
+        }
+
+        return label;
+    }
+
+    /**
+     * "//third_party/maven:x", the label of the exporting target
+     */
+    public Label exports(MavenDependency dep) {
+        Label label = exports.get(dep.getName());
+
+        if (label == null) {
+            label = memo(exports, dep.getName(), DependencyExports.retrieveLabel(dep));
+        }
+
+        return label;
+    }
+
+    /**
+     * "@maven//:x", the versionless label of rules_jvm_external
+     */
+    public Label mavenInstall(MavenDependency dep) {
+        Label label = mavenInstall.get(dep.getName());
+
+        if (label == null) {
+            label = memo(mavenInstall,
+                         dep.getName(),
+                         "@" + MavenInstall.getRepositoryName() + "//:" + dep.retrieveVersionlessName());
+        }
+
+        return label;
+    }
+
+    /**
+     * The label of a module of the reactor, as is
+     */
+    public Label module(String label) {
+        Label known = modules.get(label);
+
+        if (known == null) {
+            known = memo(modules, label, label);
+        }
+
+        return known;
+    }
+
+    private static Label memo(ConcurrentMap<String, Label> labels, String key, String label) {
+        Label known = labels.putIfAbsent(key, new Label(label));
+
+        return known == null ? labels.get(key) : known;
+    }
+}
@@ -1,14 +1,11 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
 import org.apache.maven.plugin.logging.Log;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
@@ -16,15 +13,11 @@ import java.util.TreeSet;
 
 
 /**
- * A {@code FileVisitor} that finds all the meta data of a module
- * <br>
- * @see <a href="https://docs.oracle.com/javase/tutorial/essential/io/walk.html">Walking the File Tree</a>
- * @see <a href="https://docs.oracle.com/javase/tutorial/essential/io/examples/Find.java">Find.java</a>
+ * Finds the meta data of all the modules, recorded by the <strong>module</strong> goal in the {@link IntermediateStore}
  */
-public class FindMeta extends SimpleFileVisitor<Path> {
+public class FindMeta {
     private Log log;
     private Path root;
-    private PathMatcher matcherMeta;
     private File fileMeta;
     private FileWriter metaWriter;
 
@@ -32,19 +25,10 @@ public class FindMeta extends SimpleFileVisitor<Path> {
     private int numMetaMatches = 0;
     private SortedSet<MavenMeta> setMeta = new TreeSet<>();
 
-    private static final String KEY_ROOT_DIR = "rootDir";
-    private static final String KEY_REL_DIR = "relDir";
-    private static final String KEY_GROUP_ID = "groupId";
-    private static final String KEY_ARTIFACT_ID = "artifactId";
-    private static final String KEY_VERSION = "version";
-    private static final String KEY_PACKAGING = "packaging";
-    private static final String KEY_SOURCE = "source";
 
-
-    public FindMeta(Log log, Path root, String patternMeta) {
+    public FindMeta(Log log, Path root) {
         this.log = log;
         this.root = root;
-        this.matcherMeta = FileSystems.getDefault().getPathMatcher("glob:" + patternMeta);
         this.fileMeta = new File(this.root + File.separator + Common.OUTPUT_FILES.JSON_META);
 
         try {
@@ -54,47 +38,24 @@ public class FindMeta extends SimpleFileVisitor<Path> {
         }
     }
 
-    public void collect(Path file) {
-        Path name = file.getFileName();
-
-        if (name != null) {
-            if (matcherMeta.matches(name)) {
-                numMetaMatches++;
-
-                Path absolutePath = file.toAbsolutePath().normalize();
+    public void collect(IntermediateStore.Index index) {
+        for (String key : index.getKeys(IntermediateStore.KIND.MODULE)) {
+            numMetaMatches++;
 
-                log.info("found meta data: " + absolutePath);
+            log.info("found meta data: " + root.resolve(key));
 
-                processMetaData(absolutePath);
-            }
+            processMetaData(index, key);
         }
     }
 
-    public void processMetaData(Path absolutePath) {
-        String data = Common.readTextFile(absolutePath);
-
-        JSONObject item = new JSONObject(data);
-
-        MavenMeta meta = new MavenMeta(this.log,
-                                       Paths.get(item.getString(KEY_ROOT_DIR)),
-                                       Paths.get(item.getString(KEY_REL_DIR)),
-                                       item.getString(KEY_GROUP_ID),
-                                       item.getString(KEY_ARTIFACT_ID),
-                                       item.getString(KEY_VERSION),
-                                       item.getString(KEY_PACKAGING));
-
-        JSONArray arr = item.getJSONArray(KEY_SOURCE);
-        List<String> source = new ArrayList<>();
-        for (int i = 0; i < arr.length(); i++){
-            source.add(arr.getString(i));
+    public void processMetaData(IntermediateStore.Index index, String key) {
+        try (
+            JsonReader reader = index.reader(IntermediateStore.KIND.MODULE, key);
+        ) {
+            setMeta.add(MavenMeta.readJson(this.log, reader));
+        } catch (IOException e) {
+            log.error(root.resolve(key) + ": " + e.getMessage());
         }
-
-        String[] sourceArray = new String[source.size()];
-        sourceArray = source.toArray(sourceArray);
-
-        meta.setSource(sourceArray);
-
-        setMeta.add(meta);
     }
 
     public void metaData() {
@@ -118,31 +79,31 @@ public class FindMeta extends SimpleFileVisitor<Path> {
         }
 
         try {
-            metaWriter.flush();
+            metaWriter.close();
         } catch (IOException e) {
             log.error(e.getMessage());
         }
     }
 
-    public void done() {
-        log.info("completed\n\tmatched: " + numMetaMatches
-                                          + " meta files matched");
-    }
+    /**
+     * Index the meta data for the lookups of the <strong>build</strong> goal, after the meta data file is closed
+     */
+    public void metaIndex() {
+        List<Common.Dependency> deps = new ArrayList<>(setMeta.size());
 
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-        if (attrs.isRegularFile()) {
-            collect(file);
-        } else {
-            log.warn("ignored - not a regular file: " + file);
+        for (MavenMeta meta : setMeta) {
+            deps.add(MavenMeta.toDependency(meta));
         }
 
-        return FileVisitResult.CONTINUE;
+        try {
+            MetaIndex.write(root.resolve(Common.OUTPUT_FILES.META_INDEX.toString()), fileMeta.toPath(), deps);
+        } catch (IOException e) {
+            log.warn("meta index could not be saved: " + e.getMessage());
+        }
     }
 
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException e) {
-        log.error(e.getMessage());
-        return FileVisitResult.CONTINUE;
+    public void done() {
+        log.info("completed\n\tmatched: " + numMetaMatches
+                                          + " meta records matched");
     }
 }
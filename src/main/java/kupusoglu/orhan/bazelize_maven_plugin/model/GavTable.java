@@ -0,0 +1,312 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A dictionary-encoded table of dependencies, merged over all modules
+ * <br>
+ * Every module lists most of the same dependencies, thus each string, e.g. a groupId or a version, is stored once
+ * and referred by its ID. A dependency is a record of IDs in a single {@code int[]}, deduplicated on its
+ * groupId, artifactId and version IDs through an open addressing hash table, so that no object is kept per entry:
+ * <br><br>
+ * <pre>
+ * records:  | groupId | artifactId | version | scope | hash | server | sha256 | depth | first child | ...
+ * children: | coordinate | next | coordinate | next | ...
+ * </pre>
+ * <br>
+ * Only the merged records are materialized as {@link MavenDependency} objects.
+ * <br>
+ * Each record carries a rank, e.g. the index of the file it was read from. The record of the lowest rank keeps
+ * its fields, thus tables filled in parallel can be {@link #merge(GavTable) merged} in any order with the same result.
+ */
+public class GavTable {
+    private static final int GROUP_ID = 0;
+    private static final int ARTIFACT_ID = 1;
+    private static final int VERSION = 2;
+    private static final int SCOPE = 3;
+    private static final int HASH = 4;
+    private static final int SERVER = 5;
+    private static final int SHA256 = 6;
+    private static final int DEPTH = 7;
+    private static final int CHILD = 8;
+    private static final int RANK = 9;
+    private static final int FIELDS = 10;
+    private static final int NONE = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private int[] records = new int[FIELDS * 256];
+    private int[] children = new int[2 * 256];
+    private int[] slots = new int[512];
+    private int size = 0;
+    private int numChildren = 0;
+    private int numAdded = 0;
+
+
+    /**
+     * ID of the given string, added to the dictionary if unknown
+     */
+    public int intern(String s) {
+        String value = s == null ? "" : s;
+        Integer id = ids.get(value);
+
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            ids.put(value, id);
+        }
+
+        return id;
+    }
+
+    public String lookup(int id) {
+        return strings.get(id);
+    }
+
+    /**
+     * Index of the merged record: the first one seen keeps its fields, the depth is the smallest known one
+     */
+    public int add(String groupId, String artifactId, String version, String scope, String hash, String server, String sha256, int depth) {
+        return add(groupId, artifactId, version, scope, hash, server, sha256, depth, 0);
+    }
+
+    /**
+     * Index of the merged record: the one of the lowest rank keeps its fields, the first one seen on a tie
+     */
+    public int add(String groupId, String artifactId, String version, String scope, String hash, String server, String sha256, int depth, int rank) {
+        int g = intern(groupId);
+        int a = intern(artifactId);
+        int v = intern(version);
+        int slot = findSlot(g, a, v);
+
+        numAdded++;
+
+        if (slots[slot] != 0) {
+            int entry = slots[slot] - 1;
+            int base = entry * FIELDS;
+            int known = records[base + DEPTH];
+
+            if (depth > 0 && (known <= 0 || depth < known)) {
+                records[base + DEPTH] = depth;
+            }
+
+            if (rank < records[base + RANK]) {
+                records[base + SCOPE] = intern(scope);
+                records[base + HASH] = intern(hash);
+                records[base + SERVER] = intern(server);
+                records[base + SHA256] = intern(sha256);
+                records[base + RANK] = rank;
+            }
+
+            return entry;
+        }
+
+        int entry = size++;
+        int base = entry * FIELDS;
+
+        if (records.length < base + FIELDS) {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+
+        records[base + GROUP_ID] = g;
+        records[base + ARTIFACT_ID] = a;
+        records[base + VERSION] = v;
+        records[base + SCOPE] = intern(scope);
+        records[base + HASH] = intern(hash);
+        records[base + SERVER] = intern(server);
+        records[base + SHA256] = intern(sha256);
+        records[base + DEPTH] = depth;
+        records[base + CHILD] = NONE;
+        records[base + RANK] = rank;
+
+        slots[slot] = entry + 1;
+
+        // load factor 1/2
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Add a direct dependency of the record, as "groupId:artifactId"
+     */
+    public void addChild(int entry, String coordinate) {
+        int c = intern(coordinate);
+        int base = entry * FIELDS;
+
+        for (int k = records[base + CHILD]; k != NONE; k = children[2 * k + 1]) {
+            if (children[2 * k] == c) {
+                return;
+            }
+        }
+
+        if (children.length < 2 * (numChildren + 1)) {
+            children = Arrays.copyOf(children, children.length * 2);
+        }
+
+        children[2 * numChildren] = c;
+        children[2 * numChildren + 1] = records[base + CHILD];
+        records[base + CHILD] = numChildren++;
+    }
+
+    /**
+     * Add the records of another table, e.g. one filled by another thread
+     */
+    public void merge(GavTable other) {
+        for (int entry = 0; entry < other.size; entry++) {
+            int base = entry * FIELDS;
+            int[] r = other.records;
+            int merged = add(other.lookup(r[base + GROUP_ID]),
+                             other.lookup(r[base + ARTIFACT_ID]),
+                             other.lookup(r[base + VERSION]),
+                             other.lookup(r[base + SCOPE]),
+                             other.lookup(r[base + HASH]),
+                             other.lookup(r[base + SERVER]),
+                             other.lookup(r[base + SHA256]),
+                             r[base + DEPTH],
+                             r[base + RANK]);
+
+            for (int k = r[base + CHILD]; k != NONE; k = other.children[2 * k + 1]) {
+                addChild(merged, other.lookup(other.children[2 * k]));
+            }
+        }
+
+        numAdded += other.numAdded - other.size;
+    }
+
+    private static int hash(int g, int a, int v) {
+        int h = (g * 31 + a) * 31 + v;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int g, int a, int v) {
+        int mask = slots.length - 1;
+        int slot = hash(g, a, v) & mask;
+
+        while (slots[slot] != 0) {
+            int base = (slots[slot] - 1) * FIELDS;
+
+            if (records[base + GROUP_ID] == g && records[base + ARTIFACT_ID] == a && records[base + VERSION] == v) {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+
+        for (int entry = 0; entry < size; entry++) {
+            int base = entry * FIELDS;
+
+            slots[findSlot(records[base + GROUP_ID], records[base + ARTIFACT_ID], records[base + VERSION])] = entry + 1;
+        }
+    }
+
+    /**
+     * Number of merged records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of records added before merging
+     */
+    public int getNumAdded() {
+        return numAdded;
+    }
+
+    public int getNumStrings() {
+        return strings.size();
+    }
+
+    /**
+     * Record indexes sorted by groupId, artifactId and version, compared by the ranks of their IDs
+     */
+    public int[] order() {
+        Integer[] byValue = new Integer[strings.size()];
+        int[] rank = new int[strings.size()];
+
+        for (int id = 0; id < byValue.length; id++) {
+            byValue[id] = id;
+        }
+
+        Arrays.sort(byValue, (x, y) -> strings.get(x).compareTo(strings.get(y)));
+
+        for (int r = 0; r < byValue.length; r++) {
+            rank[byValue[r]] = r;
+        }
+
+        Integer[] entries = new Integer[size];
+
+        for (int entry = 0; entry < size; entry++) {
+            entries[entry] = entry;
+        }
+
+        Arrays.sort(entries, (x, y) -> {
+            int bx = x * FIELDS;
+            int by = y * FIELDS;
+
+            for (int field = GROUP_ID; field <= VERSION; field++) {
+                int cmp = Integer.compare(rank[records[bx + field]], rank[records[by + field]]);
+
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+
+            return 0;
+        });
+
+        int[] result = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            result[i] = entries[i];
+        }
+
+        return result;
+    }
+
+    public MavenDependency get(int entry) {
+        int base = entry * FIELDS;
+        MavenDependency dep = new MavenDependency(lookup(records[base + GROUP_ID]),
+                                                  lookup(records[base + ARTIFACT_ID]),
+                                                  lookup(records[base + VERSION]),
+                                                  lookup(records[base + SCOPE]),
+                                                  lookup(records[base + HASH]),
+                                                  lookup(records[base + SERVER]));
+
+        dep.setSha256(lookup(records[base + SHA256]));
+        dep.setDepth(records[base + DEPTH]);
+
+        for (int k = records[base + CHILD]; k != NONE; k = children[2 * k + 1]) {
+            dep.getDependencies().add(lookup(children[2 * k]));
+        }
+
+        return dep;
+    }
+
+    /**
+     * The merged records, in {@link #order()}
+     */
+    public List<MavenDependency> toDependencies() {
+        List<MavenDependency> deps = new ArrayList<>(size);
+
+        for (int entry : order()) {
+            deps.add(get(entry));
+        }
+
+        return deps;
+    }
+}
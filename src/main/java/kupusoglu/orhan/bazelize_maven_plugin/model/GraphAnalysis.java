@@ -0,0 +1,206 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Critical path and parallelism of an acyclic target graph, each target weighted by a cost, e.g. its number of source files
+ * <br>
+ * A target cannot start before all of its dependencies are done, therefore with unlimited cores a build takes at least
+ * as long as the costliest path, the <strong>critical path</strong>. With N cores it takes at least the total cost
+ * divided by N, too, hence the speedup is at most: total / max(critical path, total / N).
+ * <br>
+ * The level of a target is the length of its longest chain of dependencies, the width of a level is the number of
+ * targets that can be built at once after the levels below.
+ * <br>
+ * @see <a href="https://en.wikipedia.org/wiki/Analysis_of_parallel_algorithms">Analysis of parallel algorithms</a>
+ */
+public class GraphAnalysis {
+    private final DependencyGraph<String> graph;
+    private final long[] costs;
+    private final long[] finish;
+    private final int[] next;
+    private final int[] levels;
+    private final int[] fanIn;
+    private long totalCost = 0;
+    private int last = -1;
+
+
+    /**
+     * The graph must be acyclic, its components are then single targets in reverse topological order
+     */
+    public GraphAnalysis(DependencyGraph<String> graph, long[] costs) {
+        int size = graph.size();
+
+        this.graph = graph;
+        this.costs = costs;
+        this.finish = new long[size];
+        this.next = new int[size];
+        this.levels = new int[size];
+        this.fanIn = new int[size];
+
+        // dependencies first
+        for (int[] component : graph.components()) {
+            if (component.length > 1) {
+                throw new IllegalArgumentException("cyclic graph: " + graph.getNode(component[0]));
+            }
+
+            int v = component[0];
+            long start = 0;
+
+            next[v] = -1;
+
+            for (int w : graph.getEdges(v)) {
+                if (w == v) {
+                    throw new IllegalArgumentException("cyclic graph: " + graph.getNode(v));
+                }
+
+                fanIn[w]++;
+                levels[v] = Math.max(levels[v], levels[w] + 1);
+
+                if (finish[w] > start || next[v] < 0) {
+                    start = finish[w];
+                    next[v] = w;
+                }
+            }
+
+            finish[v] = start + costs[v];
+            totalCost += costs[v];
+
+            if (last < 0 || finish[v] > finish[last]) {
+                last = v;
+            }
+        }
+    }
+
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    public long getCriticalPathCost() {
+        return last < 0 ? 0 : finish[last];
+    }
+
+    /**
+     * Targets of the critical path, from the last one built down to its first dependency
+     */
+    public List<Integer> getCriticalPath() {
+        List<Integer> path = new ArrayList<>();
+
+        for (int v = last; v >= 0; v = next[v]) {
+            path.add(v);
+        }
+
+        return path;
+    }
+
+    /**
+     * Number of targets per level, level 0 with no dependencies
+     */
+    public int[] getLevelWidths() {
+        int numLevels = 0;
+
+        for (int level : levels) {
+            numLevels = Math.max(numLevels, level + 1);
+        }
+
+        int[] widths = new int[numLevels];
+
+        for (int level : levels) {
+            widths[level]++;
+        }
+
+        return widths;
+    }
+
+    /**
+     * Upper bound of the speedup over a single core
+     */
+    public double getSpeedup(int cores) {
+        long criticalPath = getCriticalPathCost();
+
+        if (criticalPath == 0) {
+            return 1.0;
+        }
+
+        return totalCost / Math.max(criticalPath, (double)totalCost / cores);
+    }
+
+    public int getFanIn(int i) {
+        return fanIn[i];
+    }
+
+    /**
+     * Indexes of the targets with the most dependents, at most the given number
+     */
+    public List<Integer> getTopFanIn(int top) {
+        List<Integer> targets = new ArrayList<>();
+
+        for (int i = 0; i < graph.size(); i++) {
+            targets.add(i);
+        }
+
+        targets.sort((a, b) -> fanIn[a] != fanIn[b]
+                               ? Integer.compare(fanIn[b], fanIn[a])
+                               : graph.getNode(a).compareTo(graph.getNode(b)));
+
+        return targets.subList(0, Math.min(top, targets.size()));
+    }
+
+    /**
+     * Targets of the critical path by their cost, at most the given number
+     */
+    public List<Integer> getTopCriticalPath(int top) {
+        List<Integer> targets = getCriticalPath();
+
+        targets.sort((a, b) -> costs[a] != costs[b]
+                               ? Long.compare(costs[b], costs[a])
+                               : graph.getNode(a).compareTo(graph.getNode(b)));
+
+        return targets.subList(0, Math.min(top, targets.size()));
+    }
+
+    public String report(int cores, int top) {
+        StringBuilder sb = new StringBuilder();
+        List<Integer> path = getCriticalPath();
+        int[] widths = getLevelWidths();
+
+        Collections.reverse(path);
+
+        sb.append("completed\n")
+          .append(Common.getIndentOne()).append("targets: ").append(graph.size()).append("\n")
+          .append(Common.getIndentOne()).append("total cost: ").append(totalCost).append("\n")
+          .append(Common.getIndentOne()).append("critical path: ").append(getCriticalPathCost())
+          .append(" in ").append(path.size()).append(" targets\n")
+          .append(Common.getIndentOne()).append("levels: ").append(widths.length).append("\n");
+
+        for (int level = 0; level < widths.length; level++) {
+            sb.append(Common.getIndentTwo()).append(level).append(": ").append(widths[level]).append("\n");
+        }
+
+        sb.append(Common.getIndentOne())
+          .append(String.format("speedup: %.2f on %d cores, %.2f at most", getSpeedup(cores), cores, getSpeedup(Integer.MAX_VALUE)))
+          .append("\n")
+          .append(Common.getIndentOne()).append("critical path, first built first:\n");
+
+        for (int v : path) {
+            sb.append(Common.getIndentTwo()).append(graph.getNode(v)).append(": ").append(costs[v]).append("\n");
+        }
+
+        sb.append(Common.getIndentOne()).append("costliest on the critical path:\n");
+
+        for (int v : getTopCriticalPath(top)) {
+            sb.append(Common.getIndentTwo()).append(graph.getNode(v)).append(": ").append(costs[v]).append("\n");
+        }
+
+        sb.append(Common.getIndentOne()).append("largest fan-in:\n");
+
+        for (int v : getTopFanIn(top)) {
+            sb.append(Common.getIndentTwo()).append(graph.getNode(v)).append(": ").append(fanIn[v]).append("\n");
+        }
+
+        return Common.removeLastChars(sb.toString(), 1);
+    }
+}
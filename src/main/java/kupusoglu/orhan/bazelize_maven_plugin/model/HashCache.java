@@ -0,0 +1,271 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+
+/**
+ * Session-wide and persistent cache of JAR hashes
+ * <br>
+ * An entry is keyed by algorithm and canonical path, and is valid as long as size and modification time match.
+ * <br>
+ * For SHA-1 the <strong>.sha1</strong> checksum files, stored by Maven next to each JAR, are used instead of hashing.
+ * These are trusted, unless <strong>-DverifyHash=true</strong> is given: then the JAR is hashed before its checksum
+ * is returned, and a mismatch fails the JAR, so a bad checksum never reaches the BUILD or WORKSPACE files.
+ * Unverified checksums are not persisted, reading them again is cheap.
+ * <br>
+ * The cache file is a plain text file, one entry per line:
+ * <br><br>
+ * <pre>
+ * SHA-1    1234    1530000000000    0235ba8b489512805ac13a8f9ea77a1ca5ebe3e8    /home/me/.m2/repository/aopalliance/aopalliance/1.0/aopalliance-1.0.jar
+ * </pre>
+ */
+public class HashCache {
+    private static HashCache INSTANCE;
+
+    private static final String HEADER = "# bazelize hash cache v1";
+    private static final String SEP = "\t";
+    private static final String EXT_SHA1 = ".sha1";
+    private static final Pattern PATTERN_SHA1 = Pattern.compile("^[0-9a-fA-F]{40}$");
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger numHits = new AtomicInteger();
+    private final AtomicInteger numSidecars = new AtomicInteger();
+    private final AtomicInteger numComputed = new AtomicInteger();
+    private volatile boolean verify = false;
+    private volatile boolean dirty = false;
+
+
+    /**
+     * Store a hash with the attributes of the hashed file
+     */
+    private static class Entry {
+        private final String algorithm;
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final String hash;
+        private final boolean verified;
+
+        private Entry(String algorithm, String path, long size, long modified, String hash, boolean verified) {
+            this.algorithm = algorithm;
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.verified = verified;
+        }
+
+        private boolean matches(BasicFileAttributes attrs) {
+            return this.size == attrs.size() && this.modified == attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+
+    private HashCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * The cache of the session, loaded from the given file at first use
+     */
+    public static synchronized HashCache getInstance(Path file) {
+        if (INSTANCE == null) {
+            INSTANCE = new HashCache(file);
+            INSTANCE.load();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Persist the cache of the session
+     */
+    public static synchronized void closeInstance(Log log) {
+        if (INSTANCE != null) {
+            try {
+                INSTANCE.save();
+
+                log.info("hash cache: " + INSTANCE.file + "\n"
+                         + Common.getIndentOne() + "hits: " + INSTANCE.numHits.get()
+                         + ", checksum files: " + INSTANCE.numSidecars.get()
+                         + ", computed: " + INSTANCE.numComputed.get());
+            } catch (IOException e) {
+                log.warn("hash cache could not be saved: " + e.getMessage());
+            }
+
+            INSTANCE = null;
+        }
+    }
+
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    public int getNumHits() {
+        return numHits.get();
+    }
+
+    public int getNumSidecars() {
+        return numSidecars.get();
+    }
+
+    public int getNumComputed() {
+        return numComputed.get();
+    }
+
+    public String hash(Path jar, String algorithm) throws IOException {
+        Path canonical = jar.toRealPath();
+        String path = canonical.toString();
+        String key = algorithm + SEP + path;
+        BasicFileAttributes attrs = Files.readAttributes(canonical, BasicFileAttributes.class);
+
+        Entry entry = entries.get(key);
+
+        // an unverified checksum is read again, and verified if requested
+        if (entry != null && entry.matches(attrs) && (entry.verified || !verify)) {
+            numHits.incrementAndGet();
+            return entry.hash;
+        }
+
+        String sidecar = ArtifactHash.SHA_1.equals(algorithm) ? readSidecar(canonical) : null;
+
+        if (sidecar != null && verify) {
+            String actual = ArtifactHash.hash(canonical, algorithm);
+
+            numComputed.incrementAndGet();
+
+            if (!actual.equals(sidecar)) {
+                throw new IOException("checksum file does not match: " + path
+                                      + ", expected: " + sidecar
+                                      + ", actual: " + actual);
+            }
+
+            entry = new Entry(algorithm, path, attrs.size(), attrs.lastModifiedTime().toMillis(), actual, true);
+            dirty = true;
+        } else if (sidecar == null) {
+            entry = new Entry(algorithm,
+                              path,
+                              attrs.size(),
+                              attrs.lastModifiedTime().toMillis(),
+                              ArtifactHash.hash(canonical, algorithm),
+                              true);
+            numComputed.incrementAndGet();
+            dirty = true;
+        } else {
+            entry = new Entry(algorithm, path, attrs.size(), attrs.lastModifiedTime().toMillis(), sidecar, false);
+            numSidecars.incrementAndGet();
+        }
+
+        entries.put(key, entry);
+
+        return entry.hash;
+    }
+
+    private static String readSidecar(Path jar) {
+        Path sidecar = jar.resolveSibling(jar.getFileName() + EXT_SHA1);
+
+        if (Files.isRegularFile(sidecar)) {
+            try {
+                // either the bare hash or "hash  file name"
+                String content = new String(Files.readAllBytes(sidecar), StandardCharsets.US_ASCII).trim();
+                String hash = content.split("\\s+", 2)[0];
+
+                if (PATTERN_SHA1.matcher(hash).matches()) {
+                    return hash.toLowerCase();
+                }
+            } catch (IOException e) {
+                // fall back to hashing
+            }
+        }
+
+        return null;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        try (
+            BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        ) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(SEP, 5);
+
+                if (fields.length == 5) {
+                    try {
+                        Entry entry = new Entry(fields[0],
+                                                fields[4],
+                                                Long.parseLong(fields[1]),
+                                                Long.parseLong(fields[2]),
+                                                fields[3],
+                                                true);
+                        entries.put(entry.algorithm + SEP + entry.path, entry);
+                    } catch (NumberFormatException e) {
+                        // skip the corrupt line
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // start with an empty cache
+            entries.clear();
+        }
+    }
+
+    private void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+
+        try (
+            BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+        ) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            // sorted for stable, diff-friendly output
+            for (Entry entry : new TreeMap<>(entries).values()) {
+                if (entry.verified) {
+                    writer.write(entry.algorithm);
+                    writer.write(SEP);
+                    writer.write(Long.toString(entry.size));
+                    writer.write(SEP);
+                    writer.write(Long.toString(entry.modified));
+                    writer.write(SEP);
+                    writer.write(entry.hash);
+                    writer.write(SEP);
+                    writer.write(entry.path);
+                    writer.newLine();
+                }
+            }
+        }
+
+        // atomic replace, concurrent sessions never see a partial file
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+}
@@ -0,0 +1,656 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+
+/**
+ * Root-level, log-structured store of the intermediate data of the goals: the meta data of each module, and the
+ * dependencies and servers saved by the <strong>build</strong> goal
+ * <br>
+ * A session appends its records to a single segment, shared by the modules built in parallel. At the end of the session
+ * the segment gets a trailing index and is committed with an atomic move, therefore readers never see a partial segment.
+ * A record is keyed by its kind and the directory of its module relative to the root, the record of the latest
+ * segment wins, a record with an empty payload removes its key. The goals look records up in the indexes instead of
+ * walking the source tree:
+ * <br><br>
+ * <pre>
+ * segment: | magic | version | record | ... | record | index | index offset | magic |
+ * record:  | kind | key length | key | payload length | payload | CRC-32 |
+ * index:   | count | kind | key length | key | payload offset | payload length | ...
+ * </pre>
+ * <br>
+ * The payloads are the UTF-8 encoded JSON of the model classes. The latest reactor record lists the keys of the modules
+ * of the reactor, one per line, the records of the other keys belong to modules removed or renamed since and are
+ * ignored. Commits are serialized by a lock file, so concurrent
+ * sessions get distinct sequence numbers. Beyond {@value #MAX_SEGMENTS} segments a commit compacts them into one.
+ */
+public class IntermediateStore {
+    private static IntermediateStore INSTANCE;
+    private static Thread HOOK;
+
+    private static final String EXT_SEGMENT = ".seg";
+    private static final String EXT_TMP = ".tmp";
+    private static final String EXT_LOCK = ".lock";
+    private static final int MAGIC = 0x425a4c53;
+    private static final short VERSION = 1;
+    private static final int HEADER = 6;
+    private static final int FOOTER = 12;
+    private static final int MAX_SEGMENTS = 8;
+
+    private final Path root;
+    private final Path file;
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final List<Entry> entries = new ArrayList<>();
+    private long position = HEADER;
+    private boolean closed = false;
+    private Set<String> reactor;
+
+
+    /**
+     * Kinds of records, stored by their ordinal
+     */
+    public enum KIND {
+        MODULE,
+        DEPENDENCY,
+        SERVER,
+        REACTOR
+    }
+
+    private static class Entry {
+        private final KIND kind;
+        private final String key;
+        private final long offset;
+        private final int length;
+
+        private Entry(KIND kind, String key, long offset, int length) {
+            this.kind = kind;
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A record located in an open segment
+     */
+    private static class Location {
+        private final FileChannel channel;
+        private final long offset;
+        private final int length;
+
+        private Location(FileChannel channel, long offset, int length) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+
+    private IntermediateStore(Path root) throws IOException {
+        this.root = root;
+        this.file = Files.createTempFile(root, Common.OUTPUT_FILES.STORE + "-", EXT_TMP);
+        this.fileOut = new FileOutputStream(file.toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    /**
+     * The segment of the session, created in the given root directory at first use
+     * <br>
+     * Committed by {@link #closeInstance(Log)}, or when the JVM exits if the lifecycle extension is not active.
+     */
+    public static synchronized IntermediateStore getInstance(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+
+        if (INSTANCE != null && !INSTANCE.root.equals(normalized)) {
+            closeInstance(null);
+        }
+
+        if (INSTANCE == null) {
+            INSTANCE = new IntermediateStore(normalized);
+            HOOK = new Thread(() -> closeInstance(null));
+            Runtime.getRuntime().addShutdownHook(HOOK);
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Commit the segment of the session
+     */
+    public static synchronized void closeInstance(Log log) {
+        if (INSTANCE == null) {
+            return;
+        }
+
+        if (HOOK != null && Thread.currentThread() != HOOK) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(HOOK);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+
+        try {
+            String report = INSTANCE.commit();
+
+            if (log != null) {
+                log.info(report);
+            }
+        } catch (IOException e) {
+            if (log != null) {
+                log.warn("intermediate store could not be committed: " + e.getMessage());
+            }
+        }
+
+        INSTANCE = null;
+        HOOK = null;
+    }
+
+    /**
+     * Key of the given module directory, its path relative to the root with "/" as separator
+     */
+    public static String key(Path root, Path dir) {
+        return root.toAbsolutePath()
+                   .normalize()
+                   .relativize(dir.toAbsolutePath().normalize())
+                   .toString()
+                   .replace(File.separatorChar, '/');
+    }
+
+    public synchronized void append(KIND kind, String key, byte[] payload) throws IOException {
+        if (closed) {
+            throw new IOException("intermediate store already committed: " + file);
+        }
+
+        byte[] bytesKey = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+
+        crc.update(payload);
+
+        out.writeByte(kind.ordinal());
+        out.writeShort(bytesKey.length);
+        out.write(bytesKey);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int)crc.getValue());
+
+        long offset = position + 1 + 2 + bytesKey.length + 4;
+
+        entries.add(new Entry(kind, key, offset, payload.length));
+        position = offset + payload.length + 4;
+    }
+
+    public void append(KIND kind, String key, String json) throws IOException {
+        append(kind, key, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Remove the record of the given key, e.g. of a module which no longer saves one
+     */
+    public void remove(KIND kind, String key) throws IOException {
+        append(kind, key, new byte[0]);
+    }
+
+    /**
+     * Record the module directories of the reactor, the records of other modules are ignored from now on
+     * <br>
+     * Written once per session, every module of the reactor reports the same directories.
+     */
+    public synchronized void setReactor(Collection<Path> dirs) throws IOException {
+        Set<String> keys = new TreeSet<>();
+
+        for (Path dir : dirs) {
+            keys.add(key(root, dir));
+        }
+
+        if (!keys.equals(reactor)) {
+            StringBuilder sb = new StringBuilder();
+
+            // never empty, the key of the root is
+            for (String key : keys) {
+                sb.append(key).append('\n');
+            }
+
+            reactor = keys;
+            append(KIND.REACTOR, "", sb.toString());
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Write the index and the footer, then sync, the segment takes no more records
+     */
+    private synchronized void finish() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        out.writeInt(entries.size());
+
+        for (Entry entry : entries) {
+            byte[] bytesKey = entry.key.getBytes(StandardCharsets.UTF_8);
+
+            out.writeByte(entry.kind.ordinal());
+            out.writeShort(bytesKey.length);
+            out.write(bytesKey);
+            out.writeLong(entry.offset);
+            out.writeInt(entry.length);
+        }
+
+        out.writeLong(position);
+        out.writeInt(MAGIC);
+        out.flush();
+        fileOut.getFD().sync();
+        out.close();
+        closed = true;
+    }
+
+    private String commit() throws IOException {
+        finish();
+
+        if (entries.isEmpty()) {
+            Files.deleteIfExists(file);
+            return "intermediate store: nothing to commit";
+        }
+
+        try (
+            FileChannel channelLock = FileChannel.open(root.resolve(Common.OUTPUT_FILES.STORE + EXT_LOCK),
+                                                       StandardOpenOption.CREATE,
+                                                       StandardOpenOption.READ,
+                                                       StandardOpenOption.WRITE);
+        ) {
+            FileLock lock = channelLock.lock();
+
+            try {
+                List<Path> segments = listSegments(root);
+                long seq = segments.isEmpty() ? 1 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+                Path target = root.resolve(segmentName(seq));
+
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                segments.add(target);
+
+                String report = "intermediate store: " + target + "\n"
+                                + Common.getIndentOne() + "records: " + entries.size();
+
+                if (segments.size() > MAX_SEGMENTS) {
+                    report += ", compacted: " + segments.size() + " segments into " + compact(root, segments, seq + 1);
+                }
+
+                return report;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Merge the given segments into a new one with the latest record of each key, then delete them
+     */
+    private static int compact(Path root, List<Path> segments, long seq) throws IOException {
+        IntermediateStore merged = new IntermediateStore(root);
+        int numRecords = 0;
+
+        try (
+            Index index = new Index(root, segments, null);
+        ) {
+            for (KIND kind : KIND.values()) {
+                for (String key : index.getKeys(kind)) {
+                    merged.append(kind, key, index.get(kind, key));
+                    numRecords++;
+                }
+            }
+        }
+
+        merged.finish();
+        Files.move(merged.file, root.resolve(segmentName(seq)), StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+
+        return numRecords;
+    }
+
+    private static String segmentName(long seq) {
+        return String.format("%s-%06d%s", Common.OUTPUT_FILES.STORE, seq, EXT_SEGMENT);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+
+        return Long.parseLong(name.substring(Common.OUTPUT_FILES.STORE.toString().length() + 1,
+                                             name.length() - EXT_SEGMENT.length()));
+    }
+
+    /**
+     * Committed segments, oldest first
+     */
+    private static List<Path> listSegments(Path root) throws IOException {
+        List<Path> segments = new ArrayList<>();
+
+        try (
+            DirectoryStream<Path> stream = Files.newDirectoryStream(root, Common.OUTPUT_FILES.STORE + "-*" + EXT_SEGMENT);
+        ) {
+            for (Path segment : stream) {
+                try {
+                    sequenceOf(segment);
+                    segments.add(segment);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+
+        segments.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+
+        return segments;
+    }
+
+    /**
+     * Index of the committed segments of the given root, followed by the segment of the session if it is still open
+     */
+    public static Index open(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+
+        synchronized (IntermediateStore.class) {
+            IntermediateStore pending = (INSTANCE != null && INSTANCE.root.equals(normalized)) ? INSTANCE : null;
+
+            if (!Files.isDirectory(normalized)) {
+                return new Index(normalized, new ArrayList<>(), null);
+            }
+
+            try (
+                FileChannel channelLock = FileChannel.open(normalized.resolve(Common.OUTPUT_FILES.STORE + EXT_LOCK),
+                                                           StandardOpenOption.CREATE,
+                                                           StandardOpenOption.READ,
+                                                           StandardOpenOption.WRITE);
+            ) {
+                FileLock lock = channelLock.lock(0, Long.MAX_VALUE, true);
+
+                try {
+                    // the channels stay valid after a concurrent compaction deletes the segments
+                    return new Index(normalized, listSegments(normalized), pending);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * The latest record of each key, read from open segments
+     */
+    public static class Index implements Closeable {
+        private final List<FileChannel> channels = new ArrayList<>();
+        private final Map<KIND, SortedMap<String, Location>> locations = new EnumMap<>(KIND.class);
+        private int numCorrupt = 0;
+
+
+        private Index(Path root, List<Path> segments, IntermediateStore pending) throws IOException {
+            for (KIND kind : KIND.values()) {
+                locations.put(kind, new TreeMap<>());
+            }
+
+            try {
+                for (Path segment : segments) {
+                    FileChannel channel;
+
+                    try {
+                        channel = FileChannel.open(segment, StandardOpenOption.READ);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+
+                    channels.add(channel);
+
+                    if (!readIndex(channel)) {
+                        numCorrupt++;
+                    }
+                }
+
+                if (pending != null) {
+                    synchronized (pending) {
+                        if (!pending.closed) {
+                            pending.out.flush();
+
+                            FileChannel channel = FileChannel.open(pending.file, StandardOpenOption.READ);
+
+                            channels.add(channel);
+
+                            for (Entry entry : pending.entries) {
+                                put(entry.kind, entry.key, new Location(channel, entry.offset, entry.length));
+                            }
+                        }
+                    }
+                }
+
+                retainReactor();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Add the records of a committed segment, false if its footer or index is damaged
+         */
+        private boolean readIndex(FileChannel channel) throws IOException {
+            long size = channel.size();
+
+            if (size < HEADER + 4 + FOOTER) {
+                return false;
+            }
+
+            ByteBuffer header = readFully(channel, 0, HEADER);
+            ByteBuffer footer = readFully(channel, size - FOOTER, FOOTER);
+            long indexOffset = footer.getLong();
+
+            if (header.getInt() != MAGIC || header.getShort() != VERSION || footer.getInt() != MAGIC
+                || indexOffset < HEADER || indexOffset > size - FOOTER - 4) {
+                return false;
+            }
+
+            ByteBuffer index = readFully(channel, indexOffset, (int)(size - FOOTER - indexOffset));
+            Map<KIND, Map<String, Location>> found = new EnumMap<>(KIND.class);
+
+            try {
+                int count = index.getInt();
+
+                for (int i = 0; i < count; i++) {
+                    KIND kind = KIND.values()[index.get()];
+                    byte[] bytesKey = new byte[index.getShort() & 0xffff];
+
+                    index.get(bytesKey);
+
+                    long offset = index.getLong();
+                    int length = index.getInt();
+
+                    if (offset < HEADER || length < 0 || offset + length + 4 > indexOffset) {
+                        return false;
+                    }
+
+                    found.computeIfAbsent(kind, k -> new TreeMap<>())
+                         .put(new String(bytesKey, StandardCharsets.UTF_8), new Location(channel, offset, length));
+                }
+            } catch (RuntimeException e) {
+                // truncated index or unknown kind
+                return false;
+            }
+
+            for (Map.Entry<KIND, Map<String, Location>> me : found.entrySet()) {
+                for (Map.Entry<String, Location> record : me.getValue().entrySet()) {
+                    put(me.getKey(), record.getKey(), record.getValue());
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * A later record replaces the earlier one of its key, an empty one removes it
+         */
+        private void put(KIND kind, String key, Location location) {
+            if (location.length == 0) {
+                locations.get(kind).remove(key);
+            } else {
+                locations.get(kind).put(key, location);
+            }
+        }
+
+        /**
+         * Drop the records of the modules missing from the latest reactor, kept as is if none was recorded
+         */
+        private void retainReactor() throws IOException {
+            byte[] payload = get(KIND.REACTOR, "");
+
+            if (payload == null) {
+                return;
+            }
+
+            String text = new String(payload, StandardCharsets.UTF_8);
+            Set<String> keys = new HashSet<>();
+            int start = 0;
+
+            for (int end = text.indexOf('\n'); end >= 0; end = text.indexOf('\n', start)) {
+                keys.add(text.substring(start, end));
+                start = end + 1;
+            }
+
+            for (KIND kind : KIND.values()) {
+                if (kind != KIND.REACTOR) {
+                    locations.get(kind).keySet().retainAll(keys);
+                }
+            }
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of segment");
+                }
+            }
+
+            buffer.flip();
+
+            return buffer;
+        }
+
+        /**
+         * Keys of the given kind, sorted
+         */
+        public SortedSet<String> getKeys(KIND kind) {
+            return new TreeSet<>(locations.get(kind).keySet());
+        }
+
+        public boolean contains(KIND kind, String key) {
+            return locations.get(kind).containsKey(key);
+        }
+
+        /**
+         * Payload of the latest record, null if there is none
+         */
+        public byte[] get(KIND kind, String key) throws IOException {
+            Location location = locations.get(kind).get(key);
+
+            if (location == null) {
+                return null;
+            }
+
+            ByteBuffer buffer = readFully(location.channel, location.offset, location.length + 4);
+            byte[] payload = new byte[location.length];
+            CRC32 crc = new CRC32();
+
+            buffer.get(payload);
+            crc.update(payload);
+
+            if ((int)crc.getValue() != buffer.getInt()) {
+                throw new IOException("corrupt record: " + kind + " " + key);
+            }
+
+            return payload;
+        }
+
+        /**
+         * Reader of the JSON payload of the latest record, null if there is none
+         */
+        public JsonReader reader(KIND kind, String key) throws IOException {
+            byte[] payload = get(kind, key);
+
+            if (payload == null) {
+                return null;
+            }
+
+            return new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+        }
+
+        public int getNumSegments() {
+            return channels.size();
+        }
+
+        /**
+         * Number of segments skipped for a damaged footer or index
+         */
+        public int getNumCorrupt() {
+            return numCorrupt;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException first = null;
+
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    first = first == null ? e : first;
+                }
+            }
+
+            channels.clear();
+
+            if (first != null) {
+                throw first;
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Session-wide and persistent index of the packages and classes provided by each JAR
+ * <br>
+ * Only the ZIP central directory of a JAR is read, memory-mapped, no entry is inflated.
+ * Class names are kept in their internal form, e.g. "com/google/common/base/Strings",
+ * entries of multi-release JARs are folded into their base names.
+ * A JAR registering an annotation processor is marked, its classes are used by javac, not by the compiled classes.
+ * <br>
+ * Entries are keyed by the SHA-1 of the JAR, so the index stays valid wherever the JAR is stored.
+ * The index file is binary, each class is stored by its simple name under its package:
+ * <br><br>
+ * <pre>
+ * int magic, int version, int number of JARs
+ * per JAR:     20 bytes SHA-1, boolean annotation processor, int number of packages
+ * per package: UTF package, int number of classes, UTF simple class name...
+ * </pre>
+ */
+public class JarIndex {
+    private static JarIndex INSTANCE;
+
+    private static final int MAGIC = 0x425a4a49;
+    private static final int VERSION = 2;
+
+    private static final int SIG_EOCD = 0x06054b50;
+    private static final int SIG_ZIP64_LOCATOR = 0x07064b50;
+    private static final int SIG_ZIP64_EOCD = 0x06064b50;
+    private static final int SIG_CEN = 0x02014b50;
+    private static final int LEN_EOCD = 22;
+    private static final int LEN_CEN = 46;
+    private static final int MAX_COMMENT = 0xffff;
+
+    private static final String EXT_CLASS = ".class";
+    private static final String PREFIX_VERSIONS = "META-INF/versions/";
+    private static final String MODULE_INFO = "module-info";
+    private static final String PACKAGE_INFO = "package-info";
+    private static final String SERVICE_PROCESSOR = "META-INF/services/javax.annotation.processing.Processor";
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger numHits = new AtomicInteger();
+    private final AtomicInteger numIndexed = new AtomicInteger();
+    private volatile boolean dirty = false;
+
+
+    /**
+     * Packages and classes of a JAR, both sorted, in internal form
+     */
+    public static class Entry {
+        private final String[] packages;
+        private final String[] classes;
+        private final boolean processor;
+
+        private Entry(String[] packages, String[] classes, boolean processor) {
+            this.packages = packages;
+            this.classes = classes;
+            this.processor = processor;
+        }
+
+        public List<String> getPackages() {
+            return Arrays.asList(packages);
+        }
+
+        public List<String> getClasses() {
+            return Arrays.asList(classes);
+        }
+
+        public boolean providesPackage(String pkg) {
+            return Arrays.binarySearch(packages, pkg) >= 0;
+        }
+
+        public boolean providesClass(String internalName) {
+            return Arrays.binarySearch(classes, internalName) >= 0;
+        }
+
+        /**
+         * True if the JAR registers an annotation processor, e.g. lombok or auto-value
+         */
+        public boolean isProcessor() {
+            return processor;
+        }
+    }
+
+
+    private JarIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * The index of the session, loaded from the given file at first use
+     */
+    public static synchronized JarIndex getInstance(Path file) {
+        if (INSTANCE == null) {
+            INSTANCE = new JarIndex(file);
+            INSTANCE.load();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Persist the index of the session
+     */
+    public static synchronized void closeInstance(Log log) {
+        if (INSTANCE != null) {
+            try {
+                INSTANCE.save();
+
+                log.info("JAR index: " + INSTANCE.file + "\n"
+                         + Common.getIndentOne() + "hits: " + INSTANCE.numHits.get()
+                         + ", indexed: " + INSTANCE.numIndexed.get());
+            } catch (IOException e) {
+                log.warn("JAR index could not be saved: " + e.getMessage());
+            }
+
+            INSTANCE = null;
+        }
+    }
+
+    /**
+     * Entry of the JAR with the given SHA-1, its central directory is read at first use only
+     */
+    public Entry index(Path jar, String sha1) throws IOException {
+        Entry entry = entries.get(sha1);
+
+        if (entry != null) {
+            numHits.incrementAndGet();
+            return entry;
+        }
+
+        entry = read(jar);
+        entries.put(sha1, entry);
+        numIndexed.incrementAndGet();
+        dirty = true;
+
+        return entry;
+    }
+
+    /**
+     * Read the class entries listed by the central directory of the given JAR
+     */
+    public static Entry read(Path jar) throws IOException {
+        SortedSet<String> packages = new TreeSet<>();
+        List<String> classes = new ArrayList<>();
+        boolean processor = false;
+
+        try (
+            FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ);
+        ) {
+            long size = channel.size();
+
+            if (size < LEN_EOCD) {
+                throw new IOException("not a ZIP file: " + jar);
+            }
+
+            long tailStart = Math.max(0, size - LEN_EOCD - MAX_COMMENT);
+            MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, size - tailStart);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            int eocd = -1;
+
+            for (int i = tail.limit() - LEN_EOCD; i >= 0; i--) {
+                if (tail.getInt(i) == SIG_EOCD) {
+                    eocd = i;
+                    break;
+                }
+            }
+
+            if (eocd < 0) {
+                throw new IOException("no ZIP central directory: " + jar);
+            }
+
+            long numEntries = tail.getShort(eocd + 10) & 0xffffL;
+            long cenSize = tail.getInt(eocd + 12) & 0xffffffffL;
+            long cenOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+
+            if ((numEntries == 0xffffL || cenSize == 0xffffffffL || cenOffset == 0xffffffffL)
+                && eocd >= 20
+                && tail.getInt(eocd - 20) == SIG_ZIP64_LOCATOR) {
+                long zip64Eocd = tail.getLong(eocd - 20 + 8);
+                ByteBuffer record = channel.map(FileChannel.MapMode.READ_ONLY, zip64Eocd, 56);
+                record.order(ByteOrder.LITTLE_ENDIAN);
+
+                if (record.getInt(0) != SIG_ZIP64_EOCD) {
+                    throw new IOException("corrupt ZIP64 central directory: " + jar);
+                }
+
+                cenSize = record.getLong(40);
+                cenOffset = record.getLong(48);
+            }
+
+            if (cenOffset + cenSize > size || cenSize > Integer.MAX_VALUE) {
+                throw new IOException("corrupt ZIP central directory: " + jar);
+            }
+
+            MappedByteBuffer cen = channel.map(FileChannel.MapMode.READ_ONLY, cenOffset, cenSize);
+            cen.order(ByteOrder.LITTLE_ENDIAN);
+
+            byte[] name = new byte[256];
+            int pos = 0;
+
+            while (pos + LEN_CEN <= cenSize && cen.getInt(pos) == SIG_CEN) {
+                int lenName = cen.getShort(pos + 28) & 0xffff;
+                int lenExtra = cen.getShort(pos + 30) & 0xffff;
+                int lenComment = cen.getShort(pos + 32) & 0xffff;
+
+                if (pos + LEN_CEN + lenName > cenSize) {
+                    throw new IOException("corrupt ZIP central directory: " + jar);
+                }
+
+                if (lenName > name.length) {
+                    name = new byte[lenName];
+                }
+
+                cen.position(pos + LEN_CEN);
+                cen.get(name, 0, lenName);
+                String entryName = new String(name, 0, lenName, StandardCharsets.UTF_8);
+
+                if (entryName.equals(SERVICE_PROCESSOR)) {
+                    processor = true;
+                } else {
+                    addEntry(entryName, packages, classes);
+                }
+
+                pos += LEN_CEN + lenName + lenExtra + lenComment;
+            }
+        }
+
+        String[] arrClasses = classes.toArray(new String[0]);
+        Arrays.sort(arrClasses);
+
+        return new Entry(packages.toArray(new String[0]), dedupe(arrClasses), processor);
+    }
+
+    private static void addEntry(String name, SortedSet<String> packages, List<String> classes) {
+        if (!name.endsWith(EXT_CLASS)) {
+            return;
+        }
+
+        if (name.startsWith(PREFIX_VERSIONS)) {
+            int slash = name.indexOf('/', PREFIX_VERSIONS.length());
+
+            if (slash < 0) {
+                return;
+            }
+
+            name = name.substring(slash + 1);
+        } else if (name.startsWith("META-INF/")) {
+            return;
+        }
+
+        String internalName = name.substring(0, name.length() - EXT_CLASS.length());
+        int slash = internalName.lastIndexOf('/');
+        String pkg = slash < 0 ? "" : internalName.substring(0, slash);
+        String simpleName = internalName.substring(slash + 1);
+
+        if (simpleName.equals(MODULE_INFO)) {
+            return;
+        }
+
+        packages.add(pkg);
+
+        if (!simpleName.equals(PACKAGE_INFO)) {
+            classes.add(internalName);
+        }
+    }
+
+    // multi-release JARs list a class once per version
+    private static String[] dedupe(String[] sorted) {
+        int n = 0;
+
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || !sorted[i].equals(sorted[n - 1])) {
+                sorted[n++] = sorted[i];
+            }
+        }
+
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        try (
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        ) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // unknown format, rebuilt from scratch
+                return;
+            }
+
+            int numJars = in.readInt();
+            byte[] sha1 = new byte[20];
+
+            for (int i = 0; i < numJars; i++) {
+                in.readFully(sha1);
+
+                boolean processor = in.readBoolean();
+                int numPackages = in.readInt();
+                String[] packages = new String[numPackages];
+                List<String> classes = new ArrayList<>();
+
+                for (int p = 0; p < numPackages; p++) {
+                    String pkg = in.readUTF();
+                    String prefix = pkg.isEmpty() ? "" : pkg + "/";
+                    int numClasses = in.readInt();
+
+                    packages[p] = pkg;
+
+                    for (int c = 0; c < numClasses; c++) {
+                        classes.add(prefix + in.readUTF());
+                    }
+                }
+
+                String[] arrClasses = classes.toArray(new String[0]);
+                Arrays.sort(arrClasses);
+
+                entries.put(ArtifactHash.toHex(sha1), new Entry(packages, arrClasses, processor));
+            }
+        } catch (IOException e) {
+            // start with an empty index
+            entries.clear();
+        }
+    }
+
+    private void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        Map<String, Entry> sorted = new TreeMap<>(entries);
+
+        try (
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        ) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+
+            for (Map.Entry<String, Entry> me : sorted.entrySet()) {
+                Entry entry = me.getValue();
+
+                Map<String, List<String>> simpleNames = new HashMap<>();
+
+                for (String internalName : entry.classes) {
+                    int slash = internalName.lastIndexOf('/');
+
+                    simpleNames.computeIfAbsent(slash < 0 ? "" : internalName.substring(0, slash), k -> new ArrayList<>())
+                               .add(internalName.substring(slash + 1));
+                }
+
+                out.write(fromHex(me.getKey()));
+                out.writeBoolean(entry.processor);
+                out.writeInt(entry.packages.length);
+
+                for (String pkg : entry.packages) {
+                    List<String> names = simpleNames.getOrDefault(pkg, Collections.emptyList());
+
+                    out.writeUTF(pkg);
+                    out.writeInt(names.size());
+
+                    for (String simpleName : names) {
+                        out.writeUTF(simpleName);
+                    }
+                }
+            }
+        }
+
+        // atomic replace, concurrent sessions never see a partial file
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,243 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * A streaming pull parser of JSON, reading tokens straight from a {@code Reader} without building a tree
+ * <br>
+ * Made for the files written by the plugin itself: the separators "," and ":" are skipped rather than checked.
+ * <br><br>
+ * <pre>
+ * reader.beginArray();
+ * while (reader.hasNext()) {
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         switch (reader.nextName()) {
+ *             case "name": name = reader.nextString(); break;
+ *             default: reader.skipValue();
+ *         }
+ *     }
+ *     reader.endObject();
+ * }
+ * reader.endArray();
+ * </pre>
+ */
+public class JsonReader implements Closeable {
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder sb = new StringBuilder();
+    private int pos = 0;
+    private int limit = 0;
+
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Next significant character without consuming it, -1 at the end of the input
+     */
+    private int peek() throws IOException {
+        while (true) {
+            int c = peekRaw();
+
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ':') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Next character without consuming it, -1 at the end of the input
+     */
+    private int peekRaw() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[pos];
+    }
+
+    private char read() throws IOException {
+        if (peekRaw() < 0) {
+            throw new IOException("unexpected end of JSON input");
+        }
+
+        return buffer[pos++];
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peek();
+
+        if (c != expected) {
+            throw syntaxError("expected '" + expected + "'", c);
+        }
+
+        pos++;
+    }
+
+    private static IOException syntaxError(String message, int c) {
+        return new IOException(message + " but found " + (c < 0 ? "end of input" : "'" + (char)c + "'"));
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    public void endArray() throws IOException {
+        expect(']');
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    public void endObject() throws IOException {
+        expect('}');
+    }
+
+    /**
+     * True if the current array or object has more elements
+     */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        return c != ']' && c != '}' && c >= 0;
+    }
+
+    public String nextName() throws IOException {
+        return nextString();
+    }
+
+    /**
+     * A string, or null for the "null" literal
+     */
+    public String nextString() throws IOException {
+        int c = peek();
+
+        if (c == 'n') {
+            nextLiteral();
+            return null;
+        } else if (c != '"') {
+            throw syntaxError("expected a string", c);
+        }
+
+        pos++;
+        sb.setLength(0);
+
+        while (true) {
+            // copy runs without escapes in one go
+            int start = pos;
+
+            while (pos < limit && buffer[pos] != '"' && buffer[pos] != '\\') {
+                pos++;
+            }
+
+            sb.append(buffer, start, pos - start);
+
+            char ch = read();
+
+            if (ch == '"') {
+                return sb.toString();
+            } else if (ch == '\\') {
+                char escaped = read();
+
+                switch (escaped) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+
+                        for (int i = 0; i < 4; i++) {
+                            code = (code << 4) | Character.digit(read(), 16);
+                        }
+
+                        sb.append((char)code);
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            } else {
+                // the buffer was refilled
+                pos--;
+            }
+        }
+    }
+
+    public int nextInt() throws IOException {
+        String literal = nextLiteral();
+
+        try {
+            return Integer.parseInt(literal);
+        } catch (NumberFormatException e) {
+            throw new IOException("expected an integer but found '" + literal + "'");
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        return Boolean.parseBoolean(nextLiteral());
+    }
+
+    /**
+     * A number, "true", "false" or "null"
+     */
+    private String nextLiteral() throws IOException {
+        sb.setLength(0);
+
+        int c = peek();
+
+        while (c >= 0 && c != ',' && c != ']' && c != '}' && !Character.isWhitespace(c)) {
+            sb.append(read());
+            c = peekRaw();
+        }
+
+        if (sb.length() == 0) {
+            throw syntaxError("expected a value", c);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Skip a value of any type, nested ones included
+     */
+    public void skipValue() throws IOException {
+        int c = peek();
+
+        if (c == '"') {
+            nextString();
+        } else if (c == '[' || c == '{') {
+            pos++;
+
+            while (hasNext()) {
+                skipValue();
+            }
+
+            if (peek() < 0) {
+                throw syntaxError("expected the end of a container", -1);
+            }
+
+            pos++;
+        } else {
+            nextLiteral();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
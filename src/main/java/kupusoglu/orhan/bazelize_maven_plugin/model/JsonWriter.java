@@ -0,0 +1,154 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.IOException;
+import java.util.Collection;
+
+
+/**
+ * A streaming JSON writer appending tokens straight to an {@code Appendable}, e.g. a {@code StringBuilder} or a {@code Writer}
+ * <br>
+ * The model classes write their fields explicitly and in a fixed order with it, so the schema of the temporary files
+ * does not depend on whatever getters a class happens to have, and no reflection is involved:
+ * <br><br>
+ * <pre>
+ * writer.beginObject()
+ *       .name("name").value("central")
+ *       .name("url").value("https://repo1.maven.org/maven2")
+ *       .endObject();
+ * </pre>
+ * <br>
+ * @see JsonReader
+ */
+public class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Appendable out;
+    private boolean first = true;
+    private boolean afterName = false;
+
+
+    public JsonWriter(Appendable out) {
+        this.out = out;
+    }
+
+    // a comma between the elements of a container, none after a name
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (!first) {
+            out.append(',');
+        }
+
+        first = false;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separate();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * A string, or the "null" literal
+     */
+    public JsonWriter value(String value) throws IOException {
+        separate();
+
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.append(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * An array of strings
+     */
+    public JsonWriter value(Collection<String> values) throws IOException {
+        beginArray();
+
+        for (String value : values) {
+            value(value);
+        }
+
+        return endArray();
+    }
+
+    public JsonWriter value(String[] values) throws IOException {
+        beginArray();
+
+        if (values != null) {
+            for (String value : values) {
+                value(value);
+            }
+        }
+
+        return endArray();
+    }
+
+    private void string(String value) throws IOException {
+        int length = value.length();
+        int start = 0;
+
+        out.append('"');
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\' || c < 0x20) {
+                // copy runs without escapes in one go
+                out.append(value, start, i);
+                start = i + 1;
+
+                switch (c) {
+                    case '"': out.append("\\\""); break;
+                    case '\\': out.append("\\\\"); break;
+                    case '\n': out.append("\\n"); break;
+                    case '\r': out.append("\\r"); break;
+                    case '\t': out.append("\\t"); break;
+                    default:
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                }
+            }
+        }
+
+        out.append(value, start, length);
+        out.append('"');
+    }
+}
@@ -1,6 +1,13 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 
 /**
@@ -24,6 +31,24 @@ import java.util.Optional;
  *     sha1 = "0235ba8b489512805ac13a8f9ea77a1ca5ebe3e8",
  * )
  * </pre>
+ * <br>
+ * Since Bazel's repository cache is content-addressed by SHA-256, JARs can be pinned with "jvm_import_external()", too.
+ * <br>
+ * @see <a href="https://docs.bazel.build/versions/master/repository-cache.html">Bazel repository cache</a>
+ * <br><br>
+ * <pre>
+ * jvm_import_external(
+ *     name = "aopalliance_aopalliance_1_0",
+ *     rule_name = "java_import",
+ *     artifact_urls = ["https://repo1.maven.org/maven2/aopalliance/aopalliance/1.0/aopalliance-1.0.jar"],
+ *     artifact_sha256 = "0addec670fedcd3f113c5c8091d783280d23f75e3acb841b61a9cdb079376a08",
+ *     licenses = ["notice"],
+ * )
+ * </pre>
+ * <br>
+ * The "licenses" attribute is set by the "licenses" parameter, "notice" by default.
+ * <br>
+ * For air-gapped agents the same rule can read the JARs straight from the local Maven repository with "file://" URLs.
  */
 public class MavenDependency implements Comparable<MavenDependency> {
     private String name;
@@ -33,6 +58,9 @@ public class MavenDependency implements Comparable<MavenDependency> {
     private Optional<String> scope;
     private Optional<String> server;
     private Optional<String> hash;
+    private Optional<String> sha256 = Optional.empty();
+    private SortedSet<String> dependencies = new TreeSet<>();
+    private int depth = 0;
 
     private static final String BZL_MAVEN_JAR = "maven_jar";
     private static final String BZL_NAME = "name";
@@ -40,6 +68,24 @@ public class MavenDependency implements Comparable<MavenDependency> {
     private static final String BZL_SERVER = "server";
     private static final String BZL_SHA1 = "sha1";
     private static final String BZL_CENTRAL = "central";
+    private static final String BZL_JVM_IMPORT = "jvm_import_external";
+    private static final String BZL_RULE_NAME = "rule_name";
+    private static final String BZL_JAVA_IMPORT = "java_import";
+    private static final String BZL_ARTIFACT_URLS = "artifact_urls";
+    private static final String BZL_ARTIFACT_SHA256 = "artifact_sha256";
+    private static final String BZL_LICENSES = "licenses";
+    private static final String URL_CENTRAL = "https://repo1.maven.org/maven2";
+
+    public static final String JSON_NAME = "name";
+    public static final String JSON_GROUP_ID = "groupId";
+    public static final String JSON_ARTIFACT_ID = "artifactId";
+    public static final String JSON_VERSION = "version";
+    public static final String JSON_SCOPE = "scope";
+    public static final String JSON_SERVER = "server";
+    public static final String JSON_HASH = "hash";
+    public static final String JSON_SHA256 = "sha256";
+    public static final String JSON_DEPTH = "depth";
+    public static final String JSON_DEPENDENCIES = "dependencies";
 
 
     public MavenDependency() {
@@ -48,7 +94,7 @@ public class MavenDependency implements Comparable<MavenDependency> {
 
     public MavenDependency(String groupId, String artifactId, String version) {
         this();
-        this.name = Common.sanitize(groupId + Common.getSepSanitize() + artifactId + Common.getSepSanitize() + version);
+        this.name = DependencyLabels.getInstance().name(groupId, artifactId, version);
         this.groupId = groupId;
         this.artifactId = artifactId;
         this.version = version;
@@ -125,6 +171,40 @@ public class MavenDependency implements Comparable<MavenDependency> {
         this.hash = Optional.of(hash);
     }
 
+    public String getSha256() {
+        return this.sha256.orElse("");
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = Optional.ofNullable(sha256);
+    }
+
+    /**
+     * Direct dependencies as "groupId:artifactId", in the resolved dependency tree
+     */
+    public SortedSet<String> getDependencies() {
+        return this.dependencies;
+    }
+
+    public void setDependencies(Collection<String> dependencies) {
+        this.dependencies = new TreeSet<>(dependencies);
+    }
+
+    public void addDependencies(Collection<String> dependencies) {
+        this.dependencies.addAll(dependencies);
+    }
+
+    /**
+     * Distance from the module in the dependency tree, 1 for a direct dependency, 0 if unknown
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
     public String getArtifact() {
         return this.groupId + ":" + this.artifactId + ":" + this.version;
     }
@@ -170,7 +250,7 @@ public class MavenDependency implements Comparable<MavenDependency> {
               .append(BZL_SHA1)
               .append(" = ")
               .append("\"")
-              .append(this.hash)
+              .append(this.hash.get())
               .append("\"")
               .append(",\n");
         }
@@ -179,6 +259,188 @@ public class MavenDependency implements Comparable<MavenDependency> {
                  .toString();
     }
 
+    /**
+     * Versionless coordinate, e.g. "aopalliance:aopalliance"
+     */
+    public String retrieveCoordinate() {
+        return this.groupId + ":" + this.artifactId;
+    }
+
+    /**
+     * Versionless name, e.g. "aopalliance_aopalliance", as used by rules_jvm_external for its targets
+     */
+    public String retrieveVersionlessName() {
+        return DependencyLabels.getInstance().name(this.groupId, this.artifactId, null);
+    }
+
+    /**
+     * Path of the JAR in the Maven repository layout, e.g. "aopalliance/aopalliance/1.0/aopalliance-1.0.jar"
+     */
+    public String retrieveRelativePath() {
+        return this.groupId.replace('.', '/')
+               + "/" + this.artifactId
+               + "/" + this.version
+               + "/" + this.artifactId + "-" + this.version + ".jar";
+    }
+
+    /**
+     * URL of the JAR on the given repository server, Maven Central if the server URL is empty
+     */
+    public String retrieveUrl(String serverUrl) {
+        String base = (serverUrl == null || serverUrl.isEmpty()) ? URL_CENTRAL : serverUrl;
+
+        if (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+
+        return base + "/" + retrieveRelativePath();
+    }
+
+    /**
+     * URL of the JAR in the given local repository, e.g. "file:///home/me/.m2/repository/aopalliance/..."
+     */
+    public String retrieveLocalUrl(Path localRepo) {
+        return localRepo.toAbsolutePath().resolve(retrieveRelativePath()).toUri().toString();
+    }
+
+    /**
+     * Write the fields in a fixed order, the artifact is derived from the coordinates hence left out
+     */
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject()
+              .name(JSON_NAME).value(getName())
+              .name(JSON_GROUP_ID).value(this.groupId)
+              .name(JSON_ARTIFACT_ID).value(this.artifactId)
+              .name(JSON_VERSION).value(this.version)
+              .name(JSON_SCOPE).value(getScope())
+              .name(JSON_SERVER).value(getServer())
+              .name(JSON_HASH).value(getHash())
+              .name(JSON_SHA256).value(getSha256())
+              .name(JSON_DEPTH).value(this.depth)
+              .name(JSON_DEPENDENCIES).value(this.dependencies)
+              .endObject();
+    }
+
+    public String outputAsJson() {
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            writeJson(new JsonWriter(sb));
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Read an object written by {@link #writeJson(JsonWriter)}, unknown keys are skipped
+     */
+    public static MavenDependency readJson(JsonReader reader) throws IOException {
+        MavenDependency dep = new MavenDependency();
+        String name = null;
+
+        dep.scope = Optional.empty();
+        dep.server = Optional.empty();
+        dep.hash = Optional.empty();
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case JSON_NAME: name = reader.nextString(); break;
+                case JSON_GROUP_ID: dep.groupId = reader.nextString(); break;
+                case JSON_ARTIFACT_ID: dep.artifactId = reader.nextString(); break;
+                case JSON_VERSION: dep.version = reader.nextString(); break;
+                case JSON_SCOPE: dep.scope = Optional.ofNullable(reader.nextString()); break;
+                case JSON_SERVER: dep.server = Optional.ofNullable(reader.nextString()); break;
+                case JSON_HASH: dep.hash = Optional.ofNullable(reader.nextString()); break;
+                case JSON_SHA256: dep.sha256 = Optional.ofNullable(reader.nextString()); break;
+                case JSON_DEPTH: dep.depth = reader.nextInt(); break;
+                case JSON_DEPENDENCIES:
+                    reader.beginArray();
+
+                    while (reader.hasNext()) {
+                        dep.dependencies.add(reader.nextString());
+                    }
+
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        if (dep.groupId == null || dep.artifactId == null || dep.version == null) {
+            throw new IOException("dependency without coordinates");
+        }
+
+        dep.name = name != null ? name : DependencyLabels.getInstance().name(dep.groupId, dep.artifactId, dep.version);
+
+        return dep;
+    }
+
+    public static String outputAsBazelImportLoad() {
+        return "load(\"@bazel_tools//tools/build_defs/repo:jvm.bzl\", \"" + BZL_JVM_IMPORT + "\")\n";
+    }
+
+    public String outputAsBazelImport(String url, List<Common.LICENSE> licenses) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(BZL_JVM_IMPORT)
+          .append("(\n")
+          .append(Common.getIndentOne())
+          .append(BZL_NAME)
+          .append(" = ")
+          .append("\"")
+          .append(this.name)
+          .append("\"")
+          .append(",\n")
+          .append(Common.getIndentOne())
+          .append(BZL_RULE_NAME)
+          .append(" = ")
+          .append("\"")
+          .append(BZL_JAVA_IMPORT)
+          .append("\"")
+          .append(",\n")
+          .append(Common.getIndentOne())
+          .append(BZL_ARTIFACT_URLS)
+          .append(" = [")
+          .append("\"")
+          .append(url)
+          .append("\"")
+          .append("],\n");
+
+        if (this.sha256.isPresent() && !this.sha256.get().isEmpty()) {
+            sb.append(Common.getIndentOne())
+              .append(BZL_ARTIFACT_SHA256)
+              .append(" = ")
+              .append("\"")
+              .append(this.sha256.get())
+              .append("\"")
+              .append(",\n");
+        }
+
+        sb.append(Common.getIndentOne())
+          .append(BZL_LICENSES)
+          .append(" = [");
+
+        for (int i = 0; i < licenses.size(); i++) {
+            sb.append(i == 0 ? "" : ", ")
+              .append("\"")
+              .append(licenses.get(i))
+              .append("\"");
+        }
+
+        sb.append("],\n");
+
+        return sb.append(")\n")
+                 .toString();
+    }
+
     @Override
     public boolean equals(Object o) {
         return (o instanceof MavenDependency) && (((MavenDependency)o).getName()).equals(this.getName());
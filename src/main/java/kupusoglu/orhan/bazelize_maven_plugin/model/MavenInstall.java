@@ -0,0 +1,340 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+
+/**
+ * Generate a single <strong>rules_jvm_external</strong> "maven_install()" declaration with its pinned lock file
+ * <br>
+ * @see <a href="https://github.com/bazelbuild/rules_jvm_external">rules_jvm_external</a>
+ * <br>
+ * Bazel fetches all pinned JARs in parallel and does not resolve the dependency tree again, the lock file is written
+ * from the dependency data of the <strong>build</strong> goal, the SHA-256 of the JARs in the local repository and
+ * their dependencies as resolved by Maven, no network access is needed.
+ * <br>
+ * A sample is given below:
+ * <br><br>
+ * <pre>
+ * load("@rules_jvm_external//:defs.bzl", "maven_install")
+ *
+ * maven_install(
+ *     artifacts = [
+ *         "aopalliance:aopalliance:1.0",
+ *     ],
+ *     repositories = [
+ *         "https://repo1.maven.org/maven2",
+ *     ],
+ *     maven_install_json = "//:maven_install.json",
+ *     fail_if_repin_required = False,
+ * )
+ *
+ * load("@maven//:defs.bzl", "pinned_maven_install")
+ *
+ * pinned_maven_install()
+ * </pre>
+ * <br>
+ * The lock file carries the hashes rules_jvm_external checks, Starlark's "hash()" of the "repr()" of its inputs, which
+ * is Java's {@code String.hashCode()}: "__RESOLVED_ARTIFACTS_HASH" of the artifacts, dependencies and repositories of
+ * the lock file, "__INPUT_ARTIFACTS_HASH" of the artifacts and repositories of the declaration. The lock file is written
+ * again with each WORKSPACE, so a differing input hash of another rules_jvm_external version only warns.
+ */
+public class MavenInstall {
+    private Collection<MavenDependency> dependencies;
+    private Map<String, MavenServer> servers;
+
+    private static final String REPOSITORY_NAME = "maven";
+    private static final String URL_CENTRAL = "https://repo1.maven.org/maven2";
+    private static final String LOCK_FILE_VERSION = "2";
+
+
+    public MavenInstall(Collection<MavenDependency> dependencies, Map<String, MavenServer> servers) {
+        this.dependencies = dependencies;
+        this.servers = servers;
+    }
+
+    public static String getRepositoryName() {
+        return REPOSITORY_NAME;
+    }
+
+    /**
+     * Repository URL of the dependency, without a trailing slash, Maven Central if its server is unknown
+     */
+    private String retrieveRepository(MavenDependency dep) {
+        MavenServer srv = servers.get(dep.getServer());
+        String url = (srv == null || srv.getUrl() == null || srv.getUrl().isEmpty()) ? URL_CENTRAL : srv.getUrl();
+
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private SortedSet<String> retrieveRepositories() {
+        SortedSet<String> repositories = new TreeSet<>();
+
+        for (MavenDependency dep : dependencies) {
+            repositories.add(retrieveRepository(dep));
+        }
+
+        return repositories;
+    }
+
+    public String outputAsBazelInstall() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("load(\"@rules_jvm_external//:defs.bzl\", \"maven_install\")\n")
+          .append("\n")
+          .append("maven_install(\n")
+          .append(Common.getIndentOne())
+          .append("artifacts = [\n");
+
+        for (MavenDependency dep : dependencies) {
+            sb.append(Common.getIndentTwo())
+              .append("\"")
+              .append(dep.getArtifact())
+              .append("\",\n");
+        }
+
+        sb.append(Common.getIndentOne())
+          .append("],\n")
+          .append(Common.getIndentOne())
+          .append("repositories = [\n");
+
+        for (String repository : retrieveRepositories()) {
+            sb.append(Common.getIndentTwo())
+              .append("\"")
+              .append(repository)
+              .append("\",\n");
+        }
+
+        return sb.append(Common.getIndentOne())
+                 .append("],\n")
+                 .append(Common.getIndentOne())
+                 .append("maven_install_json = \"//:")
+                 .append(Common.OUTPUT_FILES.MAVEN_INSTALL_JSON)
+                 .append("\",\n")
+                 .append(Common.getIndentOne())
+                 .append("fail_if_repin_required = False,\n")
+                 .append(")\n")
+                 .append("\n")
+                 .append("load(\"@")
+                 .append(REPOSITORY_NAME)
+                 .append("//:defs.bzl\", \"pinned_maven_install\")\n")
+                 .append("\n")
+                 .append("pinned_maven_install()\n")
+                 .toString();
+    }
+
+    /**
+     * Lock file in the version 2 format of rules_jvm_external, keys are sorted so that it is stable between runs
+     */
+    public String outputAsLockFile() {
+        SortedMap<String, Map<String, Object>> artifacts = new TreeMap<>();
+        SortedMap<String, List<String>> children = new TreeMap<>();
+        SortedMap<String, List<String>> repositories = new TreeMap<>();
+
+        for (MavenDependency dep : dependencies) {
+            Map<String, Object> shasums = new LinkedHashMap<>();
+            Map<String, Object> artifact = new LinkedHashMap<>();
+
+            shasums.put("jar", dep.getSha256().isEmpty() ? null : dep.getSha256());
+            artifact.put("shasums", shasums);
+            artifact.put("version", dep.getVersion());
+            artifacts.put(dep.retrieveCoordinate(), artifact);
+        }
+
+        for (MavenDependency dep : dependencies) {
+            SortedSet<String> pinned = new TreeSet<>(dep.getDependencies());
+
+            // edges to artifacts not pinned here, e.g. black-listed ones, would not resolve
+            pinned.retainAll(artifacts.keySet());
+
+            if (!pinned.isEmpty()) {
+                children.put(dep.retrieveCoordinate(), new ArrayList<>(pinned));
+            }
+
+            repositories.computeIfAbsent(retrieveRepository(dep) + "/", k -> new ArrayList<>())
+                        .add(dep.retrieveCoordinate());
+        }
+
+        for (List<String> coordinates : repositories.values()) {
+            Collections.sort(coordinates);
+        }
+
+        // the order of the file, the keys sorted
+        Map<String, Object> resolved = new LinkedHashMap<>();
+
+        resolved.put("artifacts", artifacts);
+        resolved.put("dependencies", children);
+        resolved.put("repositories", repositories);
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{\n")
+          .append(Common.getIndentOne())
+          .append("\"__AUTOGENERATED_FILE_DO_NOT_MODIFY_THIS_FILE_MANUALLY\": \"THERE_IS_NO_DATA_ONLY_ZUUL\",\n")
+          .append(Common.getIndentOne())
+          .append("\"__INPUT_ARTIFACTS_HASH\": ")
+          .append(computeInputHash())
+          .append(",\n")
+          .append(Common.getIndentOne())
+          .append("\"__RESOLVED_ARTIFACTS_HASH\": ")
+          .append(repr(resolved).hashCode())
+          .append(",\n");
+
+        for (Map.Entry<String, Object> me : resolved.entrySet()) {
+            sb.append(Common.getIndentOne())
+              .append(JSONObject.quote(me.getKey()))
+              .append(": {");
+
+            Iterator<Map.Entry<String, Object>> iterator = asMap(me.getValue()).entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String, Object> entry = iterator.next();
+
+                sb.append("\n")
+                  .append(Common.getIndentTwo())
+                  .append(JSONObject.quote(entry.getKey()))
+                  .append(": ")
+                  .append(outputAsJson(entry.getValue()))
+                  .append(iterator.hasNext() ? "," : "\n" + Common.getIndentOne());
+            }
+
+            sb.append("},\n");
+        }
+
+        return sb.append(Common.getIndentOne())
+                 .append("\"version\": \"")
+                 .append(LOCK_FILE_VERSION)
+                 .append("\"\n")
+                 .append("}\n")
+                 .toString();
+    }
+
+    /**
+     * Hash of the inputs of the declaration: each artifact as "artifact=...:group=...:version=...", each repository as
+     * its JSON "{"repo_url":"..."}", both sorted
+     */
+    int computeInputHash() {
+        List<String> artifacts = new ArrayList<>();
+        List<String> repositories = new ArrayList<>();
+
+        for (MavenDependency dep : dependencies) {
+            artifacts.add("artifact=" + dep.getArtifactId() + ":group=" + dep.getGroupId() + ":version=" + dep.getVersion());
+        }
+
+        for (String repository : retrieveRepositories()) {
+            repositories.add("{\"repo_url\":" + JSONObject.quote(repository) + "}");
+        }
+
+        Collections.sort(artifacts);
+        Collections.sort(repositories);
+
+        return repr(artifacts).hashCode() ^ repr(repositories).hashCode();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>)value;
+    }
+
+    /**
+     * Compact JSON of a value of the lock file, a string, a list or a map
+     */
+    private static String outputAsJson(Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof Map) {
+            StringBuilder sb = new StringBuilder("{");
+            Iterator<Map.Entry<String, Object>> iterator = asMap(value).entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String, Object> me = iterator.next();
+
+                sb.append(JSONObject.quote(me.getKey()))
+                  .append(": ")
+                  .append(outputAsJson(me.getValue()))
+                  .append(iterator.hasNext() ? ", " : "");
+            }
+
+            return sb.append("}").toString();
+        } else if (value instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            Iterator<?> iterator = ((List<?>)value).iterator();
+
+            while (iterator.hasNext()) {
+                sb.append(outputAsJson(iterator.next()))
+                  .append(iterator.hasNext() ? ", " : "");
+            }
+
+            return sb.append("]").toString();
+        }
+
+        return JSONObject.quote(value.toString());
+    }
+
+    /**
+     * Starlark's "repr()" of a value of the lock file, e.g. {"jar": None} or ["a", "b"]
+     */
+    static String repr(Object value) {
+        if (value == null) {
+            return "None";
+        } else if (value instanceof Map) {
+            StringBuilder sb = new StringBuilder("{");
+            Iterator<Map.Entry<String, Object>> iterator = asMap(value).entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String, Object> me = iterator.next();
+
+                sb.append(repr(me.getKey()))
+                  .append(": ")
+                  .append(repr(me.getValue()))
+                  .append(iterator.hasNext() ? ", " : "");
+            }
+
+            return sb.append("}").toString();
+        } else if (value instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            Iterator<?> iterator = ((List<?>)value).iterator();
+
+            while (iterator.hasNext()) {
+                sb.append(repr(iterator.next()))
+                  .append(iterator.hasNext() ? ", " : "");
+            }
+
+            return sb.append("]").toString();
+        }
+
+        String s = value.toString();
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c == 0x7f) {
+                        sb.append(String.format("\\x%02x", (int)c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+}
@@ -1,11 +1,13 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
 import org.apache.maven.plugin.logging.Log;
-import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -23,6 +25,14 @@ public class MavenMeta implements Comparable<MavenMeta> {
     private String blackList;
     private String[] source;
 
+    public static final String JSON_ROOT_DIR = "rootDir";
+    public static final String JSON_REL_DIR = "relDir";
+    public static final String JSON_GROUP_ID = "groupId";
+    public static final String JSON_ARTIFACT_ID = "artifactId";
+    public static final String JSON_VERSION = "version";
+    public static final String JSON_PACKAGING = "packaging";
+    public static final String JSON_SOURCE = "source";
+
 
     public MavenMeta() {
         super();
@@ -115,7 +125,7 @@ public class MavenMeta implements Comparable<MavenMeta> {
     }
 
     public String retrieveName() {
-        return Common.sanitize(groupId + Common.getSepSanitize() + artifactId + Common.getSepSanitize() + version);
+        return Common.sanitize(groupId, artifactId, version);
     }
 
     private boolean isAnySource() {
@@ -165,19 +175,93 @@ public class MavenMeta implements Comparable<MavenMeta> {
         }
     }
 
+    public static Common.Dependency toDependency(MavenMeta m) {
+        return new Common.Dependency(m.retrieveName(),
+                                     m.retrieveLabel(),
+                                     m.getSource(),
+                                     m.getRelDir().toString(),
+                                     m.retrieveArtifact());
+    }
+
     public static String outputAsMetaData(MavenMeta m) {
-        Common.Dependency dep = new Common.Dependency(m.retrieveName(),
-                                                      m.retrieveLabel(),
-                                                      m.getSource(),
-                                                      m.getRelDir().toString(),
-                                                      m.retrieveArtifact());
-        JSONObject jsonObject = new JSONObject(dep);
-        return jsonObject.toString();
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            toDependency(m).writeJson(new JsonWriter(sb));
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+
+        return sb.toString();
     }
 
     public static String getMetaData(MavenMeta m) {
-        JSONObject jsonObject = new JSONObject(m);
-        return jsonObject.toString();
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            m.writeJson(new JsonWriter(sb));
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+
+        return sb.toString();
+    }
+
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject()
+              .name(JSON_ROOT_DIR).value(this.rootDir == null ? null : this.rootDir.toString())
+              .name(JSON_REL_DIR).value(this.relDir == null ? null : this.relDir.toString())
+              .name(JSON_GROUP_ID).value(this.groupId)
+              .name(JSON_ARTIFACT_ID).value(this.artifactId)
+              .name(JSON_VERSION).value(this.version)
+              .name(JSON_PACKAGING).value(this.packaging)
+              .name(JSON_SOURCE).value(this.source)
+              .endObject();
+    }
+
+    /**
+     * Read an object written by {@link #writeJson(JsonWriter)}, unknown keys are skipped
+     */
+    public static MavenMeta readJson(Log log, JsonReader reader) throws IOException {
+        MavenMeta meta = new MavenMeta();
+        List<String> source = new ArrayList<>();
+
+        meta.log = log;
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case JSON_ROOT_DIR: meta.rootDir = Paths.get(reader.nextString()); break;
+                case JSON_REL_DIR: meta.relDir = Paths.get(reader.nextString()); break;
+                case JSON_GROUP_ID: meta.groupId = reader.nextString(); break;
+                case JSON_ARTIFACT_ID: meta.artifactId = reader.nextString(); break;
+                case JSON_VERSION: meta.version = reader.nextString(); break;
+                case JSON_PACKAGING: meta.packaging = reader.nextString(); break;
+                case JSON_SOURCE:
+                    reader.beginArray();
+
+                    while (reader.hasNext()) {
+                        source.add(reader.nextString());
+                    }
+
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        if (meta.rootDir == null || meta.relDir == null) {
+            throw new IOException("meta data without directories");
+        }
+
+        meta.source = source.toArray(new String[0]);
+
+        return meta;
     }
 
     @Override
@@ -1,5 +1,6 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
+import java.io.IOException;
 import java.util.Optional;
 
 
@@ -21,10 +22,16 @@ import java.util.Optional;
  * </pre>
  */
 public class MavenServer implements Comparable<MavenServer> {
+    private static Template TEMPLATE_WITHOUT_SETTINGS;
+
     private String name;
     private String url;
     private String settings_file;
 
+    public static final String JSON_NAME = "name";
+    public static final String JSON_URL = "url";
+    public static final String JSON_SETTINGS_FILE = "settingsFile";
+
 
     public MavenServer() {
         super();
@@ -42,7 +49,7 @@ public class MavenServer implements Comparable<MavenServer> {
     }
 
     public String getName() {
-        return Optional.of(this.name).orElse("");
+        return Optional.ofNullable(this.name).orElse("");
     }
 
     public String setName(String name) {
@@ -65,28 +72,67 @@ public class MavenServer implements Comparable<MavenServer> {
         return this.settings_file = settings_file;
     }
 
-    public String outputAsBazelServer() {
-        String contentServer = Common.getTemplateServer();
-
-        contentServer = contentServer.replaceFirst("#SERVER_NAME#", Common.sanitize(this.name))
-                                     .replaceFirst("#SERVER_URL#", this.url);
-
-        if (this.settings_file == null || this.settings_file.isEmpty()) {
+    /**
+     * The server template without the line of the settings file, its other lines joined
+     */
+    private static synchronized Template getTemplateWithoutSettings() {
+        if (TEMPLATE_WITHOUT_SETTINGS == null) {
             StringBuilder sb = new StringBuilder();
-            String[] lines = contentServer.split("\n");
 
-            for (String line : lines) {
+            for (String line : Common.getTemplateServer().getText().split("\n")) {
                 if (!line.contains("#SETTINGS_FILE#")) {
                     sb.append(line);
                 }
             }
 
-            contentServer = sb.toString();
+            TEMPLATE_WITHOUT_SETTINGS = Template.compile(sb.toString());
+        }
+
+        return TEMPLATE_WITHOUT_SETTINGS;
+    }
+
+    public String outputAsBazelServer() {
+        if (this.settings_file == null || this.settings_file.isEmpty()) {
+            return getTemplateWithoutSettings().with("SERVER_NAME", Common.sanitize(this.name))
+                                               .with("SERVER_URL", this.url)
+                                               .render();
         } else {
-            contentServer = contentServer.replaceFirst("#SETTINGS_FILE#", this.settings_file);
+            return Common.getTemplateServer().with("SERVER_NAME", Common.sanitize(this.name))
+                                             .with("SERVER_URL", this.url)
+                                             .with("SETTINGS_FILE", this.settings_file)
+                                             .render();
         }
+    }
+
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject()
+              .name(JSON_NAME).value(this.name)
+              .name(JSON_URL).value(this.url)
+              .name(JSON_SETTINGS_FILE).value(this.settings_file)
+              .endObject();
+    }
+
+    /**
+     * Read an object written by {@link #writeJson(JsonWriter)}, unknown keys are skipped
+     */
+    public static MavenServer readJson(JsonReader reader) throws IOException {
+        MavenServer srv = new MavenServer();
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case JSON_NAME: srv.name = reader.nextString(); break;
+                case JSON_URL: srv.url = reader.nextString(); break;
+                case JSON_SETTINGS_FILE: srv.settings_file = reader.nextString(); break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
 
-        return contentServer;
+        return srv;
     }
 
     @Override
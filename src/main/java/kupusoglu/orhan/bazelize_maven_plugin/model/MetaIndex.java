@@ -0,0 +1,282 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Sorted, memory-mapped index of the meta data file, written next to it by the <strong>meta</strong> goal
+ * <br>
+ * A lookup is a binary search over the record offsets, only the record found is decoded, thus the meta data of
+ * thousands of modules is neither parsed nor kept on the heap to answer a few hundred lookups.
+ * Records are sorted by the UTF-8 bytes of the sanitized module name:
+ * <br><br>
+ * <pre>
+ * header:  | magic | version | size of meta data | last modified of meta data | count |
+ * offsets: | record offset | ... |
+ * record:  | name | label | dir | jar | number of sources | source | ... |
+ * </pre>
+ * <br>
+ * A string is its length as a short, -1 for null, followed by its UTF-8 bytes. The size and the modification time of
+ * the meta data file are recorded, so an index left behind by an earlier run is ignored rather than trusted.
+ */
+public class MetaIndex {
+    private static final int MAGIC = 0x425a4d49;
+    private static final int VERSION = 1;
+    private static final int HEADER = 28;
+    private static final String EXT_TMP = ".tmp";
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final AtomicReferenceArray<Common.Dependency> decoded;
+
+
+    private MetaIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(HEADER - 4);
+        this.decoded = new AtomicReferenceArray<>(this.size);
+    }
+
+    /**
+     * Write the index of the given dependencies, the meta data file must be complete and closed
+     */
+    public static void write(Path file, Path fileMeta, Collection<Common.Dependency> deps) throws IOException {
+        // the last one wins on duplicate names, as in a map
+        Map<String, Common.Dependency> byName = new LinkedHashMap<>();
+
+        for (Common.Dependency dep : deps) {
+            byName.put(dep.getName(), dep);
+        }
+
+        List<byte[]> records = new ArrayList<>(byName.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+
+        for (Common.Dependency dep : byName.values()) {
+            bytes.reset();
+            writeString(record, dep.getName());
+            writeString(record, dep.getLabel());
+            writeString(record, dep.getDir());
+            writeString(record, dep.getJar());
+
+            String[] sources = dep.getSources() == null ? new String[0] : dep.getSources();
+            record.writeInt(sources.length);
+
+            for (String source : sources) {
+                writeString(record, source);
+            }
+
+            records.add(bytes.toByteArray());
+        }
+
+        // a record starts with its name
+        records.sort((x, y) -> compare(ByteBuffer.wrap(x), 0, name(y)));
+
+        Path fileTmp = file.resolveSibling(file.getFileName() + EXT_TMP);
+
+        try (
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fileTmp)));
+        ) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(fileMeta));
+            out.writeLong(Files.getLastModifiedTime(fileMeta).toMillis());
+            out.writeInt(records.size());
+
+            int offset = HEADER + 4 * records.size();
+
+            for (byte[] r : records) {
+                out.writeInt(offset);
+                offset += r.length;
+            }
+
+            for (byte[] r : records) {
+                out.write(r);
+            }
+        }
+
+        Files.move(fileTmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The index of the given meta data file, null if missing or out of date
+     */
+    public static MetaIndex open(Path file, Path fileMeta) throws IOException {
+        if (!Files.isRegularFile(file) || !Files.isRegularFile(fileMeta)) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+
+        try (
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        ) {
+            if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("invalid meta index: " + file);
+            }
+
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("invalid meta index: " + file);
+        }
+
+        if (buffer.getLong(8) != Files.size(fileMeta)
+            || buffer.getLong(16) != Files.getLastModifiedTime(fileMeta).toMillis()) {
+            return null;
+        }
+
+        return new MetaIndex(buffer);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The dependency of the given module name, null if unknown - safe for concurrent lookups
+     * <br>
+     * An ASCII name is compared as is, without encoding it, and a record is decoded once.
+     */
+    public Common.Dependency get(String name) {
+        byte[] key = isAscii(name) ? null : name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = buffer.getInt(HEADER + 4 * mid);
+            int cmp = key == null ? compare(buffer, offset, name) : compare(buffer, offset, key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                Common.Dependency dep = decoded.get(mid);
+
+                if (dep == null) {
+                    decoded.compareAndSet(mid, null, read(offset));
+                    dep = decoded.get(mid);
+                }
+
+                return dep;
+            }
+        }
+
+        return null;
+    }
+
+    private Common.Dependency read(int offset) {
+        // relative reads on a view of its own, the shared buffer keeps its position
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+
+        String name = readString(record);
+        String label = readString(record);
+        String dir = readString(record);
+        String jar = readString(record);
+        String[] sources = new String[record.getInt()];
+
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = readString(record);
+        }
+
+        return new Common.Dependency(name, label, sources, dir, jar);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IOException("string too long for the meta index: " + s.substring(0, 64) + "...");
+            }
+
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] name(byte[] record) {
+        int length = ByteBuffer.wrap(record).getShort();
+
+        return Arrays.copyOfRange(record, 2, 2 + Math.max(length, 0));
+    }
+
+    /**
+     * Compare the name of the record at the given offset with the key, byte by byte as unsigned values
+     */
+    private static int compare(ByteBuffer buffer, int offset, byte[] key) {
+        int length = Math.max(buffer.getShort(offset), 0);
+        int n = Math.min(length, key.length);
+
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(buffer.get(offset + 2 + i) & 0xff, key[i] & 0xff);
+
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return Integer.compare(length, key.length);
+    }
+
+    private static int compare(ByteBuffer buffer, int offset, String ascii) {
+        int length = Math.max(buffer.getShort(offset), 0);
+        int n = Math.min(length, ascii.length());
+
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(buffer.get(offset + 2 + i) & 0xff, ascii.charAt(i));
+
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return Integer.compare(length, ascii.length());
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
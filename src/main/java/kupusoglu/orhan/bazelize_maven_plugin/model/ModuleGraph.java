@@ -0,0 +1,294 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * The graph of the modules of the reactor, with an edge from each module to the modules it depends on
+ * <br>
+ * The edges come from the dependencies saved by the <strong>build</strong> goal in the {@link IntermediateStore},
+ * a dependency is a module if {@link Common#queryLibrary(String)} knows it. Only direct dependencies count,
+ * the transitive ones would merely repeat paths of the graph.
+ * <br>
+ * Bazel rejects cycles, so they are reported with one path each, e.g. "a -&gt; b -&gt; c -&gt; a".
+ * The graph is exported as JSON and as DOT, modules in topological order, dependencies first:
+ * <br><br>
+ * <pre>
+ * $ dot -Tsvg tmp-bzl-module-graph.dot -o modules.svg
+ * </pre>
+ */
+public class ModuleGraph {
+    private final DependencyGraph<String> graph = new DependencyGraph<>();
+    private final SortedMap<String, String> labels = new TreeMap<>();
+    private List<int[]> components;
+
+
+    /**
+     * Build the graph of the modules with a label, from their saved dependencies
+     */
+    public static ModuleGraph read(Path root) throws IOException {
+        ModuleGraph moduleGraph = new ModuleGraph();
+        SortedMap<String, Common.Dependency> libraries = new TreeMap<>();
+
+        for (Common.Dependency library : Common.queryLibraries()) {
+            if (!library.getLabel().isEmpty()) {
+                libraries.put(library.getName(), library);
+                moduleGraph.addModule(library.getName(), library.getLabel());
+            }
+        }
+
+        try (
+            IntermediateStore.Index index = IntermediateStore.open(root);
+        ) {
+            for (Common.Dependency library : libraries.values()) {
+                String key = IntermediateStore.key(root, root.resolve(library.getDir() == null ? "" : library.getDir()));
+
+                for (MavenDependency dep : CreateWorkspace.readDependencies(index, key)) {
+                    // depth 0: saved before the depth was recorded
+                    if (dep.getDepth() <= 1 && libraries.containsKey(dep.getName())) {
+                        moduleGraph.addEdge(library.getName(), dep.getName());
+                    }
+                }
+            }
+        }
+
+        return moduleGraph;
+    }
+
+    public void addModule(String name, String label) {
+        graph.addNode(name);
+        labels.put(name, label);
+        components = null;
+    }
+
+    public void addEdge(String from, String to) {
+        graph.addEdge(from, to);
+        components = null;
+    }
+
+    public DependencyGraph<String> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Strongly connected components, in reverse topological order
+     */
+    public List<int[]> getComponents() {
+        if (components == null) {
+            components = graph.components();
+        }
+
+        return components;
+    }
+
+    /**
+     * One path per cycle, the first module repeated at the end
+     */
+    public List<List<String>> findCycles() {
+        List<List<String>> cycles = new ArrayList<>();
+
+        for (int[] component : getComponents()) {
+            int start = component[0];
+
+            if (component.length > 1 || graph.hasEdge(start, start)) {
+                cycles.add(findCycle(start, component));
+            }
+        }
+
+        return cycles;
+    }
+
+    /**
+     * Shortest path from the given module back to itself, by a breadth-first search within its component
+     */
+    private List<String> findCycle(int start, int[] component) {
+        BitSet members = new BitSet();
+        int[] parent = new int[graph.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int last = -1;
+
+        for (int i : component) {
+            members.set(i);
+        }
+
+        Arrays.fill(parent, -1);
+        queue.add(start);
+
+        while (!queue.isEmpty() && last < 0) {
+            int v = queue.poll();
+
+            for (int w : graph.getEdges(v)) {
+                if (!members.get(w)) {
+                    continue;
+                }
+
+                if (w == start) {
+                    last = v;
+                    break;
+                }
+
+                if (parent[w] < 0) {
+                    parent[w] = v;
+                    queue.add(w);
+                }
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+
+        path.add(graph.getNode(start));
+
+        for (int v = last; v != start; v = parent[v]) {
+            path.add(graph.getNode(v));
+        }
+
+        path.add(graph.getNode(start));
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    public static String outputAsCycle(List<String> cycle) {
+        return String.join(" -> ", cycle);
+    }
+
+    /**
+     * Modules in topological order, dependencies first, with their labels and direct dependencies
+     */
+    public String outputAsJson() {
+        StringBuilder sb = new StringBuilder();
+        Iterator<Integer> iterator = topologicalOrder().iterator();
+
+        sb.append("{\n")
+          .append(Common.getIndentOne())
+          .append("\"modules\": [");
+
+        while (iterator.hasNext()) {
+            int i = iterator.next();
+            String name = graph.getNode(i);
+            List<String> deps = new ArrayList<>();
+
+            for (int j : graph.getEdges(i)) {
+                deps.add(JSONObject.quote(graph.getNode(j)));
+            }
+
+            Collections.sort(deps);
+
+            sb.append("\n")
+              .append(Common.getIndentTwo())
+              .append("{\"name\": ")
+              .append(JSONObject.quote(name))
+              .append(", \"label\": ")
+              .append(JSONObject.quote(labels.getOrDefault(name, "")))
+              .append(", \"deps\": [")
+              .append(String.join(", ", deps))
+              .append("]}")
+              .append(iterator.hasNext() ? "," : "\n" + Common.getIndentOne());
+        }
+
+        sb.append("],\n")
+          .append(Common.getIndentOne())
+          .append("\"cycles\": [");
+
+        Iterator<List<String>> iteratorCycle = findCycles().iterator();
+
+        while (iteratorCycle.hasNext()) {
+            List<String> cycle = new ArrayList<>();
+
+            for (String name : iteratorCycle.next()) {
+                cycle.add(JSONObject.quote(name));
+            }
+
+            sb.append("\n")
+              .append(Common.getIndentTwo())
+              .append("[")
+              .append(String.join(", ", cycle))
+              .append("]")
+              .append(iteratorCycle.hasNext() ? "," : "\n" + Common.getIndentOne());
+        }
+
+        sb.append("]\n")
+          .append("}\n");
+
+        return sb.toString();
+    }
+
+    /**
+     * Graphviz digraph, the edges of cycles in red
+     */
+    public String outputAsDot() {
+        StringBuilder sb = new StringBuilder();
+        int[] componentOf = DependencyGraph.componentOf(graph.size(), getComponents());
+
+        sb.append("digraph modules {\n")
+          .append(Common.getIndentOne())
+          .append("rankdir = LR;\n");
+
+        for (int i : topologicalOrder()) {
+            sb.append(Common.getIndentOne())
+              .append(JSONObject.quote(graph.getNode(i)))
+              .append(";\n");
+        }
+
+        for (int i : topologicalOrder()) {
+            for (int j : graph.getEdges(i)) {
+                sb.append(Common.getIndentOne())
+                  .append(JSONObject.quote(graph.getNode(i)))
+                  .append(" -> ")
+                  .append(JSONObject.quote(graph.getNode(j)))
+                  .append(componentOf[i] == componentOf[j] ? " [color = red]" : "")
+                  .append(";\n");
+            }
+        }
+
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    /**
+     * Node indexes, components in reverse topological order and the modules of a component by name
+     */
+    private List<Integer> topologicalOrder() {
+        List<Integer> order = new ArrayList<>();
+
+        for (int[] component : getComponents()) {
+            List<Integer> members = new ArrayList<>();
+
+            for (int i : component) {
+                members.add(i);
+            }
+
+            members.sort((a, b) -> graph.getNode(a).compareTo(graph.getNode(b)));
+            order.addAll(members);
+        }
+
+        return order;
+    }
+
+    public String done() {
+        int numEdges = 0;
+
+        for (int i = 0; i < graph.size(); i++) {
+            numEdges += graph.getNumEdges(i);
+        }
+
+        return "completed\n"
+               + Common.getIndentOne() + "modules: " + graph.size() + "\n"
+               + Common.getIndentOne() + "edges: " + numEdges + "\n"
+               + Common.getIndentOne() + "cycles: " + findCycles().size();
+    }
+}
@@ -0,0 +1,321 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * The graph of the Java packages of a module, built from its sources
+ * <br>
+ * A package depends on another one if any of its sources refers to a type of the other package,
+ * either through an "import" statement or a qualified name, e.g. "com.example.util.Strings.trim(s)".
+ * <br>
+ * Packages in a cycle are merged into one target, the resulting targets form a DAG:
+ * <br><br>
+ * <pre>
+ * com.example.api  -&gt;  com.example.impl  -&gt;  com.example.util
+ *         ^                    |
+ *         +--------------------+     =&gt; targets: [api, impl], [util]
+ * </pre>
+ * <br>
+ * Alternatively the targets are {@link #partition(int) partitions} of a bounded number of source files.
+ */
+public class PackageGraph {
+    private static final Pattern PATTERN_PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    // a lower case qualifier followed by a type or a wildcard, e.g. "com.example.util.Strings", "com.example.util.*"
+    private static final Pattern PATTERN_QUALIFIED = Pattern.compile("\\b([a-z_$][\\w$]*(?:\\.[a-z_$][\\w$]*)+)\\.(?:[A-Z*])");
+    private static final String GLOB_JAVA = "*.java";
+
+    private final DependencyGraph<String> graph = new DependencyGraph<>();
+    private final SortedMap<String, SortedSet<String>> sources = new TreeMap<>();
+    private final SortedMap<String, Integer> numFiles = new TreeMap<>();
+    private List<int[]> components;
+    private List<int[]> targets;
+    private int[] targetOf;
+
+
+    /**
+     * Scan the source directories of a module, given as globs relative to its base directory, e.g. "src/main/java/com/example/*.java"
+     */
+    public static PackageGraph scan(Path baseDir, String[] globs) throws IOException {
+        PackageGraph packageGraph = new PackageGraph();
+        SortedMap<String, List<String>> contents = new TreeMap<>();
+
+        for (String glob : globs) {
+            Path dir = baseDir.resolve(glob).getParent();
+
+            try (
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir, GLOB_JAVA);
+            ) {
+                for (Path file : stream) {
+                    String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                    Matcher matcher = PATTERN_PACKAGE.matcher(content);
+                    String pkg = matcher.find() ? matcher.group(1) : "";
+
+                    packageGraph.graph.addNode(pkg);
+                    packageGraph.sources.computeIfAbsent(pkg, k -> new TreeSet<>()).add(glob);
+                    packageGraph.numFiles.merge(pkg, 1, Integer::sum);
+                    contents.computeIfAbsent(pkg, k -> new ArrayList<>()).add(content);
+                }
+            }
+        }
+
+        for (String pkg : contents.keySet()) {
+            for (String content : contents.get(pkg)) {
+                Matcher matcher = PATTERN_QUALIFIED.matcher(content);
+
+                while (matcher.find()) {
+                    String qualifier = matcher.group(1);
+
+                    if (!qualifier.equals(pkg) && packageGraph.sources.containsKey(qualifier)) {
+                        packageGraph.graph.addEdge(pkg, qualifier);
+                    }
+                }
+            }
+        }
+
+        packageGraph.components = packageGraph.graph.components();
+        packageGraph.targets = packageGraph.components;
+        packageGraph.targetOf = DependencyGraph.componentOf(packageGraph.graph.size(), packageGraph.components);
+
+        return packageGraph;
+    }
+
+    public DependencyGraph<String> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Regroup the packages into targets of about the same number of source files, at most the given one if possible
+     * <br>
+     * The number of targets is the total number of files divided by the given size, rounded up, and their capacity
+     * is the total divided by that number, so that they come out balanced. Packages in a cycle are never split,
+     * a cycle exceeding the capacity forms a target on its own.
+     * <br>
+     * The cycles are visited in topological order, dependencies first, ties broken by the package names,
+     * hence the same sources always produce the same targets. Each one joins the target it has the most edges to,
+     * among those with room left and not preceding the targets of its dependencies, or else opens a new target.
+     * Edges therefore never point to a later target and the targets form a DAG.
+     */
+    public void partition(int maxFiles) {
+        int size = components.size();
+        int[] componentOf = DependencyGraph.componentOf(graph.size(), components);
+        int[] weight = new int[size];
+        String[] first = new String[size];
+        // the graph of the cycles, node c is component c
+        DependencyGraph<Integer> deps = new DependencyGraph<>();
+        int[] numDependents = new int[size];
+        int total = 0;
+
+        for (int c = 0; c < size; c++) {
+            deps.addNode(c);
+        }
+
+        for (int c = 0; c < size; c++) {
+            for (int i : components.get(c)) {
+                String pkg = graph.getNode(i);
+
+                weight[c] += numFiles.get(pkg);
+
+                if (first[c] == null || pkg.compareTo(first[c]) < 0) {
+                    first[c] = pkg;
+                }
+
+                for (int j : graph.getEdges(i)) {
+                    if (componentOf[j] != c) {
+                        deps.addEdge(c, componentOf[j]);
+                    }
+                }
+            }
+
+            total += weight[c];
+        }
+
+        for (int c = 0; c < size; c++) {
+            for (int d : deps.getEdges(c)) {
+                numDependents[d]++;
+            }
+        }
+
+        int numTargets = Math.max(1, (total + maxFiles - 1) / Math.max(1, maxFiles));
+        int capacity = (total + numTargets - 1) / numTargets;
+        int[] remaining = new int[size];
+        int[] partOf = new int[size];
+        List<Integer> partWeight = new ArrayList<>();
+        List<List<Integer>> parts = new ArrayList<>();
+
+        // reversed edges, visited from the cycles nothing depends on: dependents first, then reversed again
+        PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) -> first[a].compareTo(first[b]));
+        int[] order = new int[size];
+        int n = size;
+
+        System.arraycopy(numDependents, 0, remaining, 0, size);
+
+        for (int c = 0; c < size; c++) {
+            if (remaining[c] == 0) {
+                ready.add(c);
+            }
+        }
+
+        while (!ready.isEmpty()) {
+            int c = ready.poll();
+
+            order[--n] = c;
+
+            for (int d : deps.getEdges(c)) {
+                if (--remaining[d] == 0) {
+                    ready.add(d);
+                }
+            }
+        }
+
+        for (int c : order) {
+            int[] edges = deps.getEdges(c);
+            int lowest = 0;
+            int[] links = new int[parts.size()];
+
+            for (int d : edges) {
+                lowest = Math.max(lowest, partOf[d]);
+                links[partOf[d]]++;
+            }
+
+            int best = -1;
+
+            for (int p = lowest; p < parts.size(); p++) {
+                if (partWeight.get(p) + weight[c] <= capacity && (best < 0 || links[p] > links[best])) {
+                    best = p;
+                }
+            }
+
+            if (best < 0) {
+                best = parts.size();
+                parts.add(new ArrayList<>());
+                partWeight.add(0);
+            }
+
+            partOf[c] = best;
+            parts.get(best).add(c);
+            partWeight.set(best, partWeight.get(best) + weight[c]);
+        }
+
+        targets = new ArrayList<>();
+
+        for (List<Integer> part : parts) {
+            int num = 0;
+
+            for (int c : part) {
+                num += components.get(c).length;
+            }
+
+            int[] target = new int[num];
+            int k = 0;
+
+            for (int c : part) {
+                for (int i : components.get(c)) {
+                    target[k++] = i;
+                }
+            }
+
+            Arrays.sort(target);
+            targets.add(target);
+        }
+
+        targetOf = DependencyGraph.componentOf(graph.size(), targets);
+    }
+
+    /**
+     * Packages merged per target, dependencies first
+     */
+    public List<SortedSet<String>> getTargets() {
+        List<SortedSet<String>> result = new ArrayList<>();
+
+        for (int[] target : targets) {
+            SortedSet<String> packages = new TreeSet<>();
+
+            for (int i : target) {
+                packages.add(graph.getNode(i));
+            }
+
+            result.add(packages);
+        }
+
+        return result;
+    }
+
+    /**
+     * Name of the library of the given packages of a module, after the first package
+     */
+    public static String getTargetName(String libName, SortedSet<String> packages) {
+        String pkg = packages.first();
+
+        return libName + Common.getSepSanitize() + (pkg.isEmpty() ? "default" : Common.sanitize(pkg));
+    }
+
+    /**
+     * Number of source files of the given packages
+     */
+    public int getNumFiles(SortedSet<String> packages) {
+        int num = 0;
+
+        for (String pkg : packages) {
+            num += numFiles.get(pkg);
+        }
+
+        return num;
+    }
+
+    /**
+     * Indexes of the targets the given target depends on
+     */
+    public SortedSet<Integer> getTargetDeps(int target) {
+        SortedSet<Integer> deps = new TreeSet<>();
+
+        for (int i : targets.get(target)) {
+            for (int j : graph.getEdges(i)) {
+                if (targetOf[j] != target) {
+                    deps.add(targetOf[j]);
+                }
+            }
+        }
+
+        return deps;
+    }
+
+    /**
+     * Source globs of the given packages
+     */
+    public String[] getSources(SortedSet<String> packages) {
+        SortedSet<String> globs = new TreeSet<>();
+
+        for (String pkg : packages) {
+            globs.addAll(sources.get(pkg));
+        }
+
+        return globs.toArray(new String[0]);
+    }
+
+    public int getNumCycles() {
+        int num = 0;
+
+        for (int[] component : components) {
+            if (component.length > 1) {
+                num++;
+            }
+        }
+
+        return num;
+    }
+}
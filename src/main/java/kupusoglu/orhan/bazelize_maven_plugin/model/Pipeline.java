@@ -0,0 +1,371 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A staged producer/consumer pipeline connected by bounded queues
+ * <br>
+ * Each stage runs on its own worker thread(s), takes items from the queue of the previous stage
+ * and puts its results into its own bounded queue. A full queue blocks the upstream stage,
+ * therefore memory stays flat no matter how many items pass through.
+ * <br>
+ * The last stage, the <strong>sink</strong>, runs on the calling thread. The build goal merely collects the rendered
+ * items there and writes the BUILD file once {@link #run(String, Sink)} returns, thus that I/O does not overlap
+ * the other stages.
+ * <br>
+ * With a single worker per stage the items keep their order, several workers may reorder them.
+ * <br>
+ * A failing item is recorded and dropped, the remaining items continue to flow.
+ * <br><br>
+ * <pre>
+ * List&lt;Pipeline.Failure&gt; failures = Pipeline.source("scan", artifacts, 64)
+ *                                            .then("hash", 1, 64, this::resolve)
+ *                                            .then("render", 1, 64, this::render)
+ *                                            .run("write", this::write);
+ * </pre>
+ *
+ * @param <T> type of the items leaving the last stage
+ */
+public class Pipeline<T> {
+    private static final Object END = new Object();
+
+    private final List<Stage> stages;
+    private final List<Runnable> tasks;
+    private final List<Failure> failures;
+    private final Stage last;
+
+
+    /**
+     * Transforms an item, returning <strong>null</strong> drops the item
+     */
+    public interface Step<I, O> {
+        O apply(I item) throws Exception;
+    }
+
+    /**
+     * Consumes the items leaving the last stage
+     */
+    public interface Sink<I> {
+        void accept(I item) throws Exception;
+    }
+
+    /**
+     * Store a failed item with its stage
+     */
+    public static class Failure {
+        private final String stage;
+        private final Object item;
+        private final Exception cause;
+
+        private Failure(String stage, Object item, Exception cause) {
+            this.stage = stage;
+            this.item = item;
+            this.cause = cause;
+        }
+
+        public String getStage() {
+            return this.stage;
+        }
+
+        public Object getItem() {
+            return this.item;
+        }
+
+        public Exception getCause() {
+            return this.cause;
+        }
+
+        @Override
+        public String toString() {
+            return this.stage + ": " + this.item + " - " + this.cause.getMessage();
+        }
+    }
+
+    /**
+     * Store a stage with its output queue and statistics
+     */
+    public static class Stage {
+        private final String name;
+        private final int workers;
+        private final int capacity;
+        private final BlockingQueue<Object> queue;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Stage(String name, int workers, int capacity) {
+            this.name = name;
+            this.workers = workers;
+            this.capacity = capacity;
+            this.queue = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+        }
+
+        private void put(Object item) throws InterruptedException {
+            queue.put(item);
+
+            int depth = queue.size();
+            int max = maxDepth.get();
+            while (depth > max && !maxDepth.compareAndSet(max, depth)) {
+                max = maxDepth.get();
+            }
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getWorkers() {
+            return this.workers;
+        }
+
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        public int getQueueDepth() {
+            return queue == null ? 0 : queue.size();
+        }
+
+        public int getMaxQueueDepth() {
+            return this.maxDepth.get();
+        }
+
+        public long getProcessed() {
+            return this.processed.get();
+        }
+
+        public long getFailed() {
+            return this.failed.get();
+        }
+
+        public long getBusyMillis() {
+            return this.busyNanos.get() / 1_000_000L;
+        }
+
+        public long getElapsedMillis() {
+            long end = endNanos == 0L ? System.nanoTime() : endNanos;
+            return startNanos == 0L ? 0L : (end - startNanos) / 1_000_000L;
+        }
+
+        public double getThroughput() {
+            long elapsed = getElapsedMillis();
+            return elapsed == 0L ? processed.get() * 1000.0 : processed.get() * 1000.0 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s workers: %d, processed: %d, failed: %d, queue: %d/%d (max: %d), busy: %d ms, elapsed: %d ms, %.1f items/s",
+                                 this.name,
+                                 this.workers,
+                                 getProcessed(),
+                                 getFailed(),
+                                 getQueueDepth(),
+                                 this.capacity,
+                                 getMaxQueueDepth(),
+                                 getBusyMillis(),
+                                 getElapsedMillis(),
+                                 getThroughput());
+        }
+    }
+
+
+    private Pipeline(List<Stage> stages, List<Runnable> tasks, List<Failure> failures) {
+        this.stages = stages;
+        this.tasks = tasks;
+        this.failures = failures;
+        this.last = stages.get(stages.size() - 1);
+    }
+
+    /**
+     * First stage: feeds the items into a bounded queue
+     */
+    public static <T> Pipeline<T> source(String name, Iterable<T> items, int capacity) {
+        List<Stage> stages = new ArrayList<>();
+        Stage stage = new Stage(name, 1, Math.max(1, capacity));
+        stages.add(stage);
+
+        Pipeline<T> pipeline = new Pipeline<>(stages,
+                                              new ArrayList<>(),
+                                              Collections.synchronizedList(new ArrayList<>()));
+        pipeline.tasks.add(() -> {
+            stage.startNanos = System.nanoTime();
+
+            try {
+                Iterator<T> iterator = items.iterator();
+
+                while (iterator.hasNext()) {
+                    stage.put(iterator.next());
+                    stage.processed.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stage.endNanos = System.nanoTime();
+                putEnd(stage);
+            }
+        });
+
+        return pipeline;
+    }
+
+    /**
+     * Next stage: applies the step on the given number of workers
+     */
+    public <O> Pipeline<O> then(String name, int workers, int capacity, Step<T, O> step) {
+        List<Stage> nextStages = new ArrayList<>(this.stages);
+        Stage input = this.last;
+        Stage stage = new Stage(name, Math.max(1, workers), Math.max(1, capacity));
+        nextStages.add(stage);
+
+        Pipeline<O> pipeline = new Pipeline<>(nextStages, new ArrayList<>(this.tasks), this.failures);
+        AtomicInteger running = new AtomicInteger(stage.workers);
+
+        for (int i = 0; i < stage.workers; i++) {
+            pipeline.tasks.add(() -> {
+                if (stage.startNanos == 0L) {
+                    stage.startNanos = System.nanoTime();
+                }
+
+                try {
+                    while (true) {
+                        Object item = input.queue.take();
+
+                        if (item == END) {
+                            // let the other workers of this stage see the end, too
+                            input.queue.put(END);
+                            break;
+                        }
+
+                        long start = System.nanoTime();
+                        O result = null;
+
+                        try {
+                            @SuppressWarnings("unchecked")
+                            T typed = (T)item;
+                            result = step.apply(typed);
+                            stage.processed.incrementAndGet();
+                        } catch (Exception e) {
+                            stage.failed.incrementAndGet();
+                            pipeline.failures.add(new Failure(name, item, e));
+                        } finally {
+                            stage.busyNanos.addAndGet(System.nanoTime() - start);
+                        }
+
+                        if (result != null) {
+                            stage.put(result);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        stage.endNanos = System.nanoTime();
+                        putEnd(stage);
+                    }
+                }
+            });
+        }
+
+        return pipeline;
+    }
+
+    /**
+     * Last stage: starts all stages, and consumes the items on the calling thread
+     *
+     * @return  failures    items that failed in any stage, empty if all succeeded
+     */
+    public List<Failure> run(String name, Sink<T> sink) throws InterruptedException {
+        Stage stage = new Stage(name, 1, 0);
+        List<Thread> threads = new ArrayList<>();
+        int i = 0;
+
+        for (Runnable task : this.tasks) {
+            Thread thread = new Thread(task, "bazelize-pipeline-" + i++);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        stage.startNanos = System.nanoTime();
+
+        try {
+            while (true) {
+                Object item = this.last.queue.take();
+
+                if (item == END) {
+                    break;
+                }
+
+                long start = System.nanoTime();
+
+                try {
+                    @SuppressWarnings("unchecked")
+                    T typed = (T)item;
+                    sink.accept(typed);
+                    stage.processed.incrementAndGet();
+                } catch (Exception e) {
+                    stage.failed.incrementAndGet();
+                    this.failures.add(new Failure(name, item, e));
+                } finally {
+                    stage.busyNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+
+            throw e;
+        } finally {
+            stage.endNanos = System.nanoTime();
+            this.stages.add(stage);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        synchronized (this.failures) {
+            return new ArrayList<>(this.failures);
+        }
+    }
+
+    /**
+     * Statistics of all stages, in order
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(this.stages);
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Stage stage : this.stages) {
+            sb.append(Common.getIndentOne());
+            sb.append(stage);
+            sb.append("\n");
+        }
+
+        return Common.removeLastChars(sb.toString(), 1);
+    }
+
+    private static void putEnd(Stage stage) {
+        try {
+            stage.queue.put(END);
+        } catch (InterruptedException e) {
+            // the pipeline is cancelled, nobody waits for the end marker
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Parser of the <strong>_remote.repositories</strong> files of a local Maven repository
+ * <br>
+ * Maven records for each downloaded file the id of the repository it came from, an empty id means installed locally:
+ * <br><br>
+ * <pre>
+ * #NOTE: This is a Maven Resolver internal implementation file, its format can be changed without prior notice.
+ * #Mon Jun 25 10:00:00 TRT 2018
+ * guava-23.0.jar&gt;central=
+ * guava-23.0.pom&gt;central=
+ * guava-23.0-sources.jar&gt;internal=
+ * </pre>
+ * <br>
+ * The parsed file of each artifact directory is cached for the session, it is read only once per run. The cache is
+ * cleared at the end of the session, see {@link #clearCache()}.
+ */
+public class RemoteRepositories {
+    private static final Map<Path, Map<String, String>> CACHE = new ConcurrentHashMap<>();
+
+    private static final String FILE_NAME = "_remote.repositories";
+    private static final char SEP_FILE = '>';
+    private static final char SEP_END = '=';
+    private static final char COMMENT = '#';
+    private static final String EXT_JAR = ".jar";
+    private static final String EXT_POM = ".pom";
+
+
+    private RemoteRepositories() {
+        // no instance required, use static factory methods
+    }
+
+    /**
+     * Repository id of the given file, null if unknown or installed locally
+     * <br>
+     * If the file itself is not listed, the repository of the main JAR or of the POM in the same directory is used.
+     */
+    public static String findServer(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+
+        if (dir == null) {
+            return null;
+        }
+
+        Map<String, String> entries = CACHE.computeIfAbsent(dir, RemoteRepositories::read);
+        String fileName = file.getFileName().toString();
+        String server = entries.get(fileName);
+
+        if (server != null) {
+            return server;
+        }
+
+        String fallback = null;
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String name = entry.getKey();
+
+            if (name.endsWith(EXT_JAR) && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar")) {
+                return entry.getValue();
+            } else if (fallback == null && name.endsWith(EXT_POM)) {
+                fallback = entry.getValue();
+            }
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Forget the parsed files, called at the end of the session since the files may change before the next one
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static Map<String, String> read(Path dir) {
+        Path remotes = dir.resolve(FILE_NAME);
+
+        if (!Files.isRegularFile(remotes)) {
+            return Collections.emptyMap();
+        }
+
+        try (
+            Reader reader = Files.newBufferedReader(remotes, StandardCharsets.UTF_8);
+        ) {
+            return parse(reader);
+        } catch (IOException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    public static Map<String, String> parse(String content) {
+        try {
+            return parse(new StringReader(content));
+        } catch (IOException e) {
+            // not thrown by StringReader
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Map file names to repository ids, in order of appearance; files installed locally are skipped
+     */
+    public static Map<String, String> parse(Reader reader) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        BufferedReader br = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+        String line;
+
+        while ((line = br.readLine()) != null) {
+            line = line.trim();
+
+            if (line.isEmpty() || line.charAt(0) == COMMENT) {
+                continue;
+            }
+
+            int sepFile = line.indexOf(SEP_FILE);
+            int sepEnd = line.lastIndexOf(SEP_END);
+
+            if (sepFile <= 0 || sepEnd < sepFile) {
+                continue;
+            }
+
+            String fileName = line.substring(0, sepFile);
+            String server = line.substring(sepFile + 1, sepEnd).trim();
+
+            if (!server.isEmpty()) {
+                entries.putIfAbsent(fileName, server);
+            }
+        }
+
+        return entries;
+    }
+}
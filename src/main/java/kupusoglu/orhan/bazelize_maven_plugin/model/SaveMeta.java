@@ -32,16 +32,18 @@ public class SaveMeta {
         Path root = Paths.get(baseDir).normalize().toAbsolutePath();
         File metaFile = new File(root + File.separator + Common.OUTPUT_FILES.JSON_META);
 
-        try {
-            FindMeta findMeta = new FindMeta(log,
-                                             root,
-                                             Common.OUTPUT_FILES.JSON_MODULE.toString());
+        try (
+            IntermediateStore.Index index = IntermediateStore.open(root);
+        ) {
+            FindMeta findMeta = new FindMeta(log, root);
 
-            java.nio.file.Files.walkFileTree(root, findMeta);
+            findMeta.collect(index);
             findMeta.metaData();
+            findMeta.metaIndex();
             findMeta.done();
 
-            log.info("output:\n" + Common.getIndentOne() + metaFile);
+            log.info("output:\n" + Common.getIndentOne() + metaFile + "\n"
+                                  + Common.getIndentOne() + root.resolve(Common.OUTPUT_FILES.META_INDEX.toString()));
         } catch (IOException e) {
             log.error(e.getMessage());
         }
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 
 /**
@@ -16,18 +17,28 @@ public class SaveWorkspace {
     private Log log;
     private String baseDir;
     private String workspaceName;
+    private Common.WORKSPACE_FORMAT workspaceFormat;
+    private String localRepo;
+    private VersionMediation mediation;
+    private Common.DEPS_MODE depsMode;
+    private List<Common.LICENSE> licenses;
 
 
     public SaveWorkspace() {
         super();
     }
 
-    public SaveWorkspace(Log log, String baseDir, String workspaceName) {
+    public SaveWorkspace(Log log, String baseDir, String workspaceName, Common.WORKSPACE_FORMAT workspaceFormat, String localRepo, VersionMediation mediation, Common.DEPS_MODE depsMode, List<Common.LICENSE> licenses) {
         this();
 
         this.log = log;
         this.baseDir = baseDir;
         this.workspaceName = workspaceName;
+        this.workspaceFormat = workspaceFormat;
+        this.localRepo = localRepo;
+        this.mediation = mediation;
+        this.depsMode = depsMode;
+        this.licenses = licenses;
     }
 
     public void execute() throws MojoExecutionException {
@@ -37,14 +48,25 @@ public class SaveWorkspace {
         if (fileWorkspace.exists()) {
             log.warn("Bazel WORKSPACE file already exists");
         } else {
-            try {
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
                 CreateWorkspace createWorkspace = new CreateWorkspace(log,
                                                                       root,
                                                                       workspaceName,
-                                                                      Common.OUTPUT_FILES.JSON_DEPENDENCY.toString(),
-                                                                      Common.OUTPUT_FILES.JSON_SERVER.toString());
+                                                                      workspaceFormat,
+                                                                      localRepo == null ? null : Paths.get(localRepo),
+                                                                      mediation,
+                                                                      depsMode,
+                                                                      licenses);
+
+                try {
+                    createWorkspace.collect(index);
+                } catch (MojoExecutionException e) {
+                    createWorkspace.discard();
+                    throw e;
+                }
 
-                java.nio.file.Files.walkFileTree(root, createWorkspace);
                 createWorkspace.workspace();
                 createWorkspace.done();
 
@@ -0,0 +1,131 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.artifact.Artifact;
+
+
+/**
+ * Dependencies of a library split by their Maven scope, see the <strong>build</strong> goal's "splitScopes"
+ * <br>
+ * Runtime scoped labels go to "runtime_deps", test scoped ones only to a "testonly" wrapper, which the
+ * <strong>test</strong> goal adds to the "java_test()" rules. Provided scoped ones go to a "neverlink" wrapper:
+ * available to javac, but never packaged nor put on the runtime classpath; the tests see them through the
+ * "testonly" wrapper, too.
+ * <br><br>
+ * <pre>
+ * java_library(
+ *     name = "lib_provided_deps",
+ *     neverlink = True,
+ *     exports = [
+ *         "@javax_servlet_javax_servlet_api_3_1_0//jar",
+ *     ],
+ * )
+ *
+ * java_library(
+ *     name = "lib_test_deps",
+ *     testonly = True,
+ *     exports = [
+ *         "@junit_junit_4_12//jar",
+ *         "@javax_servlet_javax_servlet_api_3_1_0//jar",
+ *     ],
+ * )
+ * </pre>
+ */
+public class ScopedDependencies {
+    private String libName;
+    private boolean splitScopes;
+    private StringBuilder deps;
+    private StringBuilder runtime = new StringBuilder();
+    private StringBuilder test = new StringBuilder();
+    private StringBuilder provided = new StringBuilder();
+
+
+    /**
+     * @param deps "deps" of the library, labels not split by scope are appended to it
+     */
+    public ScopedDependencies(String libName, boolean splitScopes, StringBuilder deps) {
+        this.libName = libName;
+        this.splitScopes = splitScopes;
+        this.deps = deps;
+    }
+
+    /**
+     * Add the label of a dependency, a fragment of a list ending with a comma and a new line
+     */
+    public void add(String scope, CharSequence label) {
+        if (!splitScopes) {
+            deps.append(label);
+        } else if (Artifact.SCOPE_RUNTIME.equals(scope)) {
+            runtime.append(label);
+        } else if (Artifact.SCOPE_TEST.equals(scope)) {
+            test.append(label);
+        } else if (Artifact.SCOPE_PROVIDED.equals(scope)) {
+            provided.append(label);
+        } else {
+            deps.append(label);
+        }
+    }
+
+    /**
+     * Add the label of a dependency needed only at runtime, regardless of its scope
+     */
+    public void addRuntime(CharSequence label) {
+        runtime.append(label);
+    }
+
+    /**
+     * "deps" of the library, with the "neverlink" wrapper if any
+     */
+    public String getDeps() {
+        if (provided.length() == 0) {
+            return deps.toString();
+        }
+
+        return new StringBuilder(deps).append(Common.getIndentTwo())
+                                      .append("\":")
+                                      .append(libName)
+                                      .append(Common.getSuffixProvidedDeps())
+                                      .append("\",\n")
+                                      .toString();
+    }
+
+    /**
+     * "runtime_deps" attribute of the library, empty if none
+     */
+    public String getRuntimeDeps() {
+        if (runtime.length() == 0) {
+            return "";
+        }
+
+        return "\n" + Common.getIndentOne() + "runtime_deps = [\n"
+               + Common.removeLastChars(runtime.toString(), 1)
+               + "\n" + Common.getIndentOne() + "],";
+    }
+
+    /**
+     * The "neverlink" and "testonly" wrappers, empty if none
+     */
+    public String getWrappers() {
+        String wrappers = "";
+
+        if (provided.length() > 0) {
+            wrappers += "\n" + renderWrapper(libName + Common.getSuffixProvidedDeps(), "neverlink = True", provided);
+        }
+
+        if (test.length() > 0 || provided.length() > 0) {
+            wrappers += "\n" + renderWrapper(libName + Common.getSuffixTestDeps(),
+                                             "testonly = True",
+                                             new StringBuilder(test).append(provided));
+        }
+
+        return wrappers;
+    }
+
+    private static String renderWrapper(String name, String attribute, CharSequence labels) {
+        return Common.getTemplateExports()
+                     .with("LIB_NAME", name)
+                     .with("ATTRIBUTES", "\n" + Common.getIndentOne() + attribute + ",")
+                     .with("JAVA_EXPORTS", Common.withoutLastChars(labels, 1))
+                     .render()
+               + "\n";
+    }
+}
@@ -0,0 +1,172 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * Seed a <strong>Bazel repository cache</strong> with the JARs of the local Maven repository
+ * <br>
+ * Each JAR referred by the <strong>WORKSPACE</strong> is hard-linked, or copied where links are not possible,
+ * into the content-addressed layout of the cache:
+ * <br><br>
+ * <pre>
+ * &lt;repository cache&gt;/content_addressable/sha256/&lt;hash&gt;/file
+ * </pre>
+ * <br>
+ * Entries are published with an atomic move, already present entries are skipped,
+ * therefore seeding is safe while Bazel uses the same cache.
+ * <br>
+ * Every JAR is hashed, through the hash cache, before it is published: a JAR not matching its recorded SHA-256 is
+ * skipped, since Bazel would serve it as the content of that hash.
+ * <br>
+ * @see <a href="https://docs.bazel.build/versions/master/repository-cache.html">Bazel repository cache</a>
+ */
+public class SeedCache {
+    private Log log;
+    private Path localRepo;
+    private Path repositoryCache;
+    private HashCache hashCache;
+
+    private SortedMap<String, MavenDependency> mapDependency = new TreeMap<>();
+    private int numDepMatches = 0;
+    private int numLinked = 0;
+    private int numCopied = 0;
+    private int numPresent = 0;
+    private int numMissing = 0;
+    private int numMismatched = 0;
+
+    private static final String DIR_CAS = "content_addressable";
+    private static final String DIR_SHA256 = "sha256";
+    private static final String FILE_NAME = "file";
+
+
+    public SeedCache(Log log, Path localRepo, Path repositoryCache, HashCache hashCache) {
+        this.log = log;
+        this.localRepo = localRepo;
+        this.repositoryCache = repositoryCache;
+        this.hashCache = hashCache;
+    }
+
+    public void collect(IntermediateStore.Index index) {
+        for (String key : index.getKeys(IntermediateStore.KIND.DEPENDENCY)) {
+            numDepMatches++;
+
+            for (MavenDependency dep : CreateWorkspace.readDependencies(index, key)) {
+                add(dep);
+            }
+        }
+    }
+
+    public void add(MavenDependency dep) {
+        mapDependency.putIfAbsent(dep.getName(), dep);
+    }
+
+    public void seed() {
+        Path dirSha256 = repositoryCache.resolve(DIR_CAS).resolve(DIR_SHA256);
+
+        for (MavenDependency dep : mapDependency.values()) {
+            Path jar = localRepo.resolve(dep.retrieveRelativePath());
+
+            if (!Files.isRegularFile(jar)) {
+                numMissing++;
+                log.warn("not in the local repository: " + jar);
+                continue;
+            }
+
+            try {
+                String sha256 = hashCache.hash(jar, ArtifactHash.SHA_256);
+
+                if (!dep.getSha256().isEmpty() && !dep.getSha256().equalsIgnoreCase(sha256)) {
+                    numMismatched++;
+                    log.error("SHA-256 does not match: " + jar + ", expected: " + dep.getSha256() + ", actual: " + sha256);
+                    continue;
+                }
+
+                Path target = dirSha256.resolve(sha256).resolve(FILE_NAME);
+
+                if (Files.exists(target)) {
+                    numPresent++;
+                } else {
+                    publish(jar, target);
+                }
+            } catch (IOException e) {
+                log.error("could not seed " + jar + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void publish(Path jar, Path target) throws IOException {
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+
+        // never expose a partial entry: prepare under a unique name, then move into place
+        Path tmp = dir.resolve(FILE_NAME + "." + Thread.currentThread().getId() + "." + System.nanoTime() + ".tmp");
+        boolean linked;
+
+        try {
+            Files.createLink(tmp, jar);
+            linked = true;
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(jar, tmp, StandardCopyOption.COPY_ATTRIBUTES);
+            linked = false;
+        }
+
+        try {
+            if (Files.exists(target)) {
+                // seeded concurrently
+                numPresent++;
+            } else {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+                if (linked) {
+                    numLinked++;
+                } else {
+                    numCopied++;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public void done() {
+        log.info("completed\n\tmatched: " + numDepMatches
+                                          + " dependency records\n\tlinked: "
+                                          + numLinked
+                                          + "\n\tcopied: "
+                                          + numCopied
+                                          + "\n\talready present: "
+                                          + numPresent
+                                          + "\n\tmissing: "
+                                          + numMissing
+                                          + "\n\tmismatched: "
+                                          + numMismatched);
+    }
+
+    public int getNumLinked() {
+        return numLinked;
+    }
+
+    public int getNumCopied() {
+        return numCopied;
+    }
+
+    public int getNumPresent() {
+        return numPresent;
+    }
+
+    public int getNumMissing() {
+        return numMissing;
+    }
+
+    public int getNumMismatched() {
+        return numMismatched;
+    }
+}
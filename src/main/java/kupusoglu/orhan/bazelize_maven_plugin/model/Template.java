@@ -0,0 +1,167 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A template of a Bazel rule, parsed once into literal and placeholder segments
+ * <br>
+ * A placeholder is an upper case name between hashes, e.g. "#LIB_NAME#". Rendering streams the segments into an
+ * {@code Appendable}, so the text is neither copied per placeholder nor scanned by a regex, and values are taken
+ * verbatim: "$" and "\" in paths and labels are not group references. A placeholder without a value is kept as is.
+ * <br><br>
+ * <pre>
+ * Common.getTemplateLibrary()
+ *       .with("LIB_NAME", libName)
+ *       .with("JAVA_DEPS", deps)
+ *       .renderTo(buildWriter);
+ * </pre>
+ */
+public class Template {
+    private static final char MARK = '#';
+
+    // literal, placeholder, literal, ..., literal
+    private final String[] literals;
+    private final String[] names;
+
+
+    /**
+     * Values of the placeholders for one rendering
+     */
+    public static class Binding {
+        private final Template template;
+        private final CharSequence[] values;
+
+        private Binding(Template template) {
+            this.template = template;
+            this.values = new CharSequence[template.names.length];
+        }
+
+        /**
+         * Set the value of every placeholder of the given name, ignored if the template has none
+         */
+        public Binding with(String name, CharSequence value) {
+            for (int i = 0; i < template.names.length; i++) {
+                if (template.names[i].equals(name)) {
+                    values[i] = value;
+                }
+            }
+
+            return this;
+        }
+
+        public void renderTo(Appendable out) throws IOException {
+            String[] literals = template.literals;
+            String[] names = template.names;
+
+            out.append(literals[0]);
+
+            for (int i = 0; i < names.length; i++) {
+                if (values[i] == null) {
+                    out.append(MARK).append(names[i]).append(MARK);
+                } else {
+                    out.append(values[i]);
+                }
+
+                out.append(literals[i + 1]);
+            }
+        }
+
+        public void renderTo(StringBuilder sb) {
+            try {
+                renderTo((Appendable)sb);
+            } catch (IOException e) {
+                // not thrown by a StringBuilder
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public String render() {
+            StringBuilder sb = new StringBuilder(template.length());
+
+            renderTo(sb);
+
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return render();
+        }
+    }
+
+
+    private Template(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+    }
+
+    public static Template compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int start = 0;
+        int pos = text.indexOf(MARK);
+
+        while (pos >= 0) {
+            int end = pos + 1;
+
+            while (end < text.length() && isNamePart(text.charAt(end))) {
+                end++;
+            }
+
+            if (end > pos + 1 && end < text.length() && text.charAt(end) == MARK) {
+                literals.add(text.substring(start, pos));
+                names.add(text.substring(pos + 1, end));
+                start = end + 1;
+                pos = text.indexOf(MARK, start);
+            } else {
+                // a lone mark, the next one may open a placeholder
+                pos = text.indexOf(MARK, pos + 1);
+            }
+        }
+
+        literals.add(text.substring(start));
+
+        return new Template(literals.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    private static boolean isNamePart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    public Binding with(String name, CharSequence value) {
+        return new Binding(this).with(name, value);
+    }
+
+    /**
+     * Names of the placeholders, in order of appearance
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * The text the template was compiled from
+     */
+    public String getText() {
+        return new Binding(this).render();
+    }
+
+    /**
+     * Length of the literal segments
+     */
+    public int length() {
+        int length = 0;
+
+        for (String literal : literals) {
+            length += literal.length();
+        }
+
+        return length;
+    }
+}
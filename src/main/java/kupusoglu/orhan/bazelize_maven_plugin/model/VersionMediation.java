@@ -0,0 +1,216 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * Pick one version per <strong>groupId:artifactId</strong> among the dependencies of all modules
+ * <br>
+ * Maven mediates versions per module, therefore a multi-module project may still refer to several versions of the same library.
+ * Each of them would become a separate repository in the WORKSPACE, fetched and cached on its own.
+ * <br>
+ * Strategies:
+ * <ul>
+ *     <li><strong>nearest</strong>: the version closest to a module wins, as in Maven; ties go to the highest version</li>
+ *     <li><strong>highest</strong>: the highest version wins</li>
+ *     <li><strong>bom</strong>: the version managed by the given BOM wins, the others fall back to <strong>nearest</strong></li>
+ * </ul>
+ */
+public class VersionMediation {
+    private Log log;
+    private Common.MEDIATION strategy;
+    private Map<String, String> bomVersions = new HashMap<>();
+
+    private Map<String, String> relabel = new TreeMap<>();
+    private SortedMap<String, List<MavenDependency>> conflicts = new TreeMap<>();
+    private Map<String, MavenDependency> winners = new HashMap<>();
+
+    private static final Comparator<MavenDependency> BY_VERSION =
+        Comparator.comparing(dep -> new ComparableVersion(dep.getVersion()));
+    // unknown depth, 0, sorts last
+    private static final Comparator<MavenDependency> BY_DEPTH =
+        Comparator.comparingInt(dep -> dep.getDepth() <= 0 ? Integer.MAX_VALUE : dep.getDepth());
+
+
+    public VersionMediation(Log log, Common.MEDIATION strategy, Path bomFile) throws MojoExecutionException {
+        this.log = log;
+        this.strategy = strategy;
+
+        if (strategy == Common.MEDIATION.BOM) {
+            if (bomFile == null) {
+                throw new MojoExecutionException("Mediation strategy " + strategy + " requires a BOM file");
+            }
+
+            readBom(bomFile);
+        }
+    }
+
+    /**
+     * Read the managed versions of the BOM, simple "${property}" references are resolved from its own properties
+     */
+    private void readBom(Path bomFile) throws MojoExecutionException {
+        Model model;
+
+        try (
+            Reader reader = Files.newBufferedReader(bomFile, StandardCharsets.UTF_8);
+        ) {
+            model = new MavenXpp3Reader().read(reader);
+        } catch (IOException | XmlPullParserException e) {
+            throw new MojoExecutionException("Could not read BOM file: " + bomFile, e);
+        }
+
+        DependencyManagement management = model.getDependencyManagement();
+
+        if (management == null) {
+            log.warn("no dependency management in BOM file: " + bomFile);
+            return;
+        }
+
+        for (Dependency dep : management.getDependencies()) {
+            String version = dep.getVersion();
+
+            if (version != null && version.startsWith("${") && version.endsWith("}")) {
+                String property = version.substring(2, version.length() - 1);
+
+                if (property.equals("project.version")) {
+                    if (model.getVersion() != null) {
+                        version = model.getVersion();
+                    } else if (model.getParent() != null && model.getParent().getVersion() != null) {
+                        version = model.getParent().getVersion();
+                    } else {
+                        throw new MojoExecutionException("BOM file without a version, "
+                                                         + dep.getGroupId() + ":" + dep.getArtifactId()
+                                                         + " refers to ${project.version}: " + bomFile);
+                    }
+                } else {
+                    version = model.getProperties().getProperty(property);
+                }
+            }
+
+            if (version != null) {
+                bomVersions.put(dep.getGroupId() + ":" + dep.getArtifactId(), version);
+            }
+        }
+
+        log.info("BOM: " + bomFile + " manages " + bomVersions.size() + " dependencies");
+    }
+
+    /**
+     * Mediated dependencies by name; the names of the dropped versions are mapped to the kept ones in {@link #getRelabel()}
+     */
+    public SortedMap<String, MavenDependency> mediate(Collection<MavenDependency> dependencies) {
+        Map<String, List<MavenDependency>> byCoordinate = new HashMap<>();
+        SortedMap<String, MavenDependency> mediated = new TreeMap<>();
+
+        relabel.clear();
+        conflicts.clear();
+        winners.clear();
+
+        for (MavenDependency dep : dependencies) {
+            byCoordinate.computeIfAbsent(dep.retrieveCoordinate(), k -> new ArrayList<>()).add(dep);
+        }
+
+        for (Map.Entry<String, List<MavenDependency>> me : byCoordinate.entrySet()) {
+            List<MavenDependency> candidates = me.getValue();
+            MavenDependency winner = candidates.size() == 1 ? candidates.get(0) : pick(me.getKey(), candidates);
+
+            mediated.put(winner.getName(), winner);
+
+            if (candidates.size() > 1) {
+                conflicts.put(me.getKey(), candidates);
+                winners.put(me.getKey(), winner);
+
+                for (MavenDependency dep : candidates) {
+                    if (dep != winner) {
+                        relabel.put(dep.getName(), winner.getName());
+                    }
+                }
+            }
+        }
+
+        return mediated;
+    }
+
+    private MavenDependency pick(String coordinate, List<MavenDependency> candidates) {
+        if (strategy == Common.MEDIATION.BOM && bomVersions.containsKey(coordinate)) {
+            String version = bomVersions.get(coordinate);
+
+            for (MavenDependency dep : candidates) {
+                if (dep.getVersion().equals(version)) {
+                    return dep;
+                }
+            }
+
+            log.warn("BOM version " + version + " of " + coordinate + " is not resolved by any module, using the nearest");
+        }
+
+        if (strategy == Common.MEDIATION.HIGHEST) {
+            return Collections.max(candidates, BY_VERSION);
+        }
+
+        return Collections.min(candidates, BY_DEPTH.thenComparing(BY_VERSION.reversed()));
+    }
+
+    /**
+     * Names of the dropped dependencies mapped to the names of the kept ones
+     */
+    public Map<String, String> getRelabel() {
+        return relabel;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, List<MavenDependency>> me : conflicts.entrySet()) {
+            List<MavenDependency> candidates = new ArrayList<>(me.getValue());
+            candidates.sort(BY_VERSION);
+
+            sb.append(Common.getIndentOne())
+              .append(me.getKey())
+              .append(":");
+
+            for (MavenDependency dep : candidates) {
+                sb.append(" ")
+                  .append(dep.getVersion())
+                  .append(" (depth ")
+                  .append(dep.getDepth() <= 0 ? "?" : String.valueOf(dep.getDepth()))
+                  .append(")");
+            }
+
+            sb.append(" -> ")
+              .append(winners.get(me.getKey()).getVersion())
+              .append(" [")
+              .append(strategy)
+              .append("]\n");
+        }
+
+        return sb.append(Common.getIndentOne())
+                 .append(conflicts.size())
+                 .append(" conflicts, ")
+                 .append(relabel.size())
+                 .append(" versions dropped")
+                 .toString();
+    }
+}
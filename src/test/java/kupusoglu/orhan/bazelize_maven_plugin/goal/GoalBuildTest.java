@@ -0,0 +1,91 @@
+package kupusoglu.orhan.bazelize_maven_plugin.goal;
+
+import kupusoglu.orhan.bazelize_maven_plugin.model.ClassReferences;
+import kupusoglu.orhan.bazelize_maven_plugin.model.JarIndex;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+
+public class GoalBuildTest {
+    private static JarIndex.Entry createJar(String... entries) throws Exception {
+        final File file = File.createTempFile("bazelize-prune", ".jar");
+        file.deleteOnExit();
+
+        try (
+            JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        ) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(entry.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        return JarIndex.read(file.toPath());
+    }
+
+    @Test
+    public void testPruneProcessor() throws Exception {
+        final ClassReferences references = new ClassReferences();
+
+        try (
+            InputStream in = ClassReferences.class.getResourceAsStream("ClassReferences.class");
+        ) {
+            references.add(in);
+        }
+
+        // none of their classes is referenced by the compiled classes
+        final JarIndex.Entry plain = createJar("org/example/unused/Foo.class");
+        final JarIndex.Entry processor = createJar("org/example/processor/FooProcessor.class",
+                                                   "META-INF/services/javax.annotation.processing.Processor");
+        final JarIndex.Entry used = createJar("java/nio/file/Files.class");
+
+        Assert.assertTrue("Prune - unused failure", GoalBuild.isPrunable(references, plain));
+        Assert.assertTrue("Prune - processor index failure", processor.isProcessor());
+        Assert.assertFalse("Prune - processor failure", GoalBuild.isPrunable(references, processor));
+        Assert.assertFalse("Prune - used failure", GoalBuild.isPrunable(references, used));
+    }
+
+    @Test
+    public void testPruneSupertype() throws Exception {
+        final ClassReferences references = new ClassReferences();
+
+        try (
+            InputStream in = ClassReferences.class.getResourceAsStream("ClassReferences.class");
+        ) {
+            references.add(in);
+        }
+
+        // "api" is referenced, its dependency "base" only supplies a supertype, "other" is not needed at all
+        final JarIndex.Entry api = createJar("java/nio/file/Files.class");
+        final JarIndex.Entry base = createJar("org/example/base/Base.class");
+        final Map<String, SortedSet<String>> children = new HashMap<>();
+
+        children.put("org.example:api", new TreeSet<>(Arrays.asList("org.example:base")));
+        children.put("org.example:base", new TreeSet<>(Arrays.asList("org.example:api")));
+
+        Assert.assertFalse("Supertype - referenced failure", GoalBuild.isPrunable(references, api));
+        Assert.assertTrue("Supertype - unreferenced failure", GoalBuild.isPrunable(references, base));
+
+        final Set<String> used = GoalBuild.closeUsed(Collections.singleton("org.example:api"), children);
+
+        Assert.assertTrue("Supertype - closure failure", used.contains("org.example:base"));
+        Assert.assertFalse("Supertype - unused failure", used.contains("org.example:other"));
+        Assert.assertEquals("Supertype - size failure", 2, used.size());
+    }
+}
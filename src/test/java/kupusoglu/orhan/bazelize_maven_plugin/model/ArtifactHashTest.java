@@ -0,0 +1,65 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+
+
+public class ArtifactHashTest {
+    final private static String FILE_NAME = "test-file.txt";
+    final private static String FILE_SHA1 = "1bc378f856d7eab884b2ab7bf17fed012b357946";
+    final private static String EMPTY_SHA1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+
+    @Test
+    public void testSha1() throws Exception {
+        final Path path = Paths.get(ArtifactHash.class.getClassLoader().getResource(FILE_NAME).toURI());
+        final String actual = ArtifactHash.sha1(path);
+
+        Assert.assertEquals("SHA-1 - digest failure", FILE_SHA1, actual);
+    }
+
+    @Test
+    public void testSha1Empty() throws Exception {
+        final File file = File.createTempFile("bazelize-empty", ".jar");
+        file.deleteOnExit();
+
+        final String actual = ArtifactHash.sha1(file.toPath());
+
+        Assert.assertEquals("SHA-1 of empty file - digest failure", EMPTY_SHA1, actual);
+    }
+
+    @Test
+    public void testSha1LargerThanBuffer() throws Exception {
+        final File file = File.createTempFile("bazelize-large", ".jar");
+        file.deleteOnExit();
+
+        final byte[] block = new byte[100_000];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (byte)i;
+        }
+
+        try (
+            FileOutputStream out = new FileOutputStream(file);
+        ) {
+            for (int i = 0; i < 7; i++) {
+                out.write(block);
+            }
+        }
+
+        final MessageDigest digest = MessageDigest.getInstance(ArtifactHash.SHA_1);
+        for (int i = 0; i < 7; i++) {
+            digest.update(block);
+        }
+
+        final String expected = ArtifactHash.toHex(digest.digest());
+        final String actual = ArtifactHash.sha1(file.toPath());
+
+        Assert.assertEquals("SHA-1 across buffer boundaries - digest failure", expected, actual);
+    }
+}
@@ -0,0 +1,28 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+
+public class ClassReferencesTest {
+    @Test
+    public void testAdd() throws Exception {
+        final ClassReferences references = new ClassReferences();
+
+        try (
+            InputStream in = ClassReferences.class.getResourceAsStream("ClassReferences.class");
+        ) {
+            references.add(in);
+        }
+
+        // a "Class" entry
+        Assert.assertTrue("Add - class failure", references.getClasses().contains("java/nio/file/Files"));
+        // only in a method descriptor
+        Assert.assertTrue("Add - descriptor failure",
+                          references.getClasses().contains("kupusoglu/orhan/bazelize_maven_plugin/model/JarIndex$Entry"));
+        // a field descriptor
+        Assert.assertTrue("Add - signature failure", references.getClasses().contains("java/util/SortedSet"));
+    }
+}
@@ -1,6 +1,7 @@
 package kupusoglu.orhan.bazelize_maven_plugin.model;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -14,6 +15,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -101,6 +104,14 @@ public class CommonTest {
         final String actual = Common.sanitize(subject);
 
         Assert.assertEquals("Java identifier - sanitation failure", expected, actual);
+        Assert.assertEquals("Java identifier - unchanged failure", "vought_xf8u", Common.sanitize("vought_xf8u"));
+        Assert.assertEquals("Java identifier - non-ASCII failure", "m\u00fcller_a_b", Common.sanitize("m\u00fcller-a\u00a7b"));
+        Assert.assertEquals("Java identifier - coordinates failure",
+                            Common.sanitize("org.ow2.asm" + "_" + "asm-tree" + "_" + "9.2"),
+                            Common.sanitize("org.ow2.asm", "asm-tree", "9.2"));
+        Assert.assertEquals("Java identifier - versionless failure",
+                            "org_ow2_asm_asm_tree",
+                            Common.sanitize("org.ow2.asm", "asm-tree", null));
     }
 
     @Test
@@ -187,4 +198,27 @@ public class CommonTest {
 
         Assert.assertEquals("Get longest common path prefix - failure", expected, actual);
     }
+
+    @Test
+    public void testLicenses() throws Exception {
+        final MavenDependency dep = new MavenDependency("aopalliance", "aopalliance", "1.0");
+        final String url = "https://repo1.maven.org/maven2/aopalliance/aopalliance/1.0/aopalliance-1.0.jar";
+
+        Assert.assertEquals("Licenses - default failure",
+                            Collections.singletonList(Common.LICENSE.NOTICE),
+                            Common.LICENSE.of(""));
+        Assert.assertEquals("Licenses - list failure",
+                            Arrays.asList(Common.LICENSE.RECIPROCAL, Common.LICENSE.NOTICE),
+                            Common.LICENSE.of("reciprocal, notice,reciprocal"));
+        Assert.assertTrue("Licenses - rule failure",
+                          dep.outputAsBazelImport(url, Common.LICENSE.of("reciprocal,notice"))
+                             .contains("    licenses = [\"reciprocal\", \"notice\"],\n"));
+
+        try {
+            Common.LICENSE.of("apache");
+            Assert.fail("Licenses - unknown failure");
+        } catch (MojoExecutionException e) {
+            Assert.assertTrue("Licenses - message failure", e.getMessage().contains("apache"));
+        }
+    }
 }
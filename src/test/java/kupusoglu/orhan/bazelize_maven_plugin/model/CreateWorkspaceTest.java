@@ -0,0 +1,86 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+
+public class CreateWorkspaceTest {
+    private static String record(int module) {
+        return "[{\"groupId\": \"org.example\", \"artifactId\": \"lib-" + module + "\", \"version\": \"1.0\"}]";
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (
+            Stream<Path> stream = Files.walk(dir);
+        ) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testMergeFailures() throws Exception {
+        final Path root = Files.createTempDirectory("bazelize-workspace");
+        final int numModules = 20;
+
+        try {
+            final IntermediateStore store = IntermediateStore.getInstance(root);
+
+            for (int m = 0; m < numModules; m++) {
+                store.append(IntermediateStore.KIND.DEPENDENCY, "module/" + m, record(m));
+            }
+
+            // a record without coordinates and a record which is not a list
+            store.append(IntermediateStore.KIND.DEPENDENCY, "broken/0", "[{\"artifactId\": \"lib\", \"version\": \"1.0\"}]");
+            store.append(IntermediateStore.KIND.DEPENDENCY, "broken/1", "{\"groupId\": \"org.example\"}");
+            IntermediateStore.closeInstance(null);
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                final CreateWorkspace createWorkspace = new CreateWorkspace(new SystemStreamLog(),
+                                                                            root,
+                                                                            "test",
+                                                                            Common.WORKSPACE_FORMAT.MAVEN_JAR,
+                                                                            null,
+                                                                            null,
+                                                                            Common.DEPS_MODE.TRANSITIVE,
+                                                                            Collections.singletonList(Common.LICENSE.NOTICE));
+
+                try {
+                    createWorkspace.collect(index);
+                    Assert.fail("Merge - exception failure");
+                } catch (MojoExecutionException e) {
+                    Assert.assertEquals("Merge - suppressed failure", 2, e.getSuppressed().length);
+                    Assert.assertTrue("Merge - message failure", e.getMessage().contains("broken/0"));
+                    Assert.assertTrue("Merge - message failure", e.getMessage().contains("broken/1"));
+                }
+
+                // the records parsed by every thread are merged
+                createWorkspace.workspace();
+
+                final String workspace = new String(Files.readAllBytes(root.resolve(Common.OUTPUT_FILES.WORKSPACE.toString())),
+                                                    StandardCharsets.UTF_8);
+
+                for (int m = 0; m < numModules; m++) {
+                    Assert.assertTrue("Merge - dependency failure", workspace.contains("org.example:lib-" + m + ":1.0"));
+                }
+
+                createWorkspace.discard();
+
+                Assert.assertFalse("Discard - file failure", Files.exists(root.resolve(Common.OUTPUT_FILES.WORKSPACE.toString())));
+            }
+        } finally {
+            IntermediateStore.closeInstance(null);
+            delete(root);
+        }
+    }
+}
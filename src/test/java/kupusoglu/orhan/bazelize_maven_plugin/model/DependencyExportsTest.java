@@ -0,0 +1,97 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class DependencyExportsTest {
+    private static MavenDependency dependency(String artifactId, String... children) {
+        final MavenDependency dep = new MavenDependency("org.example", artifactId, "1.0");
+
+        for (String child : children) {
+            dep.addDependencies(Arrays.asList("org.example:" + child));
+        }
+
+        return dep;
+    }
+
+    /**
+     * Exported labels of the wrapper of the given artifact, its own JAR first
+     */
+    private static List<String> exports(String output, String artifactId) {
+        final String name = "org_example_" + artifactId + "_1_0";
+        final int start = output.indexOf("name = \"" + name + "\"");
+        final List<String> labels = new ArrayList<>();
+
+        Assert.assertTrue("Exports - wrapper failure: " + name, start >= 0);
+
+        final String block = output.substring(output.indexOf("exports = [", start), output.indexOf("],", start));
+
+        for (String line : block.split("\n")) {
+            if (line.trim().startsWith("\"")) {
+                labels.add(line.trim().replace("\"", "").replace(",", "").replace("org_example_", "").replace("_1_0", ""));
+            }
+        }
+
+        return labels;
+    }
+
+    @Test
+    public void testDiamond() {
+        // a -> b -> d, a -> c -> d, a -> d
+        final DependencyExports exports = new DependencyExports(new SystemStreamLog(),
+                                                                Arrays.asList(dependency("a", "b", "c", "d"),
+                                                                              dependency("b", "d"),
+                                                                              dependency("c", "d"),
+                                                                              dependency("d")));
+        final String output = exports.outputAsBazelExports();
+
+        Assert.assertEquals("Diamond - root failure", Arrays.asList("@a//jar", ":b", ":c"), exports(output, "a"));
+        Assert.assertEquals("Diamond - side failure", Arrays.asList("@b//jar", ":d"), exports(output, "b"));
+        Assert.assertEquals("Diamond - leaf failure", Arrays.asList("@d//jar"), exports(output, "d"));
+        Assert.assertEquals("Diamond - pruned failure", 1, exports.getNumPruned());
+        Assert.assertEquals("Diamond - cycles failure", 0, exports.getNumCycles());
+    }
+
+    @Test
+    public void testCycle() {
+        // p -> q -> p collapsed, q -> s leaves the cycle, r -> p reaches q and s through p
+        final DependencyExports exports = new DependencyExports(new SystemStreamLog(),
+                                                                Arrays.asList(dependency("p", "q"),
+                                                                              dependency("q", "p", "s"),
+                                                                              dependency("r", "p"),
+                                                                              dependency("s")));
+        final String output = exports.outputAsBazelExports();
+
+        Assert.assertEquals("Cycle - first failure", Arrays.asList("@p//jar", "@q//jar", ":s"), exports(output, "p"));
+        Assert.assertEquals("Cycle - second failure", Arrays.asList("@q//jar", "@p//jar", ":s"), exports(output, "q"));
+        Assert.assertEquals("Cycle - outside failure", Arrays.asList("@r//jar", ":p"), exports(output, "r"));
+        Assert.assertTrue("Cycle - reach failure", exports(output, "p").contains("@q//jar"));
+        Assert.assertEquals("Cycle - cycles failure", 1, exports.getNumCycles());
+    }
+
+    @Test
+    public void testSibling() {
+        // x -> y -> z, x -> z: z is reached through its sibling y
+        // u -> {v, w} with v <-> w: neither sibling prunes the other, both wrappers export both JARs
+        final DependencyExports exports = new DependencyExports(new SystemStreamLog(),
+                                                                Arrays.asList(dependency("x", "y", "z"),
+                                                                              dependency("y", "z"),
+                                                                              dependency("z"),
+                                                                              dependency("u", "v", "w"),
+                                                                              dependency("v", "w"),
+                                                                              dependency("w", "v")));
+        final String output = exports.outputAsBazelExports();
+
+        Assert.assertEquals("Sibling - pruned failure", Arrays.asList("@x//jar", ":y"), exports(output, "x"));
+        Assert.assertEquals("Sibling - cyclic failure", Arrays.asList("@u//jar", ":v", ":w"), exports(output, "u"));
+        Assert.assertEquals("Sibling - collapsed failure", Arrays.asList("@v//jar", "@w//jar"), exports(output, "v"));
+        Assert.assertEquals("Sibling - number pruned failure", 1, exports.getNumPruned());
+        Assert.assertEquals("Sibling - number cycles failure", 1, exports.getNumCycles());
+    }
+}
@@ -0,0 +1,71 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+
+public class DependencyGraphTest {
+    @Test
+    public void testComponents() {
+        final DependencyGraph<String> graph = new DependencyGraph<>();
+
+        graph.addEdge("api", "impl");
+        graph.addEdge("impl", "api");
+        graph.addEdge("impl", "util");
+        graph.addEdge("app", "api");
+        graph.addNode("single");
+
+        final List<int[]> actual = graph.components();
+        final int[] componentOf = DependencyGraph.componentOf(graph.size(), actual);
+
+        Assert.assertEquals("Components - number failure", 4, actual.size());
+        Assert.assertEquals("Components - cycle failure",
+                            componentOf[graph.indexOf("api")],
+                            componentOf[graph.indexOf("impl")]);
+        // reverse topological order: dependencies first
+        Assert.assertTrue("Components - order failure",
+                          componentOf[graph.indexOf("util")] < componentOf[graph.indexOf("api")]);
+        Assert.assertTrue("Components - order failure",
+                          componentOf[graph.indexOf("api")] < componentOf[graph.indexOf("app")]);
+    }
+
+    @Test
+    public void testEdges() {
+        final DependencyGraph<String> graph = new DependencyGraph<>();
+
+        graph.addNode("a");
+        graph.addEdge("a", "d");
+        graph.addEdge("a", "c");
+        graph.addEdge("a", "d");
+        graph.addEdge("a", "b");
+
+        Assert.assertArrayEquals("Edges - sorted failure",
+                                 new int[] {graph.indexOf("d"), graph.indexOf("c"), graph.indexOf("b")},
+                                 graph.getEdges(graph.indexOf("a")));
+        Assert.assertEquals("Edges - duplicate failure", 3, graph.getNumEdges(graph.indexOf("a")));
+        Assert.assertTrue("Edges - has edge failure", graph.hasEdge(graph.indexOf("a"), graph.indexOf("c")));
+        Assert.assertFalse("Edges - reverse failure", graph.hasEdge(graph.indexOf("c"), graph.indexOf("a")));
+
+        // added after a read
+        graph.addEdge("a", "a");
+
+        Assert.assertTrue("Edges - self failure", graph.hasEdge(graph.indexOf("a"), graph.indexOf("a")));
+        Assert.assertEquals("Edges - number failure", 4, graph.getNumEdges(graph.indexOf("a")));
+    }
+
+    @Test(timeout = 1000)
+    public void testDeepChain() {
+        final DependencyGraph<Integer> graph = new DependencyGraph<>();
+        final int size = 100000;
+
+        for (int i = 0; i < size - 1; i++) {
+            graph.addEdge(i, i + 1);
+        }
+
+        graph.addEdge(size - 1, 0);
+
+        Assert.assertEquals("Deep chain - single cycle failure", 1, graph.components().size());
+    }
+}
@@ -0,0 +1,34 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class DependencyLabelsTest {
+    @Test
+    public void testMemo() {
+        final DependencyLabels labels = DependencyLabels.getInstance();
+        final MavenDependency dep = new MavenDependency("com.google.guava", "guava", "23.0");
+
+        Assert.assertEquals("Name - sanitation failure", "com_google_guava_guava_23_0", dep.getName());
+        Assert.assertSame("Name - memo failure",
+                          dep.getName(),
+                          labels.name(new String("com.google.guava"), new String("guava"), new String("23.0")));
+        Assert.assertEquals("Name - versionless failure", "com_google_guava_guava", dep.retrieveVersionlessName());
+
+        final DependencyLabels.Label jar = labels.jar(dep);
+
+        Assert.assertEquals("Label - JAR failure", "@com_google_guava_guava_23_0//jar", jar.getLabel());
+        Assert.assertEquals("Label - fragment failure",
+                            Common.getIndentTwo() + "\"@com_google_guava_guava_23_0//jar\",\n",
+                            jar.getFragment());
+        Assert.assertSame("Label - memo failure", jar, labels.jar(new MavenDependency("com.google.guava", "guava", "23.0")));
+        Assert.assertEquals("Label - exports failure",
+                            "//" + Common.getPkgExports() + ":com_google_guava_guava_23_0",
+                            labels.exports(dep).getLabel());
+        Assert.assertEquals("Label - maven_install failure",
+                            "@" + MavenInstall.getRepositoryName() + "//:com_google_guava_guava",
+                            labels.mavenInstall(dep).getLabel());
+        Assert.assertEquals("Label - module failure", "//app:app", labels.module("//app:app").getLabel());
+    }
+}
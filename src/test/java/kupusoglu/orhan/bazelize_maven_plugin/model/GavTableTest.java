@@ -0,0 +1,58 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+public class GavTableTest {
+    @Test
+    public void testMerge() {
+        final GavTable table = new GavTable();
+
+        // one module sees the dependency transitively, the other directly
+        int first = table.add("com.google.guava", "guava", "23.0", "compile", "sha1", "central", "", 2);
+        table.addChild(first, "com.google.errorprone:error_prone_annotations");
+        table.add("aopalliance", "aopalliance", "1.0", "compile", "", "central", "", 1);
+        int second = table.add("com.google.guava", "guava", "23.0", "test", "", "central", "", 1);
+        table.addChild(second, "com.google.j2objc:j2objc-annotations");
+        table.addChild(second, "com.google.errorprone:error_prone_annotations");
+
+        final List<MavenDependency> actual = table.toDependencies();
+
+        Assert.assertEquals("Merge - entry failure", first, second);
+        Assert.assertEquals("Merge - size failure", 2, table.size());
+        Assert.assertEquals("Merge - added failure", 3, table.getNumAdded());
+        // sorted on the IDs by the order of their strings
+        Assert.assertEquals("Order failure", "aopalliance", actual.get(0).getGroupId());
+
+        final MavenDependency guava = actual.get(1);
+
+        Assert.assertEquals("Merge - first seen failure", "compile", guava.getScope());
+        Assert.assertEquals("Merge - first seen failure", "sha1", guava.getHash());
+        Assert.assertEquals("Merge - depth failure", 1, guava.getDepth());
+        Assert.assertEquals("Merge - children failure",
+                            Arrays.asList("com.google.errorprone:error_prone_annotations",
+                                          "com.google.j2objc:j2objc-annotations"),
+                            Arrays.asList(guava.getDependencies().toArray()));
+    }
+
+    @Test
+    public void testGrow() {
+        final GavTable table = new GavTable();
+        final int size = 10000;
+
+        for (int k = 0; k < 3; k++) {
+            for (int i = 0; i < size; i++) {
+                table.addChild(table.add("org.example", "artifact" + i, "1." + (i % 7), "compile", "", "central", "", 1),
+                               "org.example:child" + (i % 13));
+            }
+        }
+
+        Assert.assertEquals("Grow - size failure", size, table.size());
+        Assert.assertEquals("Grow - strings failure", 1 + size + 7 + 3 + 13, table.getNumStrings());
+        Assert.assertEquals("Grow - children failure", 1, table.get(size - 1).getDependencies().size());
+    }
+}
@@ -0,0 +1,42 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class GraphAnalysisTest {
+    @Test
+    public void testCriticalPath() {
+        final DependencyGraph<String> graph = new DependencyGraph<>();
+
+        // app -> api -> util, app -> impl -> util
+        graph.addEdge("app", "api");
+        graph.addEdge("app", "impl");
+        graph.addEdge("api", "util");
+        graph.addEdge("impl", "util");
+
+        final long[] costs = new long[graph.size()];
+        costs[graph.indexOf("app")] = 1;
+        costs[graph.indexOf("api")] = 2;
+        costs[graph.indexOf("impl")] = 5;
+        costs[graph.indexOf("util")] = 2;
+
+        final GraphAnalysis actual = new GraphAnalysis(graph, costs);
+        final List<String> path = new ArrayList<>();
+
+        for (int i : actual.getCriticalPath()) {
+            path.add(graph.getNode(i));
+        }
+
+        Assert.assertEquals("Critical path - cost failure", 8, actual.getCriticalPathCost());
+        Assert.assertEquals("Critical path - targets failure", Arrays.asList("app", "impl", "util"), path);
+        Assert.assertArrayEquals("Levels - width failure", new int[] {1, 2, 1}, actual.getLevelWidths());
+        Assert.assertEquals("Speedup - unlimited failure", 10.0 / 8, actual.getSpeedup(Integer.MAX_VALUE), 1e-9);
+        Assert.assertEquals("Speedup - single core failure", 1.0, actual.getSpeedup(1), 1e-9);
+        Assert.assertEquals("Fan-in failure", "util", graph.getNode(actual.getTopFanIn(1).get(0)));
+    }
+}
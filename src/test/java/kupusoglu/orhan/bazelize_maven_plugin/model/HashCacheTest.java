@@ -0,0 +1,113 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+
+public class HashCacheTest {
+    private Path dir;
+    private Path jar;
+    private Path fileCache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("bazelize-hash");
+        jar = dir.resolve("lib-1.0.jar");
+        fileCache = dir.resolve(Common.getFileHashCache());
+        Files.write(jar, "first content".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HashCache.closeInstance(new SystemStreamLog());
+
+        try (
+            Stream<Path> stream = Files.walk(dir);
+        ) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private void writeSidecar(String hash) throws IOException {
+        Files.write(jar.resolveSibling(jar.getFileName() + ".sha1"), (hash + "  lib-1.0.jar\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testHitsAndInvalidation() throws Exception {
+        HashCache cache = HashCache.getInstance(fileCache);
+        final String first = cache.hash(jar, ArtifactHash.SHA_256);
+
+        Assert.assertEquals("Hash - digest failure", ArtifactHash.hash(jar, ArtifactHash.SHA_256), first);
+        Assert.assertEquals("Hash - hit failure", first, cache.hash(jar, ArtifactHash.SHA_256));
+        Assert.assertEquals("Hash - hits failure", 1, cache.getNumHits());
+        Assert.assertEquals("Hash - computed failure", 1, cache.getNumComputed());
+
+        // persisted, and hit by the next session
+        HashCache.closeInstance(new SystemStreamLog());
+        cache = HashCache.getInstance(fileCache);
+
+        Assert.assertEquals("Persist - hit failure", first, cache.hash(jar, ArtifactHash.SHA_256));
+        Assert.assertEquals("Persist - hits failure", 1, cache.getNumHits());
+
+        // same size, another modification time
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() - 10000));
+        cache.hash(jar, ArtifactHash.SHA_256);
+
+        Assert.assertEquals("Modified - computed failure", 1, cache.getNumComputed());
+
+        // another size
+        Files.write(jar, "second, longer content".getBytes(StandardCharsets.UTF_8));
+
+        final String second = cache.hash(jar, ArtifactHash.SHA_256);
+
+        Assert.assertNotEquals("Size - invalidation failure", first, second);
+        Assert.assertEquals("Size - digest failure", ArtifactHash.hash(jar, ArtifactHash.SHA_256), second);
+        Assert.assertEquals("Size - computed failure", 2, cache.getNumComputed());
+    }
+
+    @Test
+    public void testSidecar() throws Exception {
+        final String actual = ArtifactHash.hash(jar, ArtifactHash.SHA_1);
+        final String corrupt = "0123456789012345678901234567890123456789";
+        final HashCache cache = HashCache.getInstance(fileCache);
+
+        writeSidecar(actual.toUpperCase());
+
+        Assert.assertEquals("Sidecar - hash failure", actual, cache.hash(jar, ArtifactHash.SHA_1));
+        Assert.assertEquals("Sidecar - read failure", 1, cache.getNumSidecars());
+        Assert.assertEquals("Sidecar - computed failure", 0, cache.getNumComputed());
+
+        // trusted unless verified
+        Files.delete(jar.resolveSibling(jar.getFileName() + ".sha1"));
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() - 10000));
+        writeSidecar(corrupt);
+
+        Assert.assertEquals("Corrupt - trusted failure", corrupt, cache.hash(jar, ArtifactHash.SHA_1));
+
+        cache.setVerify(true);
+
+        try {
+            cache.hash(jar, ArtifactHash.SHA_1);
+            Assert.fail("Corrupt - verify failure");
+        } catch (IOException e) {
+            Assert.assertTrue("Corrupt - message failure", e.getMessage().contains(corrupt));
+        }
+
+        writeSidecar(actual);
+
+        Assert.assertEquals("Verified - hash failure", actual, cache.hash(jar, ArtifactHash.SHA_1));
+        Assert.assertEquals("Verified - hit failure", actual, cache.hash(jar, ArtifactHash.SHA_1));
+        Assert.assertEquals("Verified - hits failure", 1, cache.getNumHits());
+    }
+}
@@ -0,0 +1,204 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+public class IntermediateStoreTest {
+    private static String payload(int module, int session) {
+        return "[{\"module\": " + module + ", \"session\": " + session + "}]";
+    }
+
+    private static String read(IntermediateStore.Index index, String key) throws Exception {
+        return new String(index.get(IntermediateStore.KIND.DEPENDENCY, key), StandardCharsets.UTF_8);
+    }
+
+    private static long countFiles(Path dir, String glob) throws Exception {
+        try (
+            Stream<Path> stream = Files.list(dir);
+        ) {
+            return stream.filter(path -> path.getFileSystem().getPathMatcher("glob:" + glob).matches(path.getFileName()))
+                         .count();
+        }
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (
+            Stream<Path> stream = Files.walk(dir);
+        ) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        final Path root = Files.createTempDirectory("bazelize-store");
+        final int numThreads = 4;
+        final int numModules = 50;
+
+        try {
+            final IntermediateStore store = IntermediateStore.getInstance(root);
+            final List<Thread> threads = new ArrayList<>();
+
+            for (int t = 0; t < numThreads; t++) {
+                final int thread = t;
+
+                threads.add(new Thread(() -> {
+                    for (int m = thread; m < numModules; m += numThreads) {
+                        try {
+                            store.append(IntermediateStore.KIND.DEPENDENCY, "module/" + m, payload(m, 1));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }));
+            }
+
+            for (Thread thread : threads) {
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // the open segment of the session is visible before the commit
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Pending - size failure", numModules, index.getKeys(IntermediateStore.KIND.DEPENDENCY).size());
+            }
+
+            IntermediateStore.closeInstance(null);
+
+            Assert.assertEquals("Commit - segment failure", 1, countFiles(root, "tmp-bzl-store-*.seg"));
+            Assert.assertEquals("Commit - temporary file failure", 0, countFiles(root, "tmp-bzl-store-*.tmp"));
+
+            // a later session overrides one module, a damaged segment is skipped
+            IntermediateStore.getInstance(root).append(IntermediateStore.KIND.DEPENDENCY, "module/7", payload(7, 2));
+            IntermediateStore.closeInstance(null);
+            Files.write(root.resolve("tmp-bzl-store-000099.seg"), "damaged".getBytes(StandardCharsets.UTF_8));
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Read - size failure", numModules, index.getKeys(IntermediateStore.KIND.DEPENDENCY).size());
+                Assert.assertEquals("Read - record failure", payload(3, 1), read(index, "module/3"));
+                Assert.assertEquals("Read - latest failure", payload(7, 2), read(index, "module/7"));
+                Assert.assertFalse("Read - kind failure", index.contains(IntermediateStore.KIND.SERVER, "module/7"));
+                Assert.assertNull("Read - missing failure", index.get(IntermediateStore.KIND.MODULE, "module/7"));
+                Assert.assertEquals("Read - corrupt failure", 1, index.getNumCorrupt());
+            }
+        } finally {
+            IntermediateStore.closeInstance(null);
+            delete(root);
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final Path root = Files.createTempDirectory("bazelize-store");
+        final int numSessions = 12;
+
+        try {
+            for (int s = 1; s <= numSessions; s++) {
+                IntermediateStore store = IntermediateStore.getInstance(root);
+
+                store.append(IntermediateStore.KIND.DEPENDENCY, "", payload(0, s));
+                store.append(IntermediateStore.KIND.DEPENDENCY, "module/" + s, payload(s, s));
+                IntermediateStore.closeInstance(null);
+            }
+
+            Assert.assertTrue("Compaction - segment failure", countFiles(root, "tmp-bzl-store-*.seg") < numSessions);
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Compaction - size failure", numSessions + 1, index.getKeys(IntermediateStore.KIND.DEPENDENCY).size());
+                Assert.assertEquals("Compaction - latest failure", payload(0, numSessions), read(index, ""));
+                Assert.assertEquals("Compaction - record failure", payload(2, 2), read(index, "module/2"));
+            }
+        } finally {
+            IntermediateStore.closeInstance(null);
+            delete(root);
+        }
+    }
+
+    @Test
+    public void testRemovedModule() throws Exception {
+        final Path root = Files.createTempDirectory("bazelize-store");
+        final int numModules = 5;
+
+        try {
+            IntermediateStore store = IntermediateStore.getInstance(root);
+            final List<Path> reactor = new ArrayList<>();
+
+            for (int m = 0; m < numModules; m++) {
+                reactor.add(root.resolve("module/" + m));
+            }
+
+            store.setReactor(reactor);
+
+            for (int m = 0; m < numModules; m++) {
+                store.append(IntermediateStore.KIND.MODULE, "module/" + m, payload(m, 1));
+                store.append(IntermediateStore.KIND.DEPENDENCY, "module/" + m, payload(m, 1));
+            }
+
+            IntermediateStore.closeInstance(null);
+
+            // the last module is removed from the reactor, a partial build writes only some of the others
+            reactor.remove(numModules - 1);
+            store = IntermediateStore.getInstance(root);
+            store.setReactor(reactor);
+            store.append(IntermediateStore.KIND.MODULE, "module/0", payload(0, 2));
+            // a module which no longer has a library
+            store.remove(IntermediateStore.KIND.DEPENDENCY, "module/1");
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Pending - removed failure", numModules - 1, index.getKeys(IntermediateStore.KIND.MODULE).size());
+                Assert.assertFalse("Pending - record failure", index.contains(IntermediateStore.KIND.DEPENDENCY, "module/1"));
+            }
+
+            IntermediateStore.closeInstance(null);
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Removed - module failure", numModules - 1, index.getKeys(IntermediateStore.KIND.MODULE).size());
+                Assert.assertFalse("Removed - key failure", index.contains(IntermediateStore.KIND.MODULE, "module/" + (numModules - 1)));
+                Assert.assertFalse("Removed - dependency failure", index.contains(IntermediateStore.KIND.DEPENDENCY, "module/" + (numModules - 1)));
+                Assert.assertFalse("Removed - record failure", index.contains(IntermediateStore.KIND.DEPENDENCY, "module/1"));
+                Assert.assertEquals("Removed - kept failure", payload(2, 1), read(index, "module/2"));
+                Assert.assertEquals("Removed - latest failure",
+                                    payload(0, 2),
+                                    new String(index.get(IntermediateStore.KIND.MODULE, "module/0"), StandardCharsets.UTF_8));
+            }
+
+            // compaction drops them for good
+            for (int s = 0; s < 10; s++) {
+                IntermediateStore.getInstance(root).append(IntermediateStore.KIND.SERVER, "module/0", payload(0, s));
+                IntermediateStore.closeInstance(null);
+            }
+
+            try (
+                IntermediateStore.Index index = IntermediateStore.open(root);
+            ) {
+                Assert.assertEquals("Compaction - module failure", numModules - 1, index.getKeys(IntermediateStore.KIND.MODULE).size());
+                Assert.assertEquals("Compaction - dependency failure", numModules - 2, index.getKeys(IntermediateStore.KIND.DEPENDENCY).size());
+            }
+        } finally {
+            IntermediateStore.closeInstance(null);
+            delete(root);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+
+public class JarIndexTest {
+    final private static String[] ENTRIES = {"META-INF/MANIFEST.MF",
+                                             "com/example/Foo.class",
+                                             "com/example/Foo$Bar.class",
+                                             "com/example/package-info.class",
+                                             "com/example/util/Baz.class",
+                                             "com/example/util/baz.properties",
+                                             "META-INF/versions/9/com/example/Foo.class",
+                                             "module-info.class"};
+
+
+    private static File createJar() throws Exception {
+        final File file = File.createTempFile("bazelize-index", ".jar");
+        file.deleteOnExit();
+
+        try (
+            JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        ) {
+            for (String entry : ENTRIES) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write(new byte[] {(byte)0xca, (byte)0xfe, (byte)0xba, (byte)0xbe});
+                out.closeEntry();
+            }
+        }
+
+        return file;
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        final JarIndex.Entry actual = JarIndex.read(createJar().toPath());
+
+        Assert.assertEquals("Read - packages failure",
+                            Arrays.asList("com/example", "com/example/util"),
+                            actual.getPackages());
+        Assert.assertEquals("Read - classes failure",
+                            Arrays.asList("com/example/Foo", "com/example/Foo$Bar", "com/example/util/Baz"),
+                            actual.getClasses());
+        Assert.assertTrue("Read - provides class failure", actual.providesClass("com/example/util/Baz"));
+        Assert.assertFalse("Read - provides package failure", actual.providesPackage("com/other"));
+        Assert.assertFalse("Read - processor failure", actual.isProcessor());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        final Path jar = createJar().toPath();
+        final Path dir = Files.createTempDirectory("bazelize-index");
+        final Path file = dir.resolve(Common.getFileJarIndex());
+        final String sha1 = ArtifactHash.sha1(jar);
+
+        try {
+            JarIndex.getInstance(file).index(jar, sha1);
+            JarIndex.closeInstance(new SystemStreamLog());
+
+            Files.delete(jar);
+
+            // served from the index file, the JAR is gone
+            final JarIndex.Entry actual = JarIndex.getInstance(file).index(jar, sha1);
+
+            Assert.assertEquals("Load - classes failure", 3, actual.getClasses().size());
+            Assert.assertFalse("Load - processor failure", actual.isProcessor());
+            Assert.assertTrue("Load - provides class failure", actual.providesClass("com/example/Foo$Bar"));
+        } finally {
+            JarIndex.closeInstance(new SystemStreamLog());
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
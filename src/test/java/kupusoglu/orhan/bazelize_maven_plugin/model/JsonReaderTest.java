@@ -0,0 +1,71 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class JsonReaderTest {
+    @Test
+    public void testTokens() throws Exception {
+        // longer than the buffer, so that a string spans two reads
+        final String longValue = String.join("", Collections.nCopies(10000, "x"));
+        final String json = "[{\"name\": \"a\\\"b\\\\c\\u00e9\", \"skipped\": {\"nested\": [1, true, null, \"]\"]},"
+                            + " \"depth\": -2, \"empty\": null},\n {\"name\": \"" + longValue + "\"}]";
+
+        try (
+            JsonReader reader = new JsonReader(new StringReader(json));
+        ) {
+            reader.beginArray();
+            reader.beginObject();
+            Assert.assertEquals("Name failure", "name", reader.nextName());
+            Assert.assertEquals("Escape failure", "a\"b\\cé", reader.nextString());
+            Assert.assertEquals("Name failure", "skipped", reader.nextName());
+            reader.skipValue();
+            Assert.assertEquals("Skip failure", "depth", reader.nextName());
+            Assert.assertEquals("Int failure", -2, reader.nextInt());
+            reader.nextName();
+            Assert.assertNull("Null failure", reader.nextString());
+            Assert.assertFalse("End of object failure", reader.hasNext());
+            reader.endObject();
+            reader.beginObject();
+            reader.nextName();
+            Assert.assertEquals("Long string failure", longValue, reader.nextString());
+            reader.endObject();
+            reader.endArray();
+            Assert.assertFalse("End of input failure", reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testReadDependencies() throws Exception {
+        final MavenDependency expected = new MavenDependency("com.google.guava", "guava", "23.0", "compile", "", "central");
+        final GavTable table = new GavTable();
+
+        expected.setSha256("7baa80df284117e5b945b19b98d367a85ea7b7801bd358ff657946c3bd1b6596");
+        expected.setDepth(1);
+        expected.setDependencies(Arrays.asList("com.google.code.findbugs:jsr305", "com.google.j2objc:j2objc-annotations"));
+
+        // a dependency record of the build goal
+        try (
+            JsonReader reader = new JsonReader(new StringReader(new JSONArray().put(new JSONObject(expected)).toString()));
+        ) {
+            CreateWorkspace.readDependencies(reader, table, 0);
+        }
+
+        final List<MavenDependency> actual = table.toDependencies();
+
+        Assert.assertEquals("Read - size failure", 1, actual.size());
+        Assert.assertEquals("Read - name failure", expected.getName(), actual.get(0).getName());
+        Assert.assertEquals("Read - scope failure", "compile", actual.get(0).getScope());
+        Assert.assertEquals("Read - sha256 failure", expected.getSha256(), actual.get(0).getSha256());
+        Assert.assertEquals("Read - depth failure", 1, actual.get(0).getDepth());
+        Assert.assertEquals("Read - children failure", expected.getDependencies(), actual.get(0).getDependencies());
+    }
+}
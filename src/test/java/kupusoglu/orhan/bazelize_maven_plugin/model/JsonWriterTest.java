@@ -0,0 +1,89 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+
+public class JsonWriterTest {
+    @Test
+    public void testTokens() throws Exception {
+        final String value = "a\"b\\c\n\u0001é";
+        final StringBuilder sb = new StringBuilder();
+
+        new JsonWriter(sb).beginArray()
+                          .beginObject()
+                          .name("name").value(value)
+                          .name("empty").value((String)null)
+                          .name("depth").value(-2)
+                          .name("list").value(Arrays.asList("x", "y"))
+                          .endObject()
+                          .value(new String[0])
+                          .endArray();
+
+        Assert.assertEquals("Output failure",
+                            "[{\"name\":\"a\\\"b\\\\c\\n\\u0001é\",\"empty\":null,\"depth\":-2,\"list\":[\"x\",\"y\"]},[]]",
+                            sb.toString());
+
+        // readable by org.json, too
+        final JSONObject item = new JSONArray(sb.toString()).getJSONObject(0);
+
+        Assert.assertEquals("Escape failure", value, item.getString("name"));
+        Assert.assertTrue("Null failure", item.isNull("empty"));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final MavenDependency dep = new MavenDependency("com.google.guava", "guava", "23.0", "compile", "", "central");
+        final MavenServer srv = new MavenServer("central", "https://repo1.maven.org/maven2");
+        final MavenMeta meta = new MavenMeta(null, Paths.get("/root"), Paths.get("module"), "org.acme", "lib", "1.0", "jar");
+        final StringBuilder sb = new StringBuilder();
+
+        dep.setSha256("7baa80df284117e5b945b19b98d367a85ea7b7801bd358ff657946c3bd1b6596");
+        dep.setDepth(1);
+        dep.setDependencies(Arrays.asList("com.google.code.findbugs:jsr305", "com.google.j2objc:j2objc-annotations"));
+        meta.setSource(new String[] {"src/main/java"});
+
+        JsonWriter writer = new JsonWriter(sb).beginArray();
+        dep.writeJson(writer);
+        srv.writeJson(writer);
+        meta.writeJson(writer);
+        writer.endArray();
+
+        try (
+            JsonReader reader = new JsonReader(new StringReader(sb.toString()));
+        ) {
+            reader.beginArray();
+
+            final MavenDependency actualDep = MavenDependency.readJson(reader);
+            final MavenServer actualSrv = MavenServer.readJson(reader);
+            final MavenMeta actualMeta = MavenMeta.readJson(null, reader);
+
+            reader.endArray();
+
+            Assert.assertEquals("Dependency - name failure", dep.getName(), actualDep.getName());
+            Assert.assertEquals("Dependency - artifact failure", dep.getArtifact(), actualDep.getArtifact());
+            Assert.assertEquals("Dependency - server failure", "central", actualDep.getServer());
+            Assert.assertEquals("Dependency - sha256 failure", dep.getSha256(), actualDep.getSha256());
+            Assert.assertEquals("Dependency - depth failure", 1, actualDep.getDepth());
+            Assert.assertEquals("Dependency - children failure", dep.getDependencies(), actualDep.getDependencies());
+            Assert.assertEquals("Server - url failure", srv.getUrl(), actualSrv.getUrl());
+            Assert.assertNull("Server - settings failure", actualSrv.getSettingsFile());
+            Assert.assertEquals("Meta - name failure", meta.retrieveName(), actualMeta.retrieveName());
+            Assert.assertEquals("Meta - label failure", meta.retrieveLabel(), actualMeta.retrieveLabel());
+        }
+
+        // the meta data of the reactor
+        final String library = MavenMeta.outputAsMetaData(meta);
+        final Common.Dependency actualLibrary = Common.Dependency.readJson(new JsonReader(new StringReader(library)));
+
+        Assert.assertEquals("Library - label failure", "//module:org_acme_lib_1_0", actualLibrary.getLabel());
+        Assert.assertArrayEquals("Library - sources failure", meta.getSource(), actualLibrary.getSources());
+        Assert.assertEquals("Library - jar failure", "lib-1.0.jar", actualLibrary.getJar());
+    }
+}
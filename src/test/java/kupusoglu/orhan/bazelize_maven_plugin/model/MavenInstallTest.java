@@ -0,0 +1,115 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+public class MavenInstallTest {
+    private static final String SHA256 = "0addec670fedcd3f113c5c8091d783280d23f75e3acb841b61a9cdb079376a08";
+    private static final Map<String, MavenServer> SERVERS = Collections.singletonMap(
+        "internal", new MavenServer("internal", "https://repo.example.org/maven2/"));
+
+    /**
+     * "internal" depends on "aopalliance" and on a black-listed artifact, which is not pinned
+     */
+    private static List<MavenDependency> dependencies() {
+        final MavenDependency aopalliance = new MavenDependency("aopalliance", "aopalliance", "1.0", "compile", "", "central");
+        final MavenDependency internal = new MavenDependency("org.example", "internal", "2.1", "compile", "", "internal");
+
+        aopalliance.setSha256(SHA256);
+        internal.setDependencies(Arrays.asList("aopalliance:aopalliance", "org.example:black-listed"));
+
+        return Arrays.asList(aopalliance, internal);
+    }
+
+    @Test
+    public void testDeclaration() {
+        final String expected = "load(\"@rules_jvm_external//:defs.bzl\", \"maven_install\")\n"
+                                + "\n"
+                                + "maven_install(\n"
+                                + "    artifacts = [\n"
+                                + "        \"aopalliance:aopalliance:1.0\",\n"
+                                + "        \"org.example:internal:2.1\",\n"
+                                + "    ],\n"
+                                + "    repositories = [\n"
+                                + "        \"https://repo.example.org/maven2\",\n"
+                                + "        \"https://repo1.maven.org/maven2\",\n"
+                                + "    ],\n"
+                                + "    maven_install_json = \"//:maven_install.json\",\n"
+                                + "    fail_if_repin_required = False,\n"
+                                + ")\n"
+                                + "\n"
+                                + "load(\"@maven//:defs.bzl\", \"pinned_maven_install\")\n"
+                                + "\n"
+                                + "pinned_maven_install()\n";
+
+        Assert.assertEquals("Declaration - pinned failure",
+                            expected,
+                            new MavenInstall(dependencies(), SERVERS).outputAsBazelInstall());
+    }
+
+    @Test
+    public void testLockFile() throws Exception {
+        final Path file = Files.createTempFile("bazelize-maven-install", ".json");
+
+        // Starlark's repr() of the hashed values, in the order of the file
+        final String resolved = "{\"artifacts\": {"
+                                + "\"aopalliance:aopalliance\": {\"shasums\": {\"jar\": \"" + SHA256 + "\"}, \"version\": \"1.0\"}, "
+                                + "\"org.example:internal\": {\"shasums\": {\"jar\": None}, \"version\": \"2.1\"}}, "
+                                + "\"dependencies\": {\"org.example:internal\": [\"aopalliance:aopalliance\"]}, "
+                                + "\"repositories\": {"
+                                + "\"https://repo.example.org/maven2/\": [\"org.example:internal\"], "
+                                + "\"https://repo1.maven.org/maven2/\": [\"aopalliance:aopalliance\"]}}";
+        final String inputArtifacts = "[\"artifact=aopalliance:group=aopalliance:version=1.0\", "
+                                      + "\"artifact=internal:group=org.example:version=2.1\"]";
+        final String inputRepositories = "[\"{\\\"repo_url\\\":\\\"https://repo.example.org/maven2\\\"}\", "
+                                         + "\"{\\\"repo_url\\\":\\\"https://repo1.maven.org/maven2\\\"}\"]";
+
+        try {
+            Files.write(file, new MavenInstall(dependencies(), SERVERS).outputAsLockFile().getBytes(StandardCharsets.UTF_8));
+
+            final JSONObject lock = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            final JSONObject artifacts = lock.getJSONObject("artifacts");
+
+            Assert.assertEquals("Lock - version failure", "2", lock.getString("version"));
+            Assert.assertEquals("Lock - artifacts failure", 2, artifacts.length());
+            Assert.assertEquals("Lock - checksum failure",
+                                SHA256,
+                                artifacts.getJSONObject("aopalliance:aopalliance").getJSONObject("shasums").getString("jar"));
+            Assert.assertTrue("Lock - missing checksum failure",
+                              artifacts.getJSONObject("org.example:internal").getJSONObject("shasums").isNull("jar"));
+            Assert.assertEquals("Lock - artifact version failure",
+                                "2.1",
+                                artifacts.getJSONObject("org.example:internal").getString("version"));
+            Assert.assertEquals("Lock - tree failure",
+                                "[\"aopalliance:aopalliance\"]",
+                                lock.getJSONObject("dependencies").getJSONArray("org.example:internal").toString());
+            Assert.assertFalse("Lock - leaf failure", lock.getJSONObject("dependencies").has("aopalliance:aopalliance"));
+            Assert.assertEquals("Lock - repository failure",
+                                "[\"org.example:internal\"]",
+                                lock.getJSONObject("repositories").getJSONArray("https://repo.example.org/maven2/").toString());
+            Assert.assertEquals("Lock - resolved hash failure", resolved.hashCode(), lock.getInt("__RESOLVED_ARTIFACTS_HASH"));
+            Assert.assertEquals("Lock - input hash failure",
+                                inputArtifacts.hashCode() ^ inputRepositories.hashCode(),
+                                lock.getInt("__INPUT_ARTIFACTS_HASH"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRepr() {
+        Assert.assertEquals("Repr - escape failure", "\"a\\\"b\\\\c\\n\"", MavenInstall.repr("a\"b\\c\n"));
+        Assert.assertEquals("Repr - list failure", "[\"a\", None]", MavenInstall.repr(Arrays.asList("a", null)));
+        Assert.assertEquals("Repr - map failure", "{\"k\": []}", MavenInstall.repr(Collections.singletonMap("k", Collections.emptyList())));
+    }
+}
@@ -0,0 +1,62 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class MetaIndexTest {
+    @Test
+    public void testLookup() throws Exception {
+        final Path dir = Files.createTempDirectory("bazelize-meta");
+        final Path fileMeta = dir.resolve(Common.OUTPUT_FILES.JSON_META.toString());
+        final Path fileIndex = dir.resolve(Common.OUTPUT_FILES.META_INDEX.toString());
+        final List<Common.Dependency> deps = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            deps.add(new Common.Dependency("module_" + i,
+                                           "//module/" + i + ":module_" + i,
+                                           new String[] {"src/main/java/a/" + i + "/*.java"},
+                                           "module/" + i,
+                                           "module-" + i + ".jar"));
+        }
+
+        deps.add(new Common.Dependency("m\u00fcller", "//m\u00fcller:m\u00fcller", new String[0], "", null));
+
+        try {
+            Files.write(fileMeta, "[]".getBytes(StandardCharsets.UTF_8));
+            MetaIndex.write(fileIndex, fileMeta, deps);
+
+            final MetaIndex index = MetaIndex.open(fileIndex, fileMeta);
+
+            Assert.assertEquals("Index - size failure", deps.size(), index.size());
+
+            for (Common.Dependency dep : deps) {
+                final Common.Dependency actual = index.get(dep.getName());
+
+                Assert.assertEquals("Lookup - label failure", dep.getLabel(), actual.getLabel());
+                Assert.assertEquals("Lookup - dir failure", dep.getDir(), actual.getDir());
+                Assert.assertEquals("Lookup - jar failure", dep.getJar(), actual.getJar());
+                Assert.assertArrayEquals("Lookup - sources failure", dep.getSources(), actual.getSources());
+            }
+
+            Assert.assertNull("Lookup - missing failure", index.get("module_100"));
+            Assert.assertNull("Lookup - prefix failure", index.get("module_"));
+
+            // the meta data changed after the index was written
+            Files.setLastModifiedTime(fileMeta, FileTime.fromMillis(Files.getLastModifiedTime(fileMeta).toMillis() + 2000));
+
+            Assert.assertNull("Index - stale failure", MetaIndex.open(fileIndex, fileMeta));
+        } finally {
+            Files.deleteIfExists(fileIndex);
+            Files.deleteIfExists(fileMeta);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
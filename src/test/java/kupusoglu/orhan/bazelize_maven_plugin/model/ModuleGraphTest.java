@@ -0,0 +1,57 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+public class ModuleGraphTest {
+    private static ModuleGraph createGraph() {
+        final ModuleGraph graph = new ModuleGraph();
+
+        graph.addModule("app", "//app:app");
+        graph.addModule("api", "//api:api");
+        graph.addModule("impl", "//impl:impl");
+        graph.addModule("util", "//util:util");
+
+        graph.addEdge("app", "api");
+        graph.addEdge("api", "impl");
+        graph.addEdge("impl", "util");
+        graph.addEdge("util", "api");
+
+        return graph;
+    }
+
+    @Test
+    public void testFindCycles() {
+        final List<List<String>> actual = createGraph().findCycles();
+
+        Assert.assertEquals("Cycles - number failure", 1, actual.size());
+        Assert.assertEquals("Cycles - path failure",
+                            "api -> impl -> util -> api",
+                            ModuleGraph.outputAsCycle(actual.get(0)));
+    }
+
+    @Test
+    public void testOutput() {
+        final ModuleGraph graph = new ModuleGraph();
+
+        graph.addModule("app", "//app:app");
+        graph.addModule("lib", "//lib:lib");
+        graph.addEdge("app", "lib");
+
+        final String json = graph.outputAsJson();
+
+        // dependencies first
+        Assert.assertTrue("JSON - order failure", json.indexOf("\"lib\"") < json.indexOf("\"app\""));
+        Assert.assertTrue("JSON - deps failure",
+                          json.contains("{\"name\": \"app\", \"label\": \"//app:app\", \"deps\": [\"lib\"]}"));
+        Assert.assertTrue("JSON - cycles failure", json.contains("\"cycles\": []"));
+        Assert.assertTrue("DOT - edge failure", graph.outputAsDot().contains("\"app\" -> \"lib\";"));
+        Assert.assertTrue("DOT - cycle failure",
+                          createGraph().outputAsDot().contains("\"util\" -> \"api\" [color = red];"));
+        Assert.assertEquals("Cycles - none failure", Arrays.asList(), graph.findCycles());
+    }
+}
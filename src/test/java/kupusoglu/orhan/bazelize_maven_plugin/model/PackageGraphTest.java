@@ -0,0 +1,96 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+
+public class PackageGraphTest {
+    // package, number of files, imported package
+    final private static String[][] PACKAGES = {{"com.example.app", "2", "com.example.api"},
+                                                {"com.example.api", "3", "com.example.impl"},
+                                                {"com.example.impl", "3", "com.example.api"},
+                                                {"com.example.util", "4", null},
+                                                {"com.example.io", "2", "com.example.util"},
+                                                {"com.example.text", "2", "com.example.util"}};
+
+
+    private static String[] createSources(Path dir) throws Exception {
+        final String[] globs = new String[PACKAGES.length];
+
+        for (int p = 0; p < PACKAGES.length; p++) {
+            final String pkg = PACKAGES[p][0];
+            final Path pkgDir = Files.createDirectories(dir.resolve(pkg.replace('.', '/')));
+
+            for (int f = 0; f < Integer.parseInt(PACKAGES[p][1]); f++) {
+                String content = "package " + pkg + ";\n"
+                                 + (PACKAGES[p][2] == null ? "" : "import " + PACKAGES[p][2] + ".Type;\n")
+                                 + "class Type" + f + " {}\n";
+
+                Files.write(pkgDir.resolve("Type" + f + ".java"), content.getBytes(StandardCharsets.UTF_8));
+            }
+
+            globs[p] = pkg.replace('.', '/') + "/*.java";
+        }
+
+        return globs;
+    }
+
+    @Test
+    public void testPartition() throws Exception {
+        final Path dir = Files.createTempDirectory("bazelize-packages");
+
+        try {
+            final String[] globs = createSources(dir);
+            final PackageGraph graph = PackageGraph.scan(dir, globs);
+
+            Assert.assertEquals("Targets - cycle failure", 5, graph.getTargets().size());
+            Assert.assertEquals("Targets - name failure",
+                                "module_com_example_api",
+                                PackageGraph.getTargetName("module", new TreeSet<>(Arrays.asList("com.example.impl", "com.example.api"))));
+
+            graph.partition(8);
+
+            final List<SortedSet<String>> actual = graph.getTargets();
+
+            Assert.assertEquals("Partition - number failure", 2, actual.size());
+            // the cycle is never split
+            for (SortedSet<String> target : actual) {
+                Assert.assertEquals("Partition - cycle failure",
+                                    target.contains("com.example.api"),
+                                    target.contains("com.example.impl"));
+                Assert.assertEquals("Partition - balance failure", 8, graph.getNumFiles(target));
+            }
+            // dependencies first, no edge to a later target
+            for (int t = 0; t < actual.size(); t++) {
+                for (int d : graph.getTargetDeps(t)) {
+                    Assert.assertTrue("Partition - order failure", d < t);
+                }
+            }
+
+            // stable across runs
+            final PackageGraph again = PackageGraph.scan(dir, globs);
+            again.partition(8);
+
+            Assert.assertEquals("Partition - stability failure", actual, again.getTargets());
+            Assert.assertEquals("Partition - naming failure",
+                                Arrays.asList("com.example.io", "com.example.text", "com.example.util"),
+                                Arrays.asList(actual.get(0).toArray()));
+        } finally {
+            try (
+                Stream<Path> stream = Files.walk(dir);
+            ) {
+                stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
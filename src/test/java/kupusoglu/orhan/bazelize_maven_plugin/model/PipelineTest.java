@@ -0,0 +1,146 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class PipelineTest {
+    private static List<Integer> range(int n) {
+        final List<Integer> items = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            items.add(i);
+        }
+
+        return items;
+    }
+
+    @Test(timeout = 10000)
+    public void testWorkers() throws Exception {
+        final SortedSet<Integer> actual = Collections.synchronizedSortedSet(new TreeSet<>());
+
+        // small queues and several workers: the end marker must pass every stage
+        final Pipeline<Integer> pipeline = Pipeline.source("scan", range(1000), 2)
+                                                   .then("double", 4, 2, i -> 2 * i)
+                                                   .then("inc", 3, 1, i -> i + 1);
+        final List<Pipeline.Failure> failures = pipeline.run("write", actual::add);
+
+        Assert.assertTrue("Workers - failures failure", failures.isEmpty());
+        Assert.assertEquals("Workers - size failure", 1000, actual.size());
+        Assert.assertEquals("Workers - first failure", Integer.valueOf(1), actual.first());
+        Assert.assertEquals("Workers - last failure", Integer.valueOf(1999), actual.last());
+        Assert.assertEquals("Workers - stages failure", 4, pipeline.getStages().size());
+        Assert.assertEquals("Workers - processed failure", 1000, pipeline.getStages().get(2).getProcessed());
+    }
+
+    @Test(timeout = 10000)
+    public void testOrder() throws Exception {
+        final List<Integer> actual = new ArrayList<>();
+        final List<Pipeline.Failure> failures = Pipeline.source("scan", range(500), 4)
+                                                        .then("same", 1, 4, i -> i)
+                                                        .then("drop", 1, 4, i -> i % 5 == 0 ? null : i)
+                                                        .run("write", actual::add);
+        final List<Integer> expected = new ArrayList<>();
+
+        for (int i : range(500)) {
+            if (i % 5 != 0) {
+                expected.add(i);
+            }
+        }
+
+        Assert.assertTrue("Order - failures failure", failures.isEmpty());
+        Assert.assertEquals("Order - single worker failure", expected, actual);
+    }
+
+    @Test(timeout = 10000)
+    public void testFailures() throws Exception {
+        final List<Integer> actual = Collections.synchronizedList(new ArrayList<>());
+        final List<Pipeline.Failure> failures = Pipeline.source("scan", range(100), 4)
+                                                        .then("hash", 3, 4, i -> {
+                                                            if (i % 10 == 3) {
+                                                                throw new IllegalStateException("hash " + i);
+                                                            }
+
+                                                            return i;
+                                                        })
+                                                        .then("render", 2, 4, i -> {
+                                                            if (i % 10 == 7) {
+                                                                throw new IllegalStateException("render " + i);
+                                                            }
+
+                                                            return i;
+                                                        })
+                                                        .run("write", i -> {
+                                                            if (i == 50) {
+                                                                throw new IllegalStateException("write " + i);
+                                                            }
+
+                                                            actual.add(i);
+                                                        });
+        int numHash = 0;
+        int numRender = 0;
+        int numWrite = 0;
+
+        for (Pipeline.Failure failure : failures) {
+            switch (failure.getStage()) {
+                case "hash": numHash++; break;
+                case "render": numRender++; break;
+                case "write": numWrite++; break;
+                default: Assert.fail("Failures - stage failure: " + failure);
+            }
+
+            Assert.assertTrue("Failures - cause failure", failure.getCause().getMessage().endsWith(" " + failure.getItem()));
+        }
+
+        Assert.assertEquals("Failures - hash failure", 10, numHash);
+        Assert.assertEquals("Failures - render failure", 10, numRender);
+        Assert.assertEquals("Failures - write failure", 1, numWrite);
+        Assert.assertEquals("Failures - passed failure", 79, actual.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testInterrupt() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+        final Thread runner = new Thread(() -> {
+            try {
+                Pipeline.source("scan", range(10), 1)
+                        .then("block", 1, 1, i -> {
+                            started.countDown();
+
+                            try {
+                                Thread.sleep(60000);
+                            } finally {
+                                stopped.countDown();
+                            }
+
+                            return i;
+                        })
+                        .run("write", i -> { });
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+
+        runner.start();
+        Assert.assertTrue("Interrupt - start failure", started.await(5, TimeUnit.SECONDS));
+
+        runner.interrupt();
+        runner.join(5000);
+
+        Assert.assertFalse("Interrupt - runner failure", runner.isAlive());
+        Assert.assertTrue("Interrupt - exception failure", thrown.get() instanceof InterruptedException);
+        Assert.assertTrue("Interrupt - workers failure", stopped.await(5, TimeUnit.SECONDS));
+    }
+}
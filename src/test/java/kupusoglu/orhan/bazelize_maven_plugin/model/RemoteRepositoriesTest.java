@@ -0,0 +1,53 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+
+public class RemoteRepositoriesTest {
+    final private static String CONTENT = "#NOTE: This is a Maven Resolver internal implementation file, its format can be changed without prior notice.\n"
+                                        + "#Mon Jun 25 10:00:00 TRT 2018\n"
+                                        + "guava-23.0-javadoc.jar>javadoc=\n"
+                                        + "guava-23.0.jar>internal=\n"
+                                        + "guava-23.0.pom>central=\n"
+                                        + "guava-23.0-local.jar>=\n";
+
+
+    @Test
+    public void testParse() {
+        final Map<String, String> actual = RemoteRepositories.parse(CONTENT);
+
+        Assert.assertEquals("Parse - number of entries failure", 3, actual.size());
+        Assert.assertEquals("Parse - jar failure", "internal", actual.get("guava-23.0.jar"));
+        Assert.assertEquals("Parse - pom failure", "central", actual.get("guava-23.0.pom"));
+        Assert.assertNull("Parse - locally installed failure", actual.get("guava-23.0-local.jar"));
+    }
+
+    @Test
+    public void testFindServer() throws IOException {
+        final Path dir = Files.createTempDirectory("bazelize-remote");
+
+        try {
+            Files.write(dir.resolve("_remote.repositories"), CONTENT.getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals("Find server - exact failure",
+                                "internal",
+                                RemoteRepositories.findServer(dir.resolve("guava-23.0.jar")));
+            Assert.assertEquals("Find server - fallback failure",
+                                "internal",
+                                RemoteRepositories.findServer(dir.resolve("guava-23.0-tests.jar")));
+            Assert.assertNull("Find server - missing file failure",
+                              RemoteRepositories.findServer(dir.resolve("missing").resolve("a-1.0.jar")));
+        } finally {
+            RemoteRepositories.clearCache();
+            Files.delete(dir.resolve("_remote.repositories"));
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+public class ScopedDependenciesTest {
+    private static final String LIB_NAME = "module";
+
+    private static String label(String name) {
+        return Common.getIndentTwo() + "\"@" + name + "//jar\",\n";
+    }
+
+    private static ScopedDependencies scoped(boolean splitScopes) {
+        final ScopedDependencies scoped = new ScopedDependencies(LIB_NAME, splitScopes, new StringBuilder());
+
+        scoped.add("compile", label("guava"));
+        scoped.add("provided", label("servlet_api"));
+        scoped.add("test", label("junit"));
+        scoped.add("runtime", label("postgresql"));
+
+        return scoped;
+    }
+
+    private static String wrapper(String output, String name) {
+        final int start = output.indexOf("name = \"" + name + "\"");
+
+        Assert.assertTrue("Wrapper - missing failure: " + name, start >= 0);
+
+        return output.substring(start, output.indexOf(")", start));
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        final ScopedDependencies scoped = scoped(true);
+        final String deps = scoped.getDeps();
+        final String wrappers = scoped.getWrappers();
+        final String provided = wrapper(wrappers, LIB_NAME + Common.getSuffixProvidedDeps());
+        final String test = wrapper(wrappers, LIB_NAME + Common.getSuffixTestDeps());
+
+        Assert.assertEquals("Deps - compile failure",
+                            label("guava") + Common.getIndentTwo() + "\":" + LIB_NAME + Common.getSuffixProvidedDeps() + "\",\n",
+                            deps);
+        Assert.assertEquals("Deps - runtime failure",
+                            "\n    runtime_deps = [\n" + Common.removeLastChars(label("postgresql"), 1) + "\n    ],",
+                            scoped.getRuntimeDeps());
+
+        Assert.assertTrue("Provided - neverlink failure", provided.contains("neverlink = True,"));
+        Assert.assertTrue("Provided - label failure", provided.contains("@servlet_api//jar"));
+        Assert.assertFalse("Provided - test failure", provided.contains("@junit//jar"));
+
+        Assert.assertTrue("Test - testonly failure", test.contains("testonly = True,"));
+        Assert.assertTrue("Test - label failure", test.contains("@junit//jar"));
+        Assert.assertTrue("Test - provided failure", test.contains("@servlet_api//jar"));
+
+        // the test goal adds the testonly wrapper to the tests of the library
+        final Path dir = Files.createTempDirectory("bazelize-scope");
+        final Path fileBuild = dir.resolve(Common.OUTPUT_FILES.BUILD.toString());
+        final String library = Common.getTemplateLibrary()
+                                     .with("LIB_NAME", LIB_NAME)
+                                     .with("SRCS_GLOB", Common.getGlobSources(new String[] {"src/main/java/**/*.java"}))
+                                     .with("RES_FILES", "")
+                                     .with("JAVA_DEPS", Common.withoutLastChars(deps, 1))
+                                     .with("RUNTIME_DEPS", scoped.getRuntimeDeps())
+                                     .render();
+
+        try {
+            Files.write(fileBuild, (library + "\n\n" + wrappers).getBytes(StandardCharsets.UTF_8));
+
+            final CreateTest createTest = new CreateTest(new SystemStreamLog(), dir, "src/test/java", "");
+
+            Assert.assertTrue("Test goal - library failure", createTest.isLibraryFound());
+
+            createTest.addTest("a.ModuleTest", "src/test/java/a/ModuleTest.java");
+
+            final String actual = new String(Files.readAllBytes(fileBuild), StandardCharsets.UTF_8);
+            final String javaTest = actual.substring(actual.indexOf("java_test("));
+
+            Assert.assertTrue("Test goal - wrapper failure",
+                              javaTest.contains("\":" + LIB_NAME + Common.getSuffixTestDeps() + "\","));
+        } finally {
+            Files.deleteIfExists(fileBuild);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testNotSplit() {
+        final ScopedDependencies scoped = scoped(false);
+
+        Assert.assertEquals("Not split - deps failure",
+                            label("guava") + label("servlet_api") + label("junit") + label("postgresql"),
+                            scoped.getDeps());
+        Assert.assertEquals("Not split - runtime failure", "", scoped.getRuntimeDeps());
+        Assert.assertEquals("Not split - wrappers failure", "", scoped.getWrappers());
+    }
+}
@@ -0,0 +1,98 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+
+public class SeedCacheTest {
+    private Path dir;
+    private Path localRepo;
+    private Path repositoryCache;
+    private HashCache hashCache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("bazelize-seed");
+        localRepo = dir.resolve("repository");
+        repositoryCache = dir.resolve("cache");
+        hashCache = HashCache.getInstance(dir.resolve(Common.getFileHashCache()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HashCache.closeInstance(new SystemStreamLog());
+
+        try (
+            Stream<Path> stream = Files.walk(dir);
+        ) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private MavenDependency install(String artifactId, String content) throws Exception {
+        final MavenDependency dep = new MavenDependency("org.example", artifactId, "1.0");
+        final Path jar = localRepo.resolve(dep.retrieveRelativePath());
+
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, content.getBytes(StandardCharsets.UTF_8));
+
+        return dep;
+    }
+
+    private Path entry(String sha256) {
+        return repositoryCache.resolve("content_addressable").resolve("sha256").resolve(sha256).resolve("file");
+    }
+
+    @Test
+    public void testSeed() throws Exception {
+        final MavenDependency computed = install("computed", "computed content");
+        final MavenDependency recorded = install("recorded", "recorded content");
+        final MavenDependency corrupt = install("corrupt", "corrupt content");
+        final MavenDependency missing = new MavenDependency("org.example", "missing", "1.0");
+        final Path jarRecorded = localRepo.resolve(recorded.retrieveRelativePath());
+        final String sha256Computed = ArtifactHash.hash(localRepo.resolve(computed.retrieveRelativePath()), ArtifactHash.SHA_256);
+        final String sha256Recorded = ArtifactHash.hash(jarRecorded, ArtifactHash.SHA_256);
+        final String sha256Corrupt = sha256Recorded.replace(sha256Recorded.charAt(0), sha256Recorded.charAt(0) == '0' ? '1' : '0');
+
+        recorded.setSha256(sha256Recorded);
+        corrupt.setSha256(sha256Corrupt);
+
+        SeedCache seedCache = new SeedCache(new SystemStreamLog(), localRepo, repositoryCache, hashCache);
+        seedCache.add(computed);
+        seedCache.add(recorded);
+        seedCache.add(corrupt);
+        seedCache.add(missing);
+        seedCache.seed();
+
+        Assert.assertEquals("Seed - published failure", 2, seedCache.getNumLinked() + seedCache.getNumCopied());
+        Assert.assertEquals("Seed - missing failure", 1, seedCache.getNumMissing());
+        Assert.assertEquals("Seed - mismatched failure", 1, seedCache.getNumMismatched());
+        Assert.assertArrayEquals("Seed - content failure", Files.readAllBytes(jarRecorded), Files.readAllBytes(entry(sha256Recorded)));
+        Assert.assertTrue("Seed - computed failure", Files.isRegularFile(entry(sha256Computed)));
+        Assert.assertFalse("Seed - corrupt failure", Files.exists(entry(sha256Corrupt)));
+
+        try (
+            Stream<Path> stream = Files.walk(repositoryCache);
+        ) {
+            Assert.assertFalse("Seed - temporary failure", stream.anyMatch(path -> path.toString().endsWith(".tmp")));
+        }
+
+        // present entries are skipped, not replaced
+        seedCache = new SeedCache(new SystemStreamLog(), localRepo, repositoryCache, hashCache);
+        seedCache.add(computed);
+        seedCache.add(recorded);
+        seedCache.seed();
+
+        Assert.assertEquals("Reseed - published failure", 0, seedCache.getNumLinked() + seedCache.getNumCopied());
+        Assert.assertEquals("Reseed - present failure", 2, seedCache.getNumPresent());
+    }
+}
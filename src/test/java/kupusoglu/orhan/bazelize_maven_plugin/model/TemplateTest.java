@@ -0,0 +1,49 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+
+public class TemplateTest {
+    @Test
+    public void testCompile() {
+        final Template template = Template.compile("# comment #\nname = \"#LIB_NAME#\",#ATTRIBUTES#\n#lower# #LIB_NAME#");
+
+        Assert.assertEquals("Compile - names failure", Arrays.asList("LIB_NAME", "ATTRIBUTES", "LIB_NAME"), template.getNames());
+        Assert.assertEquals("Compile - text failure",
+                            "# comment #\nname = \"#LIB_NAME#\",#ATTRIBUTES#\n#lower# #LIB_NAME#",
+                            template.getText());
+        Assert.assertEquals("Render - failure",
+                            "# comment #\nname = \"lib\",#ATTRIBUTES#\n#lower# lib",
+                            template.with("LIB_NAME", "lib").render());
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        final String label = "\"@com_acme_price$1_0\\\\x//jar\",\n";
+        final StringBuilder deps = new StringBuilder(label).append(label);
+        final StringWriter writer = new StringWriter();
+
+        // values are taken verbatim, no group references
+        Common.getTemplateLibrary()
+              .with("LIB_NAME", "lib")
+              .with("SRCS_GLOB", "glob([\"src/main/java/**/*.java\"])")
+              .with("RES_FILES", "")
+              .with("JAVA_DEPS", Common.withoutLastChars(deps, 1))
+              .with("RUNTIME_DEPS", "")
+              .renderTo(writer);
+
+        final String expected = Common.getTemplateLibrary().getText()
+                                      .replace("#LIB_NAME#", "lib")
+                                      .replace("#SRCS_GLOB#", "glob([\"src/main/java/**/*.java\"])")
+                                      .replace("#RES_FILES#", "")
+                                      .replace("#JAVA_DEPS#", label + label.substring(0, label.length() - 1))
+                                      .replace("#RUNTIME_DEPS#", "");
+
+        Assert.assertEquals("Render - library failure", expected, writer.toString());
+        Assert.assertTrue("Render - dollar failure", writer.toString().contains("price$1_0\\\\x"));
+    }
+}
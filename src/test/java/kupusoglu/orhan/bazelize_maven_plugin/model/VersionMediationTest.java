@@ -0,0 +1,103 @@
+package kupusoglu.orhan.bazelize_maven_plugin.model;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+
+public class VersionMediationTest {
+    private static MavenDependency dependency(String version, int depth) {
+        MavenDependency dep = new MavenDependency("com.google.guava", "guava", version, "", "", "");
+        dep.setDepth(depth);
+        return dep;
+    }
+
+    private static List<MavenDependency> candidates() {
+        return Arrays.asList(dependency("20.0", 1),
+                             dependency("23.0", 3),
+                             dependency("19.0", 2),
+                             dependency("9.0", 1));
+    }
+
+    @Test
+    public void testNearest() throws MojoExecutionException {
+        VersionMediation mediation = new VersionMediation(new SystemStreamLog(), Common.MEDIATION.NEAREST, null);
+        SortedMap<String, MavenDependency> actual = mediation.mediate(candidates());
+
+        Assert.assertEquals("Nearest - number of versions failure", 1, actual.size());
+        Assert.assertEquals("Nearest - version failure", "20.0", actual.values().iterator().next().getVersion());
+        Assert.assertEquals("Nearest - relabel failure",
+                            "com_google_guava_guava_20_0",
+                            mediation.getRelabel().get("com_google_guava_guava_23_0"));
+        Assert.assertEquals("Nearest - number of relabels failure", 3, mediation.getRelabel().size());
+    }
+
+    @Test
+    public void testHighest() throws MojoExecutionException {
+        VersionMediation mediation = new VersionMediation(new SystemStreamLog(), Common.MEDIATION.HIGHEST, null);
+        SortedMap<String, MavenDependency> actual = mediation.mediate(candidates());
+
+        Assert.assertEquals("Highest - version failure", "23.0", actual.values().iterator().next().getVersion());
+    }
+
+    private static Path writeBom(Path dir, String parent, String version) throws Exception {
+        final Path bomFile = dir.resolve("pom.xml");
+        final String bom = "<project>\n"
+                           + "  <modelVersion>4.0.0</modelVersion>\n"
+                           + parent
+                           + "  <artifactId>bom</artifactId>\n"
+                           + version
+                           + "  <dependencyManagement>\n"
+                           + "    <dependencies>\n"
+                           + "      <dependency>\n"
+                           + "        <groupId>com.google.guava</groupId>\n"
+                           + "        <artifactId>guava</artifactId>\n"
+                           + "        <version>${project.version}</version>\n"
+                           + "      </dependency>\n"
+                           + "    </dependencies>\n"
+                           + "  </dependencyManagement>\n"
+                           + "</project>\n";
+
+        Files.write(bomFile, bom.getBytes(StandardCharsets.UTF_8));
+
+        return bomFile;
+    }
+
+    @Test
+    public void testBomProjectVersion() throws Exception {
+        final Path dir = Files.createTempDirectory("bazelize-bom");
+        final String parent = "  <parent>\n"
+                              + "    <groupId>com.google.guava</groupId>\n"
+                              + "    <artifactId>guava-parent</artifactId>\n"
+                              + "    <version>19.0</version>\n"
+                              + "  </parent>\n";
+
+        try {
+            VersionMediation mediation = new VersionMediation(new SystemStreamLog(),
+                                                              Common.MEDIATION.BOM,
+                                                              writeBom(dir, parent, ""));
+
+            Assert.assertEquals("BOM - parent version failure",
+                                "19.0",
+                                mediation.mediate(candidates()).values().iterator().next().getVersion());
+
+            try {
+                new VersionMediation(new SystemStreamLog(), Common.MEDIATION.BOM, writeBom(dir, "", ""));
+                Assert.fail("BOM - missing version failure");
+            } catch (MojoExecutionException e) {
+                Assert.assertTrue("BOM - message failure", e.getMessage().contains(dir.resolve("pom.xml").toString()));
+            }
+        } finally {
+            Files.deleteIfExists(dir.resolve("pom.xml"));
+            Files.deleteIfExists(dir);
+        }
+    }
+}